@@ -0,0 +1,189 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node.benchmarks;
+
+import net.kemitix.node.Node;
+import net.kemitix.node.Nodes;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+/**
+ * Measures the memory retained by synthetic trees, and the time and garbage collection needed to build them.
+ *
+ * <p>For each {@link TreeShape}, and for balanced trees with a range of fan-outs, trees of increasing size are built and
+ * then copied with {@link Nodes#asImmutable(Node)}. Each is measured with JOL, which walks everything reachable from
+ * the root, including the {@link Integer} data of each node; the immutable copy is checked to reach no mutable
+ * node, which would otherwise be measured along with it. The trees are unnamed, so that only the nodes themselves
+ * are measured.</p>
+ *
+ * <p>Results are written to standard output as CSV, one line per tree, for comparing between releases:</p>
+ *
+ * <pre>
+ * java -Xmx8g -cp benchmarks/target/benchmarks.jar net.kemitix.node.benchmarks.FootprintHarness [max-size] [rounds]
+ * </pre>
+ *
+ * <p>The sizes run from 1,000 up to the maximum, by factors of ten; the default maximum is 1,000,000 and trees of
+ * 10,000,000 nodes need a heap of around 8GB. Each tree is built the given number of times, one by default, to soak
+ * the collector; the build time and collections reported are averages over the rounds.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public final class FootprintHarness {
+
+    private static final int MIN_SIZE = 1_000;
+
+    private static final int DEFAULT_MAX_SIZE = 1_000_000;
+
+    private static final int[] FAN_OUTS = {2, 10, 100, 1_000};
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private static final String MUTABLE_NODE = "net.kemitix.node.NodeItem";
+
+    private final PrintStream out;
+
+    private final int rounds;
+
+    private FootprintHarness(final PrintStream out, final int rounds) {
+        this.out = out;
+        this.rounds = rounds;
+    }
+
+    /**
+     * Runs the harness.
+     *
+     * @param args the largest tree size and the number of rounds, both optional
+     */
+    public static void main(final String[] args) {
+        final int maxSize = argument(args, 0, DEFAULT_MAX_SIZE);
+        final int rounds = argument(args, 1, 1);
+        final FootprintHarness harness = new FootprintHarness(System.out, rounds);
+        harness.out.println("tree,size,kind,build_ms,gc_count,gc_ms,retained_bytes,bytes_per_node");
+        for (int size = MIN_SIZE; size <= maxSize; size *= 10) {
+            for (final TreeShape shape : TreeShape.values()) {
+                final int treeSize = size;
+                harness.measure(shape.name(), size, () -> shape.build(treeSize, false));
+            }
+            for (final int fanOut : FAN_OUTS) {
+                final int treeSize = size;
+                harness.measure("FAN_OUT_" + fanOut, size, () -> TreeShape.withFanOut(treeSize, fanOut, false));
+            }
+        }
+    }
+
+    private static int argument(final String[] args, final int index, final int defaultValue) {
+        if (args.length > index) {
+            return Integer.parseInt(args[index].replace("_", ""));
+        }
+        return defaultValue;
+    }
+
+    private void measure(final String tree, final int size, final Supplier<SyntheticTree> builder) {
+        final Sample<Node<Integer>> mutable = sample(() -> builder.get()
+                                                                 .getRoot());
+        report(tree, size, "NodeItem", mutable, GraphLayout.parseInstance(mutable.result));
+        final Node<Integer> root = mutable.result;
+        final Sample<Node<Integer>> immutable = sample(() -> Nodes.asImmutable(root));
+        final GraphLayout immutableLayout = GraphLayout.parseInstance(immutable.result);
+        // a copy that reached back into the mutable tree would be measured along with it
+        if (immutableLayout.getClasses()
+                           .stream()
+                           .anyMatch(type -> MUTABLE_NODE.equals(type.getName()))) {
+            throw new IllegalStateException("The immutable copy of " + tree + " reaches mutable nodes");
+        }
+        report(tree, size, "ImmutableNodeItem", immutable, immutableLayout);
+    }
+
+    private <R> Sample<R> sample(final Supplier<R> action) {
+        R result = null;
+        long nanos = 0;
+        long collections = 0;
+        long collectionMillis = 0;
+        for (int round = 0; round < rounds; round++) {
+            result = null;
+            System.gc();
+            final long collectionsBefore = collectionCount();
+            final long collectionMillisBefore = collectionMillis();
+            final long start = System.nanoTime();
+            result = action.get();
+            nanos += System.nanoTime() - start;
+            collections += collectionCount() - collectionsBefore;
+            collectionMillis += collectionMillis() - collectionMillisBefore;
+        }
+        return new Sample<>(result, nanos / rounds, collections / (double) rounds,
+                collectionMillis / (double) rounds);
+    }
+
+    private void report(
+            final String tree,
+            final int size,
+            final String kind,
+            final Sample<Node<Integer>> sample,
+            final GraphLayout layout
+    ) {
+        final long retained = layout.totalSize();
+        out.printf("%s,%d,%s,%.1f,%.1f,%.1f,%d,%.1f%n", tree, size, kind, sample.nanos / NANOS_PER_MILLI,
+                sample.collections, sample.collectionMillis, retained, retained / (double) size);
+    }
+
+    private static long collectionCount() {
+        long count = 0;
+        for (final GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, bean.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long collectionMillis() {
+        long millis = 0;
+        for (final GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, bean.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * The result of an action, with the average time and garbage collection it took.
+     */
+    private static final class Sample<R> {
+
+        private final R result;
+
+        private final long nanos;
+
+        private final double collections;
+
+        private final double collectionMillis;
+
+        Sample(final R result, final long nanos, final double collections, final double collectionMillis) {
+            this.result = result;
+            this.nanos = nanos;
+            this.collections = collections;
+            this.collectionMillis = collectionMillis;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node.benchmarks;
+
+import net.kemitix.node.Node;
+import net.kemitix.node.Nodes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the core {@link Node} operations over trees of each {@link TreeShape} and several sizes.
+ *
+ * <p>Operations that change the tree undo their change within the same invocation, so each measures the pair.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+// streaming deep trees recurses once per level
+@Fork(value = 1, jvmArgsAppend = "-Xss16m")
+public class NodeBenchmarks {
+
+    @Param({"WIDE", "DEEP", "BALANCED", "SKEWED"})
+    private TreeShape shape;
+
+    @Param({"100", "10000"})
+    private int size;
+
+    private SyntheticTree tree;
+
+    private Node<Integer> root;
+
+    private Node<Integer> deepest;
+
+    private Node<Integer> lastParent;
+
+    private Integer lastData;
+
+    private String lastName;
+
+    private List<Integer> dataPath;
+
+    private String[] namePath;
+
+    /**
+     * Builds the tree.
+     */
+    @Setup
+    public void setUp() {
+        tree = shape.build(size, true);
+        root = tree.getRoot();
+        deepest = tree.getDeepest();
+        final Node<Integer> last = tree.getLast();
+        lastParent = last.findParent()
+                         .orElse(root);
+        lastData = last.findData()
+                       .orElse(null);
+        lastName = last.getName();
+        dataPath = tree.getDataPath();
+        namePath = tree.getNamePath();
+    }
+
+    @Benchmark
+    public Node<Integer> addChild() {
+        final Node<Integer> child = Nodes.namedRoot(-1, "added");
+        root.addChild(child);
+        root.removeChild(child);
+        return child;
+    }
+
+    @Benchmark
+    public Optional<Node<Integer>> findChildByName() {
+        return lastParent.findChildByName(lastName);
+    }
+
+    @Benchmark
+    public Optional<Node<Integer>> findChild() {
+        return lastParent.findChild(lastData);
+    }
+
+    @Benchmark
+    public Node<Integer> insertInPath() {
+        final Node<Integer> node = Nodes.namedRoot(-1, "inserted");
+        root.insertInPath(node, namePath);
+        node.removeParent();
+        return node;
+    }
+
+    @Benchmark
+    public Optional<Node<Integer>> findInPath() {
+        return root.findInPath(dataPath);
+    }
+
+    @Benchmark
+    public long stream() {
+        return root.stream()
+                   .count();
+    }
+
+    @Benchmark
+    public long parentStream() {
+        return deepest.parentStream()
+                      .count();
+    }
+
+    @Benchmark
+    public boolean isDescendantOf() {
+        return deepest.isDescendantOf(root);
+    }
+
+    @Benchmark
+    public Node<Integer> asImmutable() {
+        return Nodes.asImmutable(root);
+    }
+
+    @Benchmark
+    public String drawTree() {
+        return Nodes.drawTree(root, 0);
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node.benchmarks;
+
+import net.kemitix.node.Node;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A tree built by {@link TreeShape}, with the nodes the benchmarks look for.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public final class SyntheticTree {
+
+    private final Node<Integer> root;
+
+    private final Node<Integer> deepest;
+
+    private final Node<Integer> last;
+
+    private final int depth;
+
+    SyntheticTree(final Node<Integer> root, final Node<Integer> deepest, final Node<Integer> last, final int depth) {
+        this.root = root;
+        this.deepest = deepest;
+        this.last = last;
+        this.depth = depth;
+    }
+
+    /**
+     * The root of the tree.
+     *
+     * @return the root
+     */
+    public Node<Integer> getRoot() {
+        return root;
+    }
+
+    /**
+     * The first node created at the greatest depth.
+     *
+     * @return the deepest node
+     */
+    public Node<Integer> getDeepest() {
+        return deepest;
+    }
+
+    /**
+     * The last node created.
+     *
+     * @return the last node
+     */
+    public Node<Integer> getLast() {
+        return last;
+    }
+
+    /**
+     * The depth of the deepest node, where the root is at depth zero.
+     *
+     * @return the depth
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * The data of each node from below the root down to the deepest node, for {@link Node#findInPath(List)}.
+     *
+     * @return the data path
+     */
+    public List<Integer> getDataPath() {
+        final List<Integer> path = new ArrayList<>();
+        for (Node<Integer> node = deepest; node != root; node = node.findParent()
+                                                                    .orElse(root)) {
+            path.add(node.findData()
+                         .orElse(null));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * The names of each node from below the root down to the deepest node, for
+     * {@link Node#insertInPath(Node, String...)}.
+     *
+     * @return the name path
+     */
+    public String[] getNamePath() {
+        final List<String> path = new ArrayList<>();
+        for (Node<Integer> node = deepest; node != root; node = node.findParent()
+                                                                    .orElse(root)) {
+            path.add(node.getName());
+        }
+        Collections.reverse(path);
+        return path.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node.benchmarks;
+
+import net.kemitix.node.Node;
+import net.kemitix.node.Nodes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The shapes of synthetic tree used by the benchmarks.
+ *
+ * <p>Each node holds its creation index as its data and, when named, is named {@code "n"} followed by that index.
+ * Adding a named child checks the names of its siblings, so very wide named trees are slow to build; the larger
+ * trees are built unnamed.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public enum TreeShape {
+
+    /**
+     * Every node is a child of the root.
+     */
+    WIDE {
+        @Override
+        int parentOf(final int index, final Random random) {
+            return 0;
+        }
+    },
+
+    /**
+     * Chains of up to {@link #MAX_CHAIN} nodes hanging from the root.
+     */
+    DEEP {
+        @Override
+        int parentOf(final int index, final Random random) {
+            if ((index - 1) % MAX_CHAIN == 0) {
+                return 0;
+            }
+            return index - 1;
+        }
+    },
+
+    /**
+     * Each node has {@link #FAN_OUT} children, filled level by level.
+     */
+    BALANCED {
+        @Override
+        int parentOf(final int index, final Random random) {
+            return (index - 1) / FAN_OUT;
+        }
+    },
+
+    /**
+     * Each node's parent is picked at random, favouring the earliest nodes, so a few nodes have very many children
+     * and most have none.
+     */
+    SKEWED {
+        @Override
+        int parentOf(final int index, final Random random) {
+            final double u = random.nextDouble();
+            return (int) (index * u * u * u);
+        }
+    };
+
+    /**
+     * The longest chain in a {@link #DEEP} tree.
+     */
+    public static final int MAX_CHAIN = 1_000;
+
+    /**
+     * The number of children of each node in a {@link #BALANCED} tree.
+     */
+    public static final int FAN_OUT = 10;
+
+    private static final long SEED = 20_181_029L;
+
+    /**
+     * The index of the parent of a node.
+     *
+     * @param index  the index of the node, which is greater than zero
+     * @param random the source of randomness, seeded so that trees are repeatable
+     *
+     * @return the index of its parent, which is less than the index of the node
+     */
+    abstract int parentOf(int index, Random random);
+
+    /**
+     * Builds a tree of this shape.
+     *
+     * @param size  the number of nodes, including the root
+     * @param named whether to name each node
+     *
+     * @return the tree
+     */
+    public SyntheticTree build(final int size, final boolean named) {
+        return build(size, named, this::parentOf);
+    }
+
+    /**
+     * Builds a tree in which each node has the same number of children, filled level by level.
+     *
+     * @param size   the number of nodes, including the root
+     * @param fanOut the number of children of each node
+     * @param named  whether to name each node
+     *
+     * @return the tree
+     */
+    public static SyntheticTree withFanOut(final int size, final int fanOut, final boolean named) {
+        return build(size, named, (index, random) -> (index - 1) / fanOut);
+    }
+
+    private static SyntheticTree build(final int size, final boolean named, final ParentSelector selector) {
+        final Random random = new Random(SEED);
+        final List<Node<Integer>> nodes = new ArrayList<>(size);
+        final Node<Integer> root = named
+                ? Nodes.namedRoot(0, "n0")
+                : Nodes.unnamedRoot(0);
+        nodes.add(root);
+        Node<Integer> deepest = root;
+        int deepestDepth = 0;
+        final int[] depths = new int[size];
+        for (int i = 1; i < size; i++) {
+            final int parentIndex = selector.parentOf(i, random);
+            final Node<Integer> parent = nodes.get(parentIndex);
+            final Node<Integer> node = named
+                    ? Nodes.namedChild(i, "n" + i, parent)
+                    : Nodes.unnamedChild(i, parent);
+            nodes.add(node);
+            depths[i] = depths[parentIndex] + 1;
+            if (depths[i] > deepestDepth) {
+                deepestDepth = depths[i];
+                deepest = node;
+            }
+        }
+        return new SyntheticTree(root, deepest, nodes.get(size - 1), deepestDepth);
+    }
+
+    /**
+     * Picks the parent of each new node.
+     */
+    private interface ParentSelector {
+
+        int parentOf(int index, Random random);
+    }
+}
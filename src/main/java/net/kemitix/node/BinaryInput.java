@@ -0,0 +1,191 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.node;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffered reader of varint encoded values from an {@link InputStream} or a {@link ReadableByteChannel}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+final class BinaryInput {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int BYTE_MASK = 0xff;
+    private static final int VARINT_PAYLOAD = 0x7f;
+    private static final int VARINT_CONTINUES = 0x80;
+    private static final int VARINT_SHIFT = 7;
+    private static final int VARINT_MAX_SHIFT = 28;
+    // the fifth byte holds only the top three bits of a non-negative int
+    private static final int VARINT_LAST_PAYLOAD = 0x07;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final InputStream stream;
+    private final ReadableByteChannel channel;
+    private int position;
+    private int limit;
+
+    private BinaryInput(final InputStream stream, final ReadableByteChannel channel) {
+        this.stream = stream;
+        this.channel = channel;
+    }
+
+    /**
+     * Creates a reader from an input stream.
+     *
+     * @param stream the stream to read from
+     *
+     * @return the reader
+     */
+    static BinaryInput from(final InputStream stream) {
+        return new BinaryInput(stream, null);
+    }
+
+    /**
+     * Creates a reader from a channel.
+     *
+     * @param channel the channel to read from
+     *
+     * @return the reader
+     */
+    static BinaryInput from(final ReadableByteChannel channel) {
+        return new BinaryInput(null, channel);
+    }
+
+    /**
+     * Reads a single byte.
+     *
+     * @return the byte, as a value between 0 and 255
+     *
+     * @throws IOException if there is an error reading or the input is exhausted
+     */
+    int readByte() throws IOException {
+        if (position == limit) {
+            require(1);
+        }
+        return buffer[position++] & BYTE_MASK;
+    }
+
+    /**
+     * Reads a non-negative int written by {@link BinaryOutput#writeVarInt(int)}.
+     *
+     * <p>Encodings of negative values, or longer than needed for their value, are rejected as malformed.</p>
+     *
+     * @return the value
+     *
+     * @throws IOException if there is an error reading or the value is malformed
+     */
+    int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift <= VARINT_MAX_SHIFT; shift += VARINT_SHIFT) {
+            final int next = readByte();
+            if ((shift > 0 && next == 0) || (shift == VARINT_MAX_SHIFT && next > VARINT_LAST_PAYLOAD)) {
+                break;
+            }
+            value |= (next & VARINT_PAYLOAD) << shift;
+            if ((next & VARINT_CONTINUES) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Reads the next bytes.
+     *
+     * <p>Where possible the returned buffer is a view of the internal buffer and is only valid until the next read.
+     * </p>
+     *
+     * @param length the number of bytes to read
+     *
+     * @return a buffer whose remaining bytes are those read
+     *
+     * @throws IOException if there is an error reading or the input is exhausted
+     */
+    ByteBuffer readBytes(final int length) throws IOException {
+        if (length > BUFFER_SIZE) {
+            final byte[] bytes = new byte[length];
+            final int buffered = limit - position;
+            System.arraycopy(buffer, position, bytes, 0, buffered);
+            position = limit;
+            readFully(bytes, buffered);
+            return ByteBuffer.wrap(bytes);
+        }
+        if (length > limit - position) {
+            require(length);
+        }
+        final ByteBuffer bytes = ByteBuffer.wrap(buffer, position, length);
+        position += length;
+        return bytes;
+    }
+
+    /**
+     * Reads a string written by {@link BinaryOutput#writeString(String)}.
+     *
+     * @return the string
+     *
+     * @throws IOException if there is an error reading or the input is exhausted
+     */
+    String readString() throws IOException {
+        final ByteBuffer bytes = readBytes(readVarInt());
+        return new String(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining(),
+                StandardCharsets.UTF_8);
+    }
+
+    private void require(final int length) throws IOException {
+        final int buffered = limit - position;
+        System.arraycopy(buffer, position, buffer, 0, buffered);
+        position = 0;
+        limit = buffered;
+        while (limit < length) {
+            final int read = fill(buffer, limit, BUFFER_SIZE - limit);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            limit += read;
+        }
+    }
+
+    private void readFully(final byte[] bytes, final int offset) throws IOException {
+        int filled = offset;
+        while (filled < bytes.length) {
+            final int read = fill(bytes, filled, bytes.length - filled);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            filled += read;
+        }
+    }
+
+    private int fill(final byte[] bytes, final int offset, final int length) throws IOException {
+        if (stream != null) {
+            return stream.read(bytes, offset, length);
+        }
+        return channel.read(ByteBuffer.wrap(bytes, offset, length));
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.node;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffered writer of varint encoded values to an {@link OutputStream} or a {@link WritableByteChannel}.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+final class BinaryOutput {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int VARINT_PAYLOAD = 0x7f;
+    private static final int VARINT_CONTINUES = 0x80;
+    private static final int VARINT_SHIFT = 7;
+    private static final int BYTE_SHIFT = 8;
+    private static final int INT_BYTES = 4;
+    private static final int LONG_BYTES = 8;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final OutputStream stream;
+    private final WritableByteChannel channel;
+    private int count;
+    private long drained;
+
+    private BinaryOutput(final OutputStream stream, final WritableByteChannel channel) {
+        this.stream = stream;
+        this.channel = channel;
+    }
+
+    /**
+     * Creates a writer to an output stream.
+     *
+     * @param stream the stream to write to
+     *
+     * @return the writer
+     */
+    static BinaryOutput to(final OutputStream stream) {
+        return new BinaryOutput(stream, null);
+    }
+
+    /**
+     * Creates a writer to a channel.
+     *
+     * @param channel the channel to write to
+     *
+     * @return the writer
+     */
+    static BinaryOutput to(final WritableByteChannel channel) {
+        return new BinaryOutput(null, channel);
+    }
+
+    /**
+     * Writes a single byte.
+     *
+     * @param value the byte to write, in the low eight bits
+     *
+     * @throws IOException if there is an error writing
+     */
+    void writeByte(final int value) throws IOException {
+        if (count == BUFFER_SIZE) {
+            drain();
+        }
+        buffer[count++] = (byte) value;
+    }
+
+    /**
+     * Writes a non-negative int using between one and five bytes.
+     *
+     * @param value the value to write
+     *
+     * @throws IOException if there is an error writing
+     */
+    void writeVarInt(final int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~VARINT_PAYLOAD) != 0) {
+            writeByte((remaining & VARINT_PAYLOAD) | VARINT_CONTINUES);
+            remaining >>>= VARINT_SHIFT;
+        }
+        writeByte(remaining);
+    }
+
+    /**
+     * Writes an int as four bytes, most significant first.
+     *
+     * @param value the value to write
+     *
+     * @throws IOException if there is an error writing
+     */
+    void writeInt(final int value) throws IOException {
+        for (int i = INT_BYTES - 1; i >= 0; i--) {
+            writeByte(value >>> (i * BYTE_SHIFT));
+        }
+    }
+
+    /**
+     * Writes a long as eight bytes, most significant first.
+     *
+     * @param value the value to write
+     *
+     * @throws IOException if there is an error writing
+     */
+    void writeLong(final long value) throws IOException {
+        for (int i = LONG_BYTES - 1; i >= 0; i--) {
+            writeByte((int) (value >>> (i * BYTE_SHIFT)));
+        }
+    }
+
+    /**
+     * Writes the bytes as-is.
+     *
+     * @param bytes the bytes to write
+     *
+     * @throws IOException if there is an error writing
+     */
+    void writeBytes(final byte[] bytes) throws IOException {
+        if (bytes.length > BUFFER_SIZE - count) {
+            drain();
+        }
+        if (bytes.length > BUFFER_SIZE) {
+            drain(bytes, bytes.length);
+        } else {
+            System.arraycopy(bytes, 0, buffer, count, bytes.length);
+            count += bytes.length;
+        }
+    }
+
+    /**
+     * Writes the string as its varint length followed by its UTF-8 bytes.
+     *
+     * @param value the string to write
+     *
+     * @throws IOException if there is an error writing
+     */
+    void writeString(final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length);
+        writeBytes(bytes);
+    }
+
+    /**
+     * The number of bytes written so far, including those still buffered.
+     *
+     * @return the position of the next byte to be written
+     */
+    long position() {
+        return drained + count;
+    }
+
+    /**
+     * Writes any buffered bytes to the stream or channel.
+     *
+     * @throws IOException if there is an error writing
+     */
+    void flush() throws IOException {
+        drain();
+        if (stream != null) {
+            stream.flush();
+        }
+    }
+
+    private void drain() throws IOException {
+        drain(buffer, count);
+        count = 0;
+    }
+
+    private void drain(final byte[] bytes, final int length) throws IOException {
+        drained += length;
+        if (stream != null) {
+            stream.write(bytes, 0, length);
+        } else {
+            final ByteBuffer byteBuffer = ByteBuffer.wrap(bytes, 0, length);
+            while (byteBuffer.hasRemaining()) {
+                channel.write(byteBuffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Builds a tree of nodes from a directory on the filesystem.
+ *
+ * <p>Each node is named after the file or directory it represents and holds its {@link Path}. Directories are read
+ * in parallel, each by its own fork/join task, and each task assembles the subtree for its directory directly, so no
+ * path lookups are made from the root as the tree grows. Symbolic links are not followed.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public final class FileTreeBuilder {
+
+    private static final DirectoryStream.Filter<Path> ALL = path -> true;
+
+    private FileTreeBuilder() {
+    }
+
+    /**
+     * Builds the tree for a directory using the common fork/join pool.
+     *
+     * @param root the directory at the root of the tree
+     *
+     * @return the root node of the tree
+     *
+     * @throws UncheckedIOException if the root does not exist or there is an error reading any directory
+     */
+    public static Node<Path> build(final Path root) {
+        return build(root, ALL, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Builds the tree for a directory, including only the entries accepted by the filter.
+     *
+     * <p>A directory that is not accepted is not read.</p>
+     *
+     * @param root   the directory at the root of the tree
+     * @param filter selects the entries of each directory to include
+     * @param pool   the pool in which to read the directories
+     *
+     * @return the root node of the tree
+     *
+     * @throws UncheckedIOException if the root does not exist or there is an error reading any directory
+     */
+    public static Node<Path> build(
+            final Path root,
+            final DirectoryStream.Filter<? super Path> filter,
+            final ForkJoinPool pool
+    ) {
+        if (Files.notExists(root, LinkOption.NOFOLLOW_LINKS)) {
+            throw new UncheckedIOException(new NoSuchFileException(root.toString()));
+        }
+        final NodeItem<Path> node = newNode(root, nameOf(root));
+        if (isDirectory(root)) {
+            pool.invoke(new DirectoryTask(root, node, filter));
+        }
+        return node;
+    }
+
+    private static NodeItem<Path> newNode(final Path path, final String name) {
+        return new NodeItem<>(path, name, null, Collections.emptySet());
+    }
+
+    private static String nameOf(final Path path) {
+        final Path fileName = path.getFileName();
+        if (fileName == null) {
+            return path.toString();
+        }
+        return fileName.toString();
+    }
+
+    private static boolean isDirectory(final Path path) {
+        return Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS);
+    }
+
+    /**
+     * Reads a directory into its node and forks a task for each of its subdirectories.
+     */
+    private static final class DirectoryTask extends RecursiveTask<NodeItem<Path>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Path directory;
+
+        private final transient NodeItem<Path> node;
+
+        private final transient DirectoryStream.Filter<? super Path> filter;
+
+        DirectoryTask(
+                final Path directory,
+                final NodeItem<Path> node,
+                final DirectoryStream.Filter<? super Path> filter
+        ) {
+            this.directory = directory;
+            this.node = node;
+            this.filter = filter;
+        }
+
+        @Override
+        protected NodeItem<Path> compute() {
+            final List<DirectoryTask> subdirectories = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, filter)) {
+                for (final Path entry : entries) {
+                    final NodeItem<Path> child = newNode(entry, nameOf(entry));
+                    if (isDirectory(entry)) {
+                        subdirectories.add(new DirectoryTask(entry, child, filter));
+                    } else {
+                        node.attachChild(child);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            for (final DirectoryTask subdirectory : ForkJoinTask.invokeAll(subdirectories)) {
+                node.attachChild(subdirectory.join());
+            }
+            return node;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An immutable tree in which structurally identical subtrees are stored once and shared, created by
+ * {@link Nodes#freeze(Node)}.
+ *
+ * <p>A shared node has more than one parent, but {@link Node#findParent()} returns only the first one it was given.
+ * Navigating down the tree, and streaming it, see every logical node as if it were stored separately.</p>
+ *
+ * @param <T> the type of data held in each node
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public final class FrozenTree<T> {
+
+    /**
+     * An estimate of the bytes used by each node: the node itself, its empty set of children and its entry in its
+     * parent's set of children, assuming compressed object references.
+     */
+    static final long ESTIMATED_NODE_BYTES = 144;
+
+    private final Node<T> root;
+
+    private final long nodeCount;
+
+    private final long uniqueNodeCount;
+
+    private FrozenTree(final Node<T> root, final long nodeCount, final long uniqueNodeCount) {
+        this.root = root;
+        this.nodeCount = nodeCount;
+        this.uniqueNodeCount = uniqueNodeCount;
+    }
+
+    /**
+     * Creates an immutable copy of the tree, sharing structurally identical subtrees.
+     *
+     * <p>Subtrees are identical when their nodes have equal names and equal data, and their children are identical.</p>
+     *
+     * @param source the root of the tree to copy
+     * @param <T>    the type of data held in each node
+     *
+     * @return the frozen tree
+     */
+    static <T> FrozenTree<T> freeze(final Node<T> source) {
+        final Map<Key<T>, ImmutableNodeItem<T>> interned = new HashMap<>();
+        final long[] created = new long[1];
+        final Frozen<T> frozen = new SubtreeReducer<T, Frozen<T>>((node, children) -> {
+            final Map<ImmutableNodeItem<T>, Integer> canonicalChildren = new HashMap<>();
+            long count = 1;
+            for (final Frozen<T> child : children) {
+                canonicalChildren.merge(child.node, 1, Integer::sum);
+                count += child.count;
+            }
+            final T data = node.findData()
+                               .orElse(null);
+            final Key<T> key = new Key<>(node.getName(), data, canonicalChildren);
+            ImmutableNodeItem<T> result = interned.get(key);
+            if (result == null) {
+                result = ImmutableNodeItem.newRoot(data, node.getName(), Collections.emptySet());
+                for (final Map.Entry<ImmutableNodeItem<T>, Integer> child : canonicalChildren.entrySet()) {
+                    attach(result, child.getKey());
+                    // identical siblings need distinct nodes
+                    for (int i = 1; i < child.getValue(); i++) {
+                        result.attachChild(copyOf(child.getKey()));
+                        created[0]++;
+                    }
+                }
+                interned.put(key, result);
+                created[0]++;
+            }
+            return new Frozen<>(result, count);
+        }, SubtreeReducer.DEFAULT_THRESHOLD).reduce(source);
+        return new FrozenTree<>(frozen.node, frozen.count, created[0]);
+    }
+
+    private static <T> ImmutableNodeItem<T> copyOf(final ImmutableNodeItem<T> node) {
+        final ImmutableNodeItem<T> copy = ImmutableNodeItem.newRoot(node.findData()
+                                                                        .orElse(null), node.getName(),
+                Collections.emptySet());
+        for (final Node<T> child : node.getChildren()) {
+            copy.shareChild((ImmutableNodeItem<T>) child);
+        }
+        return copy;
+    }
+
+    private static <T> void attach(final ImmutableNodeItem<T> parent, final ImmutableNodeItem<T> child) {
+        if (child.isRoot()) {
+            parent.attachChild(child);
+        } else {
+            parent.shareChild(child);
+        }
+    }
+
+    /**
+     * The root of the frozen tree.
+     *
+     * @return the root node
+     */
+    public Node<T> getRoot() {
+        return root;
+    }
+
+    /**
+     * The number of nodes in the tree, counting each use of a shared subtree separately.
+     *
+     * @return the number of nodes
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * The number of nodes actually stored.
+     *
+     * @return the number of unique nodes
+     */
+    public long getUniqueNodeCount() {
+        return uniqueNodeCount;
+    }
+
+    /**
+     * An estimate of the memory saved by sharing subtrees, compared with {@link Nodes#asImmutable(Node)}.
+     *
+     * @return the estimated number of bytes saved
+     */
+    public long getEstimatedBytesSaved() {
+        return (nodeCount - uniqueNodeCount) * ESTIMATED_NODE_BYTES;
+    }
+
+    @Override
+    public String toString() {
+        return "FrozenTree(nodes=" + nodeCount + ", unique=" + uniqueNodeCount + ")";
+    }
+
+    /**
+     * A frozen subtree and the number of logical nodes in it.
+     */
+    private static final class Frozen<T> {
+
+        private final ImmutableNodeItem<T> node;
+
+        private final long count;
+
+        Frozen(final ImmutableNodeItem<T> node, final long count) {
+            this.node = node;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Identifies a subtree by its name, its data and the identities of its already shared children, with the number of
+     * times each appears.
+     */
+    private static final class Key<T> {
+
+        private final String name;
+
+        private final T data;
+
+        private final Map<ImmutableNodeItem<T>, Integer> children;
+
+        private final int hash;
+
+        Key(final String name, final T data, final Map<ImmutableNodeItem<T>, Integer> children) {
+            this.name = name;
+            this.data = data;
+            this.children = children;
+            this.hash = Objects.hash(name, data, children);
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key<?> key = (Key<?>) other;
+            return hash == key.hash && Objects.equals(name, key.name) && Objects.equals(data, key.data)
+                    && children.equals(key.children);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -41,10 +41,9 @@ final class ImmutableNodeItem<T> extends NodeItem<T> {
     private static final String IMMUTABLE_OBJECT = "Immutable object";
 
     private ImmutableNodeItem(
-            final T data, final String name, final Node<T> parent, final Set<Node<T>> children
+            final T data, final String name, final Set<Node<T>> children
                              ) {
         super(data, name, null, children);
-        forceParent(parent);
     }
 
     /**
@@ -60,24 +59,7 @@ final class ImmutableNodeItem<T> extends NodeItem<T> {
     static <T> ImmutableNodeItem<T> newRoot(
             final T data, final String name, final Set<Node<T>> children
                                            ) {
-        return new ImmutableNodeItem<>(data, name, null, children);
-    }
-
-    /**
-     * Creates a new immutable subtree from this child.
-     *
-     * @param data     the data of the node
-     * @param name     the name of the node
-     * @param parent   the mutable parent of the node
-     * @param children the children of the node
-     * @param <T>      the type of the data in the node
-     *
-     * @return the new immutable node
-     */
-    static <T> ImmutableNodeItem<T> newChild(
-            final T data, final String name, final Node<T> parent, final Set<Node<T>> children
-                                            ) {
-        return new ImmutableNodeItem<>(data, name, parent, children);
+        return new ImmutableNodeItem<>(data, name, children);
     }
 
     @Override
@@ -0,0 +1,348 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * Limits the number of children held in memory by nodes created with
+ * {@link Nodes#lazyRoot(Object, String, ChildLoader, LazyNodeCache)}.
+ *
+ * <p>Each node that has loaded its children is charged the total weight of those children. When the total for all
+ * the nodes sharing the cache exceeds its budget, the children of the least recently used nodes are dropped, along
+ * with anything loaded beneath them, and are loaded again when they are next needed. Nodes taken from an evicted
+ * subtree are left detached from the tree. The node that has just loaded its children, and its ancestors, are never
+ * chosen by that load, so the total may stay over the budget while nothing else can be evicted.</p>
+ *
+ * <p>A node is never evicted once it, or any of its descendants, has been changed through {@link Node#addChild(Node)},
+ * {@link Node#removeChild(Node)}, {@link Node#setParent(Node)}, {@link Node#setName(String)} or
+ * {@link Node#setData(Object)}, as reloading it would lose the change. Changes made directly to the set returned by
+ * {@link Node#getChildren()} are not detected.</p>
+ *
+ * <p>A cache may be shared by several trees and used from several threads. A node chosen for eviction by a load
+ * elsewhere has its set of children replaced rather than cleared, so a set already returned by
+ * {@link Node#getChildren()} is never changed by an eviction. A node that is changed after being chosen, but before
+ * its children are dropped, is kept.</p>
+ *
+ * @param <T> the type of data held in each node
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public final class LazyNodeCache<T> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final long maxWeight;
+
+    private final ToLongFunction<Node<T>> weigher;
+
+    private final Map<LazyNodeItem<T>, Entry<T>> evictable = new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true);
+
+    private final Map<LazyNodeItem<T>, Entry<T>> pinned = new HashMap<>();
+
+    private final Map<LazyNodeItem<T>, Entry<T>> evicting = new HashMap<>();
+
+    private long weight;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    private LazyNodeCache(final long maxWeight, final ToLongFunction<Node<T>> weigher) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("Maximum weight must not be negative: " + maxWeight);
+        }
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Creates a cache that holds at most the given number of loaded nodes.
+     *
+     * @param maxNodes the maximum number of loaded nodes to keep
+     * @param <T>      the type of data held in each node
+     *
+     * @return the cache
+     */
+    public static <T> LazyNodeCache<T> maxNodes(final long maxNodes) {
+        return new LazyNodeCache<>(maxNodes, node -> 1L);
+    }
+
+    /**
+     * Creates a cache that holds loaded nodes up to a total weight, such as an estimate of their size in bytes.
+     *
+     * @param maxWeight the maximum total weight of the loaded nodes to keep
+     * @param weigher   the weight of each loaded node, which must not change while it is in the cache
+     * @param <T>       the type of data held in each node
+     *
+     * @return the cache
+     */
+    public static <T> LazyNodeCache<T> maxWeight(final long maxWeight, final ToLongFunction<Node<T>> weigher) {
+        return new LazyNodeCache<>(maxWeight, weigher);
+    }
+
+    /**
+     * The number of times a node's children were needed and were already loaded.
+     *
+     * @return the hit count
+     */
+    public synchronized long hitCount() {
+        return hits;
+    }
+
+    /**
+     * The number of times a node's children were needed and had to be loaded.
+     *
+     * @return the miss count
+     */
+    public synchronized long missCount() {
+        return misses;
+    }
+
+    /**
+     * The number of nodes whose children have been dropped to stay within the budget.
+     *
+     * @return the eviction count
+     */
+    public synchronized long evictionCount() {
+        return evictions;
+    }
+
+    /**
+     * The total weight of the loaded nodes currently held.
+     *
+     * @return the weight
+     */
+    public synchronized long weight() {
+        return weight;
+    }
+
+    /**
+     * Weighs a node that has just been loaded.
+     *
+     * @param node the node
+     *
+     * @return the weight of the node
+     */
+    long weigh(final Node<T> node) {
+        return weigher.applyAsLong(node);
+    }
+
+    /**
+     * Records that a loaded node's children were needed again.
+     *
+     * @param node the node
+     */
+    synchronized void hit(final LazyNodeItem<T> node) {
+        hits++;
+        evictable.get(node);
+    }
+
+    /**
+     * Records that a node has loaded its children and selects the nodes to evict to stay within the budget.
+     *
+     * <p>The caller must unload the returned nodes once it no longer holds the lock on the loaded node.</p>
+     *
+     * @param node        the node that has loaded its children
+     * @param childWeight the total weight of the children
+     * @param modifying   whether the children were loaded in order to change them
+     *
+     * @return the nodes to unload
+     */
+    synchronized List<LazyNodeItem<T>> loaded(
+            final LazyNodeItem<T> node,
+            final long childWeight,
+            final boolean modifying
+    ) {
+        misses++;
+        final Optional<Entry<T>> stale = find(node);
+        stale.ifPresent(this::discard);
+        final Entry<T> parent = node.findParent()
+                                    .flatMap(this::find)
+                                    .orElse(null);
+        final Entry<T> entry = new Entry<>(node, childWeight, parent);
+        if (parent != null) {
+            parent.children.add(entry);
+        }
+        evictable.put(node, entry);
+        weight += childWeight;
+        if (modifying) {
+            pin(node);
+        }
+        return selectVictims(entry);
+    }
+
+    /**
+     * Prevents a node and its ancestors from being evicted, including any chosen for eviction but not yet released.
+     *
+     * @param node the node whose children have been changed
+     */
+    synchronized void pin(final Node<T> node) {
+        Node<T> current = node;
+        while (current != null && !pinned.containsKey(current)) {
+            final Entry<T> chosen = evicting.remove(current);
+            if (chosen != null) {
+                restore(chosen);
+            }
+            final Entry<T> entry = evictable.remove(current);
+            if (entry != null) {
+                pinned.put(entry.node, entry);
+            }
+            current = current.findParent()
+                             .orElse(null);
+        }
+    }
+
+    /**
+     * Confirms the eviction of a node chosen by {@link #loaded(LazyNodeItem, long, boolean)}.
+     *
+     * <p>Called by the node, while holding its own lock, before it drops its children.</p>
+     *
+     * @param node the node chosen for eviction
+     *
+     * @return true if the node should drop its children, or false if it has since been pinned
+     */
+    synchronized boolean release(final LazyNodeItem<T> node) {
+        final Entry<T> entry = evicting.remove(node);
+        if (entry == null) {
+            return false;
+        }
+        final Deque<Entry<T>> pending = new ArrayDeque<>();
+        pending.push(entry);
+        while (!pending.isEmpty()) {
+            final Entry<T> current = pending.pop();
+            evictions++;
+            current.children.forEach(pending::push);
+        }
+        return true;
+    }
+
+    private void restore(final Entry<T> entry) {
+        if (entry.parent != null) {
+            entry.parent.children.add(entry);
+        }
+        final Deque<Entry<T>> pending = new ArrayDeque<>();
+        pending.push(entry);
+        while (!pending.isEmpty()) {
+            final Entry<T> current = pending.pop();
+            evictable.put(current.node, current);
+            weight += current.weight;
+            current.children.forEach(pending::push);
+        }
+    }
+
+    private Optional<Entry<T>> find(final Node<T> node) {
+        final Entry<T> entry = evictable.get(node);
+        if (entry != null) {
+            return Optional.of(entry);
+        }
+        return Optional.ofNullable(pinned.get(node));
+    }
+
+    private List<LazyNodeItem<T>> selectVictims(final Entry<T> loaded) {
+        if (weight <= maxWeight) {
+            return Collections.emptyList();
+        }
+        // evicting an ancestor would also drop the node just loaded
+        final Set<Entry<T>> kept = new HashSet<>();
+        for (Entry<T> entry = loaded; entry != null; entry = entry.parent) {
+            kept.add(entry);
+        }
+        final List<LazyNodeItem<T>> victims = new ArrayList<>();
+        while (weight > maxWeight) {
+            final Optional<Entry<T>> eldest = eldestExcept(kept);
+            if (!eldest.isPresent()) {
+                break;
+            }
+            discard(eldest.get());
+            evicting.put(eldest.get().node, eldest.get());
+            victims.add(eldest.get().node);
+        }
+        return victims;
+    }
+
+    private Optional<Entry<T>> eldestExcept(final Set<Entry<T>> kept) {
+        final Iterator<Entry<T>> iterator = evictable.values()
+                                                     .iterator();
+        while (iterator.hasNext()) {
+            final Entry<T> entry = iterator.next();
+            if (!kept.contains(entry)) {
+                return Optional.of(entry);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void discard(final Entry<T> entry) {
+        if (entry.parent != null) {
+            entry.parent.children.remove(entry);
+        }
+        final Deque<Entry<T>> pending = new ArrayDeque<>();
+        pending.push(entry);
+        while (!pending.isEmpty()) {
+            final Entry<T> current = pending.pop();
+            evictable.remove(current.node);
+            pinned.remove(current.node);
+            weight -= current.weight;
+            current.children.forEach(pending::push);
+        }
+    }
+
+    /**
+     * A loaded node and the loaded nodes beneath it.
+     *
+     * @param <T> the type of data held in each node
+     */
+    private static final class Entry<T> {
+
+        private final LazyNodeItem<T> node;
+
+        private final long weight;
+
+        private final Entry<T> parent;
+
+        private final Set<Entry<T>> children = new HashSet<>();
+
+        Entry(final LazyNodeItem<T> node, final long weight, final Entry<T> parent) {
+            this.node = node;
+            this.weight = weight;
+            this.parent = parent;
+        }
+    }
+}
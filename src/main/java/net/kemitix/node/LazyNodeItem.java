@@ -0,0 +1,268 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.node;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A node whose children are loaded by a {@link ChildLoader} when they are first needed.
+ *
+ * <p>Children are loaded at most once, even when first requested by several threads at the same time. Once loaded
+ * they may be modified in the same way as those of any other node.</p>
+ *
+ * <p>When a {@link LazyNodeCache} is given, loaded children may later be dropped again to keep within its budget, and
+ * will be reloaded when next needed. Dropping the children replaces the node's set of children, leaving any set already
+ * returned by {@link #getChildren()} unchanged, as the cache may choose the node while another thread is reading it.
+ * Adding and removing children first loads and pins them, then holds the node's lock, so that they cannot interleave
+ * with the children being dropped; any other nodes dropped to make room for the children are dropped before the lock
+ * is taken.</p>
+ *
+ * @param <T> the type of data stored in each node
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+class LazyNodeItem<T> extends NodeItem<T> {
+
+    private final ChildLoader<T> loader;
+
+    private final LazyNodeCache<T> cache;
+
+    private final LazyChildren<T> lazyChildren;
+
+    private volatile boolean loaded;
+
+    /**
+     * Constructor.
+     *
+     * @param data   the data of the node
+     * @param name   the name of the node
+     * @param loader the loader for the node's children
+     * @param cache  the cache limiting the loaded children, or null to keep them all
+     */
+    LazyNodeItem(
+            final T data,
+            final String name,
+            final ChildLoader<T> loader,
+            final LazyNodeCache<T> cache
+    ) {
+        this(data, name, loader, cache, new LazyChildren<>());
+    }
+
+    private LazyNodeItem(
+            final T data,
+            final String name,
+            final ChildLoader<T> loader,
+            final LazyNodeCache<T> cache,
+            final LazyChildren<T> lazyChildren
+    ) {
+        super(data, name, null, null, lazyChildren);
+        this.loader = loader;
+        this.cache = cache;
+        this.lazyChildren = lazyChildren;
+    }
+
+    private void ensureLoaded() {
+        ensureLoaded(false);
+    }
+
+    private void ensureLoaded(final boolean modifying) {
+        if (loaded) {
+            if (cache != null) {
+                cache.hit(this);
+                if (modifying) {
+                    cache.pin(this);
+                }
+            }
+            return;
+        }
+        List<LazyNodeItem<T>> victims = Collections.emptyList();
+        synchronized (this) {
+            if (!loaded) {
+                long weight = 0;
+                for (final Map.Entry<String, T> entry : loader.loadChildren(this)
+                                                              .entrySet()) {
+                    final LazyNodeItem<T> child = new LazyNodeItem<>(entry.getValue(), entry.getKey(), loader, cache);
+                    attachChild(child);
+                    if (cache != null) {
+                        weight += cache.weigh(child);
+                    }
+                }
+                loaded = true;
+                if (cache != null) {
+                    victims = cache.loaded(this, weight, modifying);
+                }
+            }
+        }
+        victims.forEach(LazyNodeItem::unload);
+    }
+
+    /**
+     * Drops the loaded children, detaching them from this node, so that they are loaded again when next needed.
+     *
+     * <p>Nothing is dropped if the node has been changed since the cache chose to evict it.</p>
+     */
+    synchronized void unload() {
+        if (!cache.release(this)) {
+            return;
+        }
+        loaded = false;
+        for (final Node<T> child : lazyChildren.replace()) {
+            if (child instanceof NodeItem) {
+                ((NodeItem<T>) child).forceParent(null);
+            }
+        }
+        invalidateAggregates();
+    }
+
+    @Override
+    boolean recordsNameRange() {
+        // the cache may drop the children from another thread
+        return false;
+    }
+
+    private void pin(final Node<T> node) {
+        if (cache != null) {
+            cache.pin(node);
+        }
+    }
+
+    @Override
+    public Set<Node<T>> getChildren() {
+        while (true) {
+            ensureLoaded();
+            // unload clears loaded before replacing the set, so a set still loaded after being taken holds children
+            final Set<Node<T>> children = lazyChildren.current();
+            if (loaded) {
+                return children;
+            }
+        }
+    }
+
+    @Override
+    public void addChild(final Node<T> child) {
+        // loading may unload other nodes, each under its own lock, so is done before taking this node's lock
+        ensureLoaded(true);
+        synchronized (this) {
+            super.addChild(child);
+        }
+    }
+
+    @Override
+    public Optional<Node<T>> findChild(final T child) {
+        ensureLoaded();
+        return super.findChild(child);
+    }
+
+    @Override
+    public Optional<Node<T>> findChildByName(final String named) {
+        ensureLoaded();
+        return super.findChildByName(named);
+    }
+
+    @Override
+    public void removeChild(final Node<T> node) {
+        ensureLoaded(true);
+        synchronized (this) {
+            super.removeChild(node);
+        }
+    }
+
+    @Override
+    public void setParent(final Node<T> parent) {
+        findParent().ifPresent(this::pin);
+        super.setParent(parent);
+    }
+
+    @Override
+    public void setName(final String name) {
+        findParent().ifPresent(this::pin);
+        super.setName(name);
+    }
+
+    @Override
+    public void setData(final T data) {
+        findParent().ifPresent(this::pin);
+        super.setData(data);
+    }
+
+    /**
+     * The children of a lazy node, held in a set that is replaced, rather than cleared, when they are dropped.
+     *
+     * @param <T> the type of data stored in each node
+     */
+    private static final class LazyChildren<T> extends AbstractSet<Node<T>> {
+
+        private volatile Set<Node<T>> children = new HashSet<>();
+
+        /**
+         * The current set of children.
+         *
+         * @return the set
+         */
+        Set<Node<T>> current() {
+            return children;
+        }
+
+        /**
+         * Replaces the set of children with an empty one.
+         *
+         * @return the previous set, which is no longer changed
+         */
+        Set<Node<T>> replace() {
+            final Set<Node<T>> previous = children;
+            children = new HashSet<>();
+            return previous;
+        }
+
+        @Override
+        public boolean add(final Node<T> node) {
+            return children.add(node);
+        }
+
+        @Override
+        public boolean remove(final Object node) {
+            return children.remove(node);
+        }
+
+        @Override
+        public boolean contains(final Object node) {
+            return children.contains(node);
+        }
+
+        @Override
+        public Iterator<Node<T>> iterator() {
+            return children.iterator();
+        }
+
+        @Override
+        public int size() {
+            return children.size();
+        }
+    }
+}
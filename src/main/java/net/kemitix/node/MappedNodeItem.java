@@ -0,0 +1,398 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.node;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * A read-only node within a tree mapped from a file written by an indexed {@link NodeSerializer}.
+ *
+ * <p>Nothing is decoded when the node is created. Its name, data and children are each decoded from the buffer the
+ * first time they are requested, and then retained.</p>
+ *
+ * @param <T> the type of data stored in each node
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+final class MappedNodeItem<T> implements Node<T> {
+
+    /**
+     * The magic bytes, {@code NIDX}, that end an indexed tree.
+     */
+    static final int INDEX_MAGIC = 0x4e494458;
+
+    private static final String IMMUTABLE_OBJECT = "Immutable object";
+    private static final int FOOTER_SIZE = 20;
+    private static final int NODE_OFFSET_SIZE = 8;
+    private static final int SUBTREE_SIZE_SIZE = 4;
+    private static final int NAME_OFFSET_SIZE = 8;
+    private static final Object UNDECODED = new Object();
+
+    private final Tree<T> tree;
+    private final int index;
+    private final Node<T> parent;
+    private volatile String name;
+    private volatile Object data = UNDECODED;
+    private volatile Set<Node<T>> children;
+
+    private MappedNodeItem(final Tree<T> tree, final int index, final Node<T> parent) {
+        this.tree = tree;
+        this.index = index;
+        this.parent = parent;
+    }
+
+    /**
+     * Creates the root node of a mapped tree.
+     *
+     * @param buffer the contents of the file, positioned after the header
+     * @param codec  the codec for node data
+     * @param <T>    the type of data stored in each node
+     *
+     * @return the root node
+     *
+     * @throws IOException if the buffer does not end with a valid index
+     */
+    static <T> MappedNodeItem<T> root(final ByteBuffer buffer, final NodeDataCodec<T> codec) throws IOException {
+        final int limit = buffer.limit();
+        if (limit - buffer.position() < FOOTER_SIZE || buffer.getInt(limit - SUBTREE_SIZE_SIZE) != INDEX_MAGIC) {
+            throw new IOException("Tree was written without an index");
+        }
+        final long indexOffset = buffer.getLong(limit - FOOTER_SIZE);
+        final int nodeCount = buffer.getInt(limit - FOOTER_SIZE + NODE_OFFSET_SIZE);
+        final int nameCount = buffer.getInt(limit - FOOTER_SIZE + NODE_OFFSET_SIZE + SUBTREE_SIZE_SIZE);
+        final long indexSize = (long) nodeCount * (NODE_OFFSET_SIZE + SUBTREE_SIZE_SIZE)
+                + (long) nameCount * NAME_OFFSET_SIZE;
+        if (nodeCount < 1 || nameCount < 0 || indexOffset + indexSize + FOOTER_SIZE != limit) {
+            throw new IOException("Corrupt index");
+        }
+        return new MappedNodeItem<>(new Tree<>(buffer, codec, (int) indexOffset, nodeCount, nameCount), 0, null);
+    }
+
+    @Override
+    public String getName() {
+        String result = name;
+        if (result == null) {
+            final Cursor cursor = tree.record(index);
+            final int reference = cursor.readVarInt();
+            if (reference == NodeSerializer.UNNAMED) {
+                result = "";
+            } else if (reference == NodeSerializer.NEW_NAME) {
+                result = cursor.readString();
+            } else {
+                result = tree.name(reference - NodeSerializer.FIRST_NAME_INDEX);
+            }
+            name = result;
+        }
+        return result;
+    }
+
+    @Override
+    public void setName(final String name) {
+        throw new UnsupportedOperationException(IMMUTABLE_OBJECT);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Optional<T> findData() {
+        Object result = data;
+        if (result == UNDECODED) {
+            final Cursor cursor = dataCursor();
+            final int length = cursor.readVarInt();
+            if (length == NodeSerializer.NO_DATA) {
+                result = null;
+            } else {
+                result = tree.decode(cursor.position, length - 1);
+            }
+            data = result;
+        }
+        return Optional.ofNullable((T) result);
+    }
+
+    @Override
+    public void setData(final T data) {
+        throw new UnsupportedOperationException(IMMUTABLE_OBJECT);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        final Object decoded = data;
+        if (decoded == UNDECODED) {
+            return dataCursor().readVarInt() == NodeSerializer.NO_DATA;
+        }
+        return decoded == null;
+    }
+
+    private Cursor dataCursor() {
+        final Cursor cursor = tree.record(index);
+        if (cursor.readVarInt() == NodeSerializer.NEW_NAME) {
+            cursor.skip(cursor.readVarInt());
+        }
+        return cursor;
+    }
+
+    @Override
+    public boolean isRoot() {
+        return parent == null;
+    }
+
+    @Override
+    public Optional<Node<T>> findParent() {
+        return Optional.ofNullable(parent);
+    }
+
+    @Override
+    public void setParent(final Node<T> parent) {
+        throw new UnsupportedOperationException(IMMUTABLE_OBJECT);
+    }
+
+    @Override
+    public Set<Node<T>> getChildren() {
+        Set<Node<T>> result = children;
+        if (result == null) {
+            synchronized (this) {
+                result = children;
+                if (result == null) {
+                    final Set<Node<T>> decoded = new LinkedHashSet<>();
+                    final int end = index + tree.subtreeSize(index);
+                    for (int child = index + 1; child < end; child += tree.subtreeSize(child)) {
+                        decoded.add(new MappedNodeItem<>(tree, child, this));
+                    }
+                    result = Collections.unmodifiableSet(decoded);
+                    children = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void addChild(final Node<T> child) {
+        throw new UnsupportedOperationException(IMMUTABLE_OBJECT);
+    }
+
+    @Override
+    public Node<T> createChild(final T child) {
+        throw new UnsupportedOperationException(IMMUTABLE_OBJECT);
+    }
+
+    @Override
+    public Node<T> createChild(final T child, final String name) {
+        throw new UnsupportedOperationException(IMMUTABLE_OBJECT);
+    }
+
+    @Override
+    public void createDescendantLine(final List<T> descendants) {
+        throw new UnsupportedOperationException(IMMUTABLE_OBJECT);
+    }
+
+    @Override
+    public Optional<Node<T>> findChild(final T child) {
+        for (final Node<T> node : getChildren()) {
+            if (child.equals(node.findData()
+                                 .orElse(null))) {
+                return Optional.of(node);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean isDescendantOf(final Node<T> node) {
+        for (Node<T> ancestor = parent; ancestor != null; ancestor = ancestor.findParent()
+                                                                              .orElse(null)) {
+            if (ancestor.equals(node)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Optional<Node<T>> findInPath(final List<T> path) {
+        if (path.isEmpty()) {
+            return Optional.empty();
+        }
+        Node<T> node = this;
+        for (final T step : path) {
+            final Optional<Node<T>> child = node.findChild(step);
+            if (!child.isPresent()) {
+                return Optional.empty();
+            }
+            node = child.get();
+        }
+        return Optional.of(node);
+    }
+
+    @Override
+    public void insertInPath(final Node<T> node, final String... path) {
+        throw new UnsupportedOperationException(IMMUTABLE_OBJECT);
+    }
+
+    @Override
+    public Optional<Node<T>> findChildByName(final String named) {
+        for (final Node<T> node : getChildren()) {
+            if (node.getName()
+                    .equals(named)) {
+                return Optional.of(node);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean isNamed() {
+        return !getName().isEmpty();
+    }
+
+    @Override
+    public void removeChild(final Node<T> node) {
+        throw new UnsupportedOperationException(IMMUTABLE_OBJECT);
+    }
+
+    @Override
+    public void removeParent() {
+        throw new UnsupportedOperationException(IMMUTABLE_OBJECT);
+    }
+
+    @Override
+    public Stream<Node<T>> stream() {
+        return Stream.concat(Stream.of(this), getChildren().stream()
+                                                           .flatMap(Node::stream));
+    }
+
+    @Override
+    public Stream<Node<T>> parentStream() {
+        return findParent().map(node -> Stream.concat(Stream.of(node), node.parentStream()))
+                           .orElseGet(Stream::empty);
+    }
+
+    /**
+     * The mapped file and the location of its index, shared by every node in the tree.
+     *
+     * @param <T> the type of data stored in each node
+     */
+    private static final class Tree<T> {
+
+        private final ByteBuffer buffer;
+        private final NodeDataCodec<T> codec;
+        private final int nodeOffsets;
+        private final int subtreeSizes;
+        private final int nameOffsets;
+        private final String[] names;
+
+        Tree(
+                final ByteBuffer buffer,
+                final NodeDataCodec<T> codec,
+                final int indexOffset,
+                final int nodeCount,
+                final int nameCount
+        ) {
+            this.buffer = buffer;
+            this.codec = codec;
+            this.nodeOffsets = indexOffset;
+            this.subtreeSizes = nodeOffsets + nodeCount * NODE_OFFSET_SIZE;
+            this.nameOffsets = subtreeSizes + nodeCount * SUBTREE_SIZE_SIZE;
+            this.names = new String[nameCount];
+        }
+
+        Cursor record(final int node) {
+            return new Cursor(buffer, (int) buffer.getLong(nodeOffsets + node * NODE_OFFSET_SIZE));
+        }
+
+        int subtreeSize(final int node) {
+            return buffer.getInt(subtreeSizes + node * SUBTREE_SIZE_SIZE);
+        }
+
+        String name(final int nameIndex) {
+            // Strings are safely published, so racing to decode the same name is harmless
+            String result = names[nameIndex];
+            if (result == null) {
+                result = new Cursor(buffer, (int) buffer.getLong(nameOffsets + nameIndex * NAME_OFFSET_SIZE))
+                        .readString();
+                names[nameIndex] = result;
+            }
+            return result;
+        }
+
+        T decode(final int offset, final int length) {
+            final ByteBuffer view = buffer.duplicate();
+            ((Buffer) view).limit(offset + length);
+            ((Buffer) view).position(offset);
+            return codec.decode(view.slice());
+        }
+    }
+
+    /**
+     * Reads varints from an absolute position in the buffer, leaving the buffer's own position untouched so that
+     * the buffer may be shared between threads.
+     */
+    private static final class Cursor {
+
+        private static final int BYTE_MASK = 0xff;
+        private static final int VARINT_PAYLOAD = 0x7f;
+        private static final int VARINT_CONTINUES = 0x80;
+        private static final int VARINT_SHIFT = 7;
+
+        private final ByteBuffer buffer;
+        private int position;
+
+        Cursor(final ByteBuffer buffer, final int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            int next;
+            do {
+                next = buffer.get(position++) & BYTE_MASK;
+                value |= (next & VARINT_PAYLOAD) << shift;
+                shift += VARINT_SHIFT;
+            } while ((next & VARINT_CONTINUES) != 0);
+            return value;
+        }
+
+        String readString() {
+            final int length = readVarInt();
+            final byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = buffer.get(position + i);
+            }
+            position += length;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        void skip(final int length) {
+            position += length;
+        }
+    }
+}
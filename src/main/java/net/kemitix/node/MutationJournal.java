@@ -0,0 +1,477 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Records the changes made to a tree as operations keyed by the path of names to each node, so that they can be
+ * replayed on replicas of the tree.
+ *
+ * <p>Additions, removals, moves, renames and changes of data are recorded, as described under {@link NodeEvents}. A
+ * node added with descendants is recorded with all of them. A node moved into or out of the tree is recorded as added
+ * or removed. As nodes are found by name, every changed node below the root of the tree must be named, and its name
+ * must be unique among its siblings. A change to an unnamed node does not interrupt the change itself; it is recorded
+ * as a marker that stops the journal from being {@link #isReplayable() replayed}.</p>
+ *
+ * <p>A journal can be shipped to another process with {@link #write(OutputStream, NodeDataCodec)} and
+ * {@link #read(InputStream, NodeDataCodec)}, then {@link #apply(Node) applied} to a replica there.</p>
+ *
+ * @param <T> the type of data held in each node
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public final class MutationJournal<T> {
+
+    private static final byte[] MAGIC = {'J', 'R', 'N', 'L'};
+    private static final int VERSION = 1;
+    private static final String UNNAMED_MESSAGE = "Cannot journal a change to an unnamed node";
+
+    private final Node<T> root;
+
+    private final List<Operation<T>> operations = new ArrayList<>();
+
+    private NodeEvents.Subscription subscription;
+
+    private MutationJournal(final Node<T> root) {
+        this.root = root;
+    }
+
+    /**
+     * Starts recording the changes made to the tree.
+     *
+     * @param root the root of the tree, which must have been created by {@link Nodes}
+     * @param <T>  the type of data held in each node
+     *
+     * @return the journal
+     *
+     * @throws IllegalArgumentException if the node does not support listeners
+     */
+    public static <T> MutationJournal<T> record(final Node<T> root) {
+        final MutationJournal<T> journal = new MutationJournal<>(root);
+        journal.subscription = NodeEvents.subscribeImmediately(root, journal::recordAll);
+        return journal;
+    }
+
+    /**
+     * Reads a journal written by {@link #write(OutputStream, NodeDataCodec)}.
+     *
+     * <p>The journal is not recording.</p>
+     *
+     * @param in    the stream to read from
+     * @param codec decodes the data of each node
+     * @param <T>   the type of data held in each node
+     *
+     * @return the journal
+     *
+     * @throws IOException if there is an error reading the stream or it does not contain a journal
+     */
+    public static <T> MutationJournal<T> read(final InputStream in, final NodeDataCodec<T> codec) throws IOException {
+        final BinaryInput input = BinaryInput.from(in);
+        for (final byte magic : MAGIC) {
+            if (input.readByte() != magic) {
+                throw new IOException("Not a mutation journal");
+            }
+        }
+        final int version = input.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported format version: " + version);
+        }
+        final MutationJournal<T> journal = new MutationJournal<>(null);
+        final int count = input.readVarInt();
+        for (int i = 0; i < count; i++) {
+            journal.operations.add(Operation.read(input, codec));
+        }
+        return journal;
+    }
+
+    /**
+     * Stops recording changes. Those already recorded are kept.
+     */
+    public synchronized void stop() {
+        if (subscription != null) {
+            subscription.cancel();
+            subscription = null;
+        }
+    }
+
+    /**
+     * The number of operations recorded.
+     *
+     * @return the number of operations
+     */
+    public synchronized int size() {
+        return operations.size();
+    }
+
+    /**
+     * Whether the recorded operations can be replayed, which they cannot if any of them changed an unnamed node.
+     *
+     * @return true if the journal can be applied to a replica
+     */
+    public synchronized boolean isReplayable() {
+        return operations.stream()
+                         .noneMatch(operation -> operation.type == OperationType.UNNAMED);
+    }
+
+    /**
+     * Discards the operations recorded so far, such as once they have been shipped to the replicas.
+     */
+    public synchronized void clear() {
+        operations.clear();
+    }
+
+    /**
+     * Replays the recorded operations on a replica of the tree, as a single {@link NodeEvents#batch(Runnable)}.
+     *
+     * @param replica the root of the replica, which must match the tree as it was before the operations were recorded
+     *
+     * @throws NodeException if the journal is not {@link #isReplayable() replayable}, leaving the replica unchanged, or
+     *                       if the replica does not contain a node that an operation refers to
+     */
+    public void apply(final Node<T> replica) {
+        final List<Operation<T>> pending;
+        synchronized (this) {
+            if (!isReplayable()) {
+                throw new NodeException(UNNAMED_MESSAGE);
+            }
+            pending = new ArrayList<>(operations);
+        }
+        NodeEvents.batch(() -> pending.forEach(operation -> operation.apply(replica)));
+    }
+
+    /**
+     * Writes the recorded operations to the stream.
+     *
+     * @param out   the stream to write to
+     * @param codec encodes the data of each node
+     *
+     * @throws IOException if there is an error writing
+     */
+    public synchronized void write(final OutputStream out, final NodeDataCodec<T> codec) throws IOException {
+        final BinaryOutput output = BinaryOutput.to(out);
+        for (final byte magic : MAGIC) {
+            output.writeByte(magic);
+        }
+        output.writeByte(VERSION);
+        output.writeVarInt(operations.size());
+        for (final Operation<T> operation : operations) {
+            operation.write(output, codec);
+        }
+        output.flush();
+    }
+
+    private synchronized void recordAll(final List<NodeEvent<T>> events) {
+        events.forEach(this::record);
+    }
+
+    private void record(final NodeEvent<T> event) {
+        // the tree has already changed, so throwing back into the mutation would only hide the rest of the batch
+        try {
+            recordChange(event);
+        } catch (NodeException e) {
+            operations.add(new Operation<>(OperationType.UNNAMED, Collections.emptyList(), null, null, null));
+        }
+    }
+
+    private void recordChange(final NodeEvent<T> event) {
+        final Node<T> node = event.getNode();
+        switch (event.getType()) {
+            case ADDED:
+                recordAdded(node, pathOf(event.findParent()));
+                break;
+            case REMOVED:
+                recordRemoved(pathOf(event.findOldParent()), node.getName());
+                break;
+            case MOVED:
+                recordMoved(node, pathOf(event.findOldParent()), pathOf(event.findParent()));
+                break;
+            case RENAMED:
+                recordRenamed(node, event.getOldName());
+                break;
+            default:
+                operations.add(new Operation<>(OperationType.SET_DATA, pathOf(Optional.of(node)), null,
+                        node.findData()
+                            .orElse(null), null));
+                break;
+        }
+    }
+
+    private void recordRenamed(final Node<T> node, final String oldName) {
+        if (node != root) {
+            operations.add(new Operation<>(OperationType.RENAME, childPath(pathOf(node.findParent()), oldName),
+                    requireName(node.getName()), null, null));
+        }
+    }
+
+    private void recordMoved(final Node<T> node, final List<String> oldParent, final List<String> newParent) {
+        if (oldParent == null) {
+            recordAdded(node, newParent);
+        } else if (newParent == null) {
+            recordRemoved(oldParent, node.getName());
+        } else {
+            operations.add(new Operation<>(OperationType.MOVE, childPath(oldParent, node.getName()), null, null,
+                    newParent));
+        }
+    }
+
+    private void recordRemoved(final List<String> parentPath, final String name) {
+        if (parentPath != null) {
+            operations.add(new Operation<>(OperationType.REMOVE, childPath(parentPath, name), null, null, null));
+        }
+    }
+
+    private void recordAdded(final Node<T> node, final List<String> parentPath) {
+        if (parentPath == null) {
+            return;
+        }
+        final Deque<Iterator<Node<T>>> siblings = new ArrayDeque<>();
+        final Deque<List<String>> paths = new ArrayDeque<>();
+        addOperation(node, parentPath, siblings, paths);
+        while (!siblings.isEmpty()) {
+            final Iterator<Node<T>> next = siblings.peek();
+            if (next.hasNext()) {
+                addOperation(next.next(), paths.peek(), siblings, paths);
+            } else {
+                siblings.pop();
+                paths.pop();
+            }
+        }
+    }
+
+    private void addOperation(
+            final Node<T> node,
+            final List<String> parentPath,
+            final Deque<Iterator<Node<T>>> siblings,
+            final Deque<List<String>> paths
+    ) {
+        final String name = requireName(node.getName());
+        operations.add(new Operation<>(OperationType.ADD, parentPath, name, node.findData()
+                                                                                  .orElse(null), null));
+        if (!node.getChildren()
+                 .isEmpty()) {
+            siblings.push(node.getChildren()
+                              .iterator());
+            paths.push(childPath(parentPath, name));
+        }
+    }
+
+    /**
+     * The names from the root of the journal to the node.
+     *
+     * @param node the node
+     *
+     * @return the path, or null if the node is not within the tree
+     */
+    private List<String> pathOf(final Optional<Node<T>> node) {
+        final Deque<String> names = new ArrayDeque<>();
+        Node<T> current = node.orElse(null);
+        while (current != null && current != root) {
+            names.push(requireName(current.getName()));
+            current = current.findParent()
+                             .orElse(null);
+        }
+        if (current == null) {
+            return null;
+        }
+        return new ArrayList<>(names);
+    }
+
+    private static List<String> childPath(final List<String> parentPath, final String name) {
+        final List<String> path = new ArrayList<>(parentPath.size() + 1);
+        path.addAll(parentPath);
+        path.add(requireName(name));
+        return path;
+    }
+
+    private static String requireName(final String name) {
+        if (name == null || name.isEmpty()) {
+            throw new NodeException(UNNAMED_MESSAGE);
+        }
+        return name;
+    }
+
+    /**
+     * The kinds of recorded operation.
+     *
+     * <p>{@link #UNNAMED} marks a change that could not be recorded as no path of names leads to it.</p>
+     */
+    private enum OperationType {
+        ADD, REMOVE, MOVE, RENAME, SET_DATA, UNNAMED
+    }
+
+    /**
+     * A recorded operation.
+     *
+     * <p>For {@link OperationType#ADD} the path is that of the parent, otherwise it is that of the node changed.</p>
+     *
+     * @param <T> the type of data held in each node
+     */
+    private static final class Operation<T> {
+
+        private final OperationType type;
+
+        private final List<String> path;
+
+        private final String name;
+
+        private final T data;
+
+        private final List<String> target;
+
+        Operation(
+                final OperationType type,
+                final List<String> path,
+                final String name,
+                final T data,
+                final List<String> target
+        ) {
+            this.type = type;
+            this.path = path;
+            this.name = name;
+            this.data = data;
+            this.target = target;
+        }
+
+        void apply(final Node<T> replica) {
+            final Node<T> node = resolve(replica, path);
+            switch (type) {
+                case ADD:
+                    Nodes.namedChild(data, name, node);
+                    break;
+                case REMOVE:
+                    node.findParent()
+                        .ifPresent(parent -> parent.removeChild(node));
+                    break;
+                case MOVE:
+                    node.setParent(resolve(replica, target));
+                    break;
+                case RENAME:
+                    node.setName(name);
+                    break;
+                default:
+                    node.setData(data);
+                    break;
+            }
+        }
+
+        private static <T> Node<T> resolve(final Node<T> replica, final List<String> path) {
+            Node<T> node = replica;
+            for (final String segment : path) {
+                node = node.findChildByName(segment)
+                           .orElseThrow(() -> new NodeException("No node at path: " + String.join("/", path)));
+            }
+            return node;
+        }
+
+        void write(final BinaryOutput out, final NodeDataCodec<T> codec) throws IOException {
+            out.writeByte(type.ordinal());
+            writePath(out, path);
+            switch (type) {
+                case ADD:
+                    out.writeString(name);
+                    writeData(out, codec);
+                    break;
+                case MOVE:
+                    writePath(out, target);
+                    break;
+                case RENAME:
+                    out.writeString(name);
+                    break;
+                case SET_DATA:
+                    writeData(out, codec);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void writeData(final BinaryOutput out, final NodeDataCodec<T> codec) throws IOException {
+            if (data == null) {
+                out.writeVarInt(NodeSerializer.NO_DATA);
+            } else {
+                final byte[] bytes = codec.encode(data);
+                out.writeVarInt(bytes.length + 1);
+                out.writeBytes(bytes);
+            }
+        }
+
+        private static void writePath(final BinaryOutput out, final List<String> path) throws IOException {
+            out.writeVarInt(path.size());
+            for (final String segment : path) {
+                out.writeString(segment);
+            }
+        }
+
+        static <T> Operation<T> read(final BinaryInput in, final NodeDataCodec<T> codec) throws IOException {
+            final int ordinal = in.readByte();
+            if (ordinal >= OperationType.values().length) {
+                throw new IOException("Unknown operation: " + ordinal);
+            }
+            final OperationType type = OperationType.values()[ordinal];
+            final List<String> path = readPath(in);
+            switch (type) {
+                case ADD:
+                    return new Operation<>(type, path, in.readString(), readData(in, codec), null);
+                case MOVE:
+                    return new Operation<>(type, path, null, null, readPath(in));
+                case RENAME:
+                    return new Operation<>(type, path, in.readString(), null, null);
+                case SET_DATA:
+                    return new Operation<>(type, path, null, readData(in, codec), null);
+                default:
+                    return new Operation<>(type, path, null, null, null);
+            }
+        }
+
+        private static <T> T readData(final BinaryInput in, final NodeDataCodec<T> codec) throws IOException {
+            final int length = in.readVarInt();
+            if (length == NodeSerializer.NO_DATA) {
+                return null;
+            }
+            return codec.decode(in.readBytes(length - 1));
+        }
+
+        private static List<String> readPath(final BinaryInput in) throws IOException {
+            final int length = in.readVarInt();
+            if (length == 0) {
+                return Collections.emptyList();
+            }
+            final String[] segments = new String[length];
+            for (int i = 0; i < length; i++) {
+                segments[i] = in.readString();
+            }
+            return Arrays.asList(segments);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Finds nodes by the start of their names.
+ *
+ * <p>Searching the descendants of a node records, for each node whose subtree has been searched, the lowest and highest
+ * names in that subtree. Later searches skip any subtree whose range of names cannot hold a match, until a change
+ * within it discards the range, as for a {@link NodeAggregate}. Each range is held in a volatile field of its node, so
+ * several threads may search the same tree at once, as they could before ranges were recorded. Ranges are not recorded
+ * for lazy nodes, whose children may be dropped by another thread.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+final class NamePrefix {
+
+    private NamePrefix() {
+    }
+
+    /**
+     * Checks whether the node's name starts with the prefix.
+     *
+     * @param node   the node to check
+     * @param prefix the start of the name
+     *
+     * @return true if the name starts with the prefix
+     */
+    static boolean matches(final Node<?> node, final String prefix) {
+        final String name = node.getName();
+        return name != null && name.startsWith(prefix);
+    }
+
+    /**
+     * The lowest string greater than every string that starts with the prefix.
+     *
+     * @param prefix the start of the names
+     *
+     * @return the upper bound, or null if there is none because the prefix is empty or made only of the highest
+     * character
+     */
+    static String upperBound(final String prefix) {
+        for (int i = prefix.length() - 1; i >= 0; i--) {
+            final char last = prefix.charAt(i);
+            if (last != Character.MAX_VALUE) {
+                return prefix.substring(0, i) + (char) (last + 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lazily streams the descendants of the node whose names start with the prefix, depth-first.
+     *
+     * @param node   the node whose descendants are searched
+     * @param prefix the start of the names
+     * @param <T>    the type of data held in each node
+     *
+     * @return the matching descendants
+     */
+    static <T> Stream<Node<T>> descendants(final Node<T> node, final String prefix) {
+        final Iterator<Node<T>> matches = new DescendantIterator<>(node, prefix);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(matches, Spliterator.NONNULL), false);
+    }
+
+    private static <T> NameRange recordedRange(final Node<T> node) {
+        if (node instanceof NodeItem) {
+            return ((NodeItem<T>) node).getNameRange();
+        }
+        return null;
+    }
+
+    // called once every child has been searched, or skipped for its own recorded range
+    private static <T> void recordRange(final Node<T> node) {
+        if (!(node instanceof NodeItem) || !((NodeItem<T>) node).recordsNameRange() || recordedRange(node) != null) {
+            return;
+        }
+        NameRange range = NameRange.of(node.getName());
+        for (final Node<T> child : node.getChildren()) {
+            final NameRange childRange = recordedRange(child);
+            if (childRange == null) {
+                return;
+            }
+            range = range.with(childRange);
+        }
+        ((NodeItem<T>) node).setNameRange(range);
+    }
+
+    /**
+     * Walks the descendants with a stack of child iterators, stopping at each match and skipping subtrees whose
+     * recorded range of names holds no match.
+     */
+    private static final class DescendantIterator<T> implements Iterator<Node<T>> {
+
+        private final Deque<Frame<T>> stack = new ArrayDeque<>();
+
+        private final String prefix;
+
+        private final String upperBound;
+
+        private Node<T> next;
+
+        DescendantIterator(final Node<T> node, final String prefix) {
+            this.prefix = prefix;
+            this.upperBound = upperBound(prefix);
+            stack.push(new Frame<>(node));
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !stack.isEmpty()) {
+                final Frame<T> frame = stack.peek();
+                if (frame.children.hasNext()) {
+                    final Node<T> child = frame.children.next();
+                    final NameRange range = recordedRange(child);
+                    if (range == null || range.overlaps(prefix, upperBound)) {
+                        stack.push(new Frame<>(child));
+                        if (matches(child, prefix)) {
+                            next = child;
+                        }
+                    }
+                } else {
+                    stack.pop();
+                    recordRange(frame.node);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Node<T> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Node<T> match = next;
+            next = null;
+            return match;
+        }
+    }
+
+    /**
+     * A node being searched and an iterator over its children.
+     */
+    private static final class Frame<T> {
+
+        private final Node<T> node;
+
+        private final Iterator<Node<T>> children;
+
+        Frame(final Node<T> node) {
+            this.node = node;
+            this.children = node.getChildren()
+                                .iterator();
+        }
+    }
+
+    /**
+     * The lowest and highest of the names in a subtree, ignoring nodes without a name.
+     */
+    static final class NameRange {
+
+        private static final NameRange NONE = new NameRange(null, null);
+
+        private final String lowest;
+
+        private final String highest;
+
+        private NameRange(final String lowest, final String highest) {
+            this.lowest = lowest;
+            this.highest = highest;
+        }
+
+        static NameRange of(final String name) {
+            // unnamed nodes only match the empty prefix, which never skips a subtree
+            if (name == null || name.isEmpty()) {
+                return NONE;
+            }
+            return new NameRange(name, name);
+        }
+
+        NameRange with(final NameRange other) {
+            if (other.lowest == null) {
+                return this;
+            }
+            if (lowest == null) {
+                return other;
+            }
+            final String low = min(lowest, other.lowest);
+            final String high = max(highest, other.highest);
+            if (low.equals(lowest) && high.equals(highest)) {
+                return this;
+            }
+            return new NameRange(low, high);
+        }
+
+        /**
+         * Checks whether a name starting with the prefix could be in the range.
+         *
+         * @param prefix     the start of the names
+         * @param upperBound the upper bound of names starting with the prefix, or null if there is none
+         *
+         * @return false if no name in the range starts with the prefix, which is never so for the empty prefix
+         */
+        boolean overlaps(final String prefix, final String upperBound) {
+            return prefix.isEmpty() || lowest != null && highest.compareTo(prefix) >= 0
+                    && (upperBound == null || lowest.compareTo(upperBound) < 0);
+        }
+
+        private static String min(final String first, final String second) {
+            if (first.compareTo(second) <= 0) {
+                return first;
+            }
+            return second;
+        }
+
+        private static String max(final String first, final String second) {
+            if (first.compareTo(second) >= 0) {
+                return first;
+            }
+            return second;
+        }
+    }
+}
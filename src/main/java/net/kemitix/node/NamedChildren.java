@@ -0,0 +1,224 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * The children of a node, with an index of their names so that a child can be found by its name, or by the start of
+ * its name, without looking at every child.
+ *
+ * <p>A child is indexed under the name it had when it was added, so must be {@link #reindex(Node) reindexed} when it is
+ * renamed. Children without a name, or with an empty name, are not indexed, so are looked at one by one when searching
+ * for the empty name.</p>
+ *
+ * @param <T> the type of data held in each node
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+class NamedChildren<T> extends AbstractSet<Node<T>> {
+
+    private final Map<Node<T>, String> indexedNames = new HashMap<>();
+
+    private TreeMap<String, List<Node<T>>> byName;
+
+    @Override
+    public boolean add(final Node<T> node) {
+        if (indexedNames.containsKey(node)) {
+            return false;
+        }
+        final String name = node.getName();
+        indexedNames.put(node, name);
+        index(node, name);
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(final Object node) {
+        if (!indexedNames.containsKey(node)) {
+            return false;
+        }
+        unindex((Node<T>) node, indexedNames.remove(node));
+        return true;
+    }
+
+    @Override
+    public boolean contains(final Object node) {
+        return indexedNames.containsKey(node);
+    }
+
+    @Override
+    public int size() {
+        return indexedNames.size();
+    }
+
+    @Override
+    public void clear() {
+        indexedNames.clear();
+        byName = null;
+    }
+
+    @Override
+    public Iterator<Node<T>> iterator() {
+        return new IndexedIterator();
+    }
+
+    /**
+     * Moves a child to the index entry for its current name.
+     *
+     * @param node the renamed child
+     */
+    void reindex(final Node<T> node) {
+        if (!indexedNames.containsKey(node)) {
+            return;
+        }
+        final String name = node.getName();
+        final String indexedName = indexedNames.put(node, name);
+        if (!Objects.equals(indexedName, name)) {
+            unindex(node, indexedName);
+            index(node, name);
+        }
+    }
+
+    /**
+     * Finds a child with the name.
+     *
+     * @param name the name to look for
+     *
+     * @return the child, or empty if there is none with that name
+     */
+    Optional<Node<T>> findByName(final String name) {
+        if (!isIndexed(name)) {
+            return unindexed(name).findFirst();
+        }
+        if (byName == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(byName.get(name))
+                       .map(nodes -> nodes.get(0));
+    }
+
+    /**
+     * The children with names starting with the prefix, in order of their names.
+     *
+     * @param prefix the start of the names
+     *
+     * @return the matching children
+     */
+    Stream<Node<T>> prefixed(final String prefix) {
+        if (prefix.isEmpty()) {
+            return Stream.concat(unindexed(prefix), indexed(prefix));
+        }
+        return indexed(prefix);
+    }
+
+    private Stream<Node<T>> unindexed(final String name) {
+        return indexedNames.entrySet()
+                           .stream()
+                           .filter(entry -> name.equals(entry.getValue()))
+                           .map(Map.Entry::getKey);
+    }
+
+    private Stream<Node<T>> indexed(final String prefix) {
+        if (byName == null) {
+            return Stream.empty();
+        }
+        final String upperBound = NamePrefix.upperBound(prefix);
+        final Map<String, List<Node<T>>> matching;
+        if (upperBound == null) {
+            matching = byName.tailMap(prefix, true);
+        } else {
+            matching = byName.subMap(prefix, upperBound);
+        }
+        return matching.values()
+                       .stream()
+                       .flatMap(List::stream);
+    }
+
+    // as for Node#isNamed()
+    private static boolean isIndexed(final String name) {
+        return name != null && !name.isEmpty();
+    }
+
+    private void index(final Node<T> node, final String name) {
+        if (!isIndexed(name)) {
+            return;
+        }
+        if (byName == null) {
+            byName = new TreeMap<>();
+        }
+        byName.computeIfAbsent(name, key -> new ArrayList<>(1))
+              .add(node);
+    }
+
+    private void unindex(final Node<T> node, final String name) {
+        if (!isIndexed(name)) {
+            return;
+        }
+        final List<Node<T>> nodes = byName.get(name);
+        nodes.remove(node);
+        if (nodes.isEmpty()) {
+            byName.remove(name);
+        }
+    }
+
+    /**
+     * Iterates over the children, removing them from the index as well when asked.
+     */
+    private final class IndexedIterator implements Iterator<Node<T>> {
+
+        private final Iterator<Map.Entry<Node<T>, String>> entries = indexedNames.entrySet()
+                                                                               .iterator();
+
+        private Map.Entry<Node<T>, String> current;
+
+        @Override
+        public boolean hasNext() {
+            return entries.hasNext();
+        }
+
+        @Override
+        public Node<T> next() {
+            current = entries.next();
+            return current.getKey();
+        }
+
+        @Override
+        public void remove() {
+            final Node<T> node = current.getKey();
+            final String name = current.getValue();
+            entries.remove();
+            unindex(node, name);
+        }
+    }
+}
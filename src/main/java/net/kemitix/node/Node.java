@@ -179,6 +179,38 @@ public interface Node<T> {
      */
     Optional<Node<T>> findChildByName(String name);
 
+    /**
+     * Streams the children whose names start with the prefix.
+     *
+     * <p>The stream is lazy, so a search can be cut short with {@link Stream#limit(long)}. An {@link OrderedNode}
+     * finds the matching children from its name index, in name order; other nodes check the name of each child.</p>
+     *
+     * @param prefix the start of the names to find
+     *
+     * @return the matching children
+     */
+    default Stream<Node<T>> findChildrenByNamePrefix(final String prefix) {
+        return getChildren().stream()
+                            .filter(child -> NamePrefix.matches(child, prefix));
+    }
+
+    /**
+     * Streams the descendants of the node whose names start with the prefix, depth-first.
+     *
+     * <p>The stream is lazy, so a search can be cut short with {@link Stream#limit(long)}, and iterative, so it is not
+     * limited by the depth of the tree. A search records the range of names beneath each node it finishes with, so
+     * that later searches skip subtrees that cannot hold a match; as with a {@link NodeAggregate}, changes made
+     * directly to the set returned by {@link #getChildren()} are not detected. Several threads may search the same
+     * tree at once.</p>
+     *
+     * @param prefix the start of the names to find
+     *
+     * @return the matching descendants
+     */
+    default Stream<Node<T>> findDescendantsByNamePrefix(final String prefix) {
+        return NamePrefix.descendants(this, prefix);
+    }
+
     /**
      * Returns true if the Node has a name. Where a name supplier is used, the
      * generated name is used.
@@ -212,4 +244,15 @@ public interface Node<T> {
      * @return a stream of the node's parents recursively until the root node
      */
     Stream<Node<T>> parentStream();
+
+    /**
+     * Walks the node and its descendants depth-first, letting the visitor skip subtrees or stop the walk.
+     *
+     * <p>The walk is iterative, so it is not limited by the depth of the tree.</p>
+     *
+     * @param visitor the visitor to call for each node
+     */
+    default void walk(final TreeVisitor<T> visitor) {
+        TreeWalker.walk(this, visitor);
+    }
 }
@@ -0,0 +1,201 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * A named rollup over subtrees, such as the total size of the files beneath each directory, whose value for each node
+ * is remembered until that node's subtree changes.
+ *
+ * <p>Values are cached on each node of a tree created by {@link Nodes}. Changing a node with
+ * {@link Node#setData(Object)}, {@link Node#setName(String)}, {@link Node#addChild(Node)},
+ * {@link Node#removeChild(Node)} or {@link Node#setParent(Node)} discards the cached values of that node and its
+ * ancestors only, so asking again after a single change recomputes just the path from the changed node to the root.
+ * Changes made directly to the set returned by {@link Node#getChildren()} are not detected.</p>
+ *
+ * <p>Like the nodes themselves, aggregates are not thread-safe.</p>
+ *
+ * @param <T> the type of data held in each node
+ * @param <R> the type of the aggregate value
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public final class NodeAggregate<T, R> {
+
+    private static final Object NULL = new Object();
+
+    private final String name;
+
+    private final BiFunction<Node<T>, List<R>, R> reducer;
+
+    private NodeAggregate(final String name, final BiFunction<Node<T>, List<R>, R> reducer) {
+        this.name = name;
+        this.reducer = reducer;
+    }
+
+    /**
+     * Creates an aggregate that combines the value of each node with the values of its children.
+     *
+     * @param name      the name of the aggregate
+     * @param valueFn   the value of each node on its own
+     * @param combineFn combines two values, which must be associative and, as children are unordered, commutative
+     * @param <T>       the type of data held in each node
+     * @param <R>       the type of the aggregate value
+     *
+     * @return the aggregate
+     */
+    public static <T, R> NodeAggregate<T, R> of(
+            final String name,
+            final Function<Node<T>, R> valueFn,
+            final BinaryOperator<R> combineFn
+    ) {
+        return new NodeAggregate<>(name, (node, results) -> {
+            R result = valueFn.apply(node);
+            for (final R childResult : results) {
+                result = combineFn.apply(result, childResult);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Creates an aggregate computed for each node from the node and the values for its children.
+     *
+     * @param name    the name of the aggregate
+     * @param reducer computes the value for a node from the node and the values for each of its children
+     * @param <T>     the type of data held in each node
+     * @param <R>     the type of the aggregate value
+     *
+     * @return the aggregate
+     */
+    public static <T, R> NodeAggregate<T, R> of(
+            final String name,
+            final BiFunction<Node<T>, List<R>, R> reducer
+    ) {
+        return new NodeAggregate<>(name, reducer);
+    }
+
+    /**
+     * The name of the aggregate.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Fetches the value of the aggregate for the subtree under the node, computing only the values that are not
+     * already cached.
+     *
+     * @param node the root of the subtree
+     *
+     * @return the value for the subtree
+     */
+    public R get(final Node<T> node) {
+        final Object cached = cached(node);
+        if (cached != null) {
+            return unwrap(cached);
+        }
+        final Deque<Frame<T, R>> stack = new ArrayDeque<>();
+        stack.push(new Frame<>(node));
+        while (true) {
+            final Frame<T, R> frame = stack.peek();
+            if (frame.children.hasNext()) {
+                final Node<T> child = frame.children.next();
+                final Object cachedChild = cached(child);
+                if (cachedChild == null) {
+                    stack.push(new Frame<>(child));
+                } else {
+                    frame.results.add(unwrap(cachedChild));
+                }
+            } else {
+                stack.pop();
+                final R result = reducer.apply(frame.node, frame.results);
+                cache(frame.node, result);
+                if (stack.isEmpty()) {
+                    return result;
+                }
+                stack.peek().results.add(result);
+            }
+        }
+    }
+
+    private Object cached(final Node<T> node) {
+        if (node instanceof NodeItem) {
+            return ((NodeItem<T>) node).cachedAggregate(this);
+        }
+        return null;
+    }
+
+    private void cache(final Node<T> node, final R value) {
+        if (node instanceof NodeItem) {
+            final Object wrapped;
+            if (value == null) {
+                wrapped = NULL;
+            } else {
+                wrapped = value;
+            }
+            ((NodeItem<T>) node).cacheAggregate(this, wrapped);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private R unwrap(final Object cached) {
+        if (cached == NULL) {
+            return null;
+        }
+        return (R) cached;
+    }
+
+    @Override
+    public String toString() {
+        return "NodeAggregate(" + name + ")";
+    }
+
+    /**
+     * A node being evaluated and the values of those of its children already evaluated.
+     */
+    private static final class Frame<T, R> {
+
+        private final Node<T> node;
+
+        private final Iterator<Node<T>> children;
+
+        private final List<R> results = new ArrayList<>();
+
+        Frame(final Node<T> node) {
+            this.node = node;
+            this.children = node.getChildren()
+                                .iterator();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.node;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts the data held in a node to and from bytes for a {@link NodeSerializer}.
+ *
+ * @param <T> the type of data held in each node
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public interface NodeDataCodec<T> {
+
+    /**
+     * Encodes the data from a node.
+     *
+     * @param data the node's data, never null
+     *
+     * @return the encoded data
+     */
+    byte[] encode(T data);
+
+    /**
+     * Decodes the data for a node.
+     *
+     * <p>The encoded data is the bytes between the buffer's position and its limit. The buffer may be shared with
+     * the reader and must not be retained after this method returns.</p>
+     *
+     * @param buffer the encoded data
+     *
+     * @return the node's data
+     */
+    T decode(ByteBuffer buffer);
+
+    /**
+     * A codec for {@link String} data using the UTF-8 charset.
+     *
+     * @return the codec
+     */
+    static NodeDataCodec<String> utf8() {
+        return new NodeDataCodec<String>() {
+            @Override
+            public byte[] encode(final String data) {
+                return data.getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public String decode(final ByteBuffer buffer) {
+                if (buffer.hasArray()) {
+                    return new String(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(),
+                            StandardCharsets.UTF_8);
+                }
+                return StandardCharsets.UTF_8.decode(buffer)
+                                             .toString();
+            }
+        };
+    }
+}
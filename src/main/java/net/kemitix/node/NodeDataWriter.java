@@ -0,0 +1,59 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.node;
+
+import java.io.IOException;
+
+/**
+ * Writes the data held in a node for a {@link NodeExporter}.
+ *
+ * @param <T> the type of data held in each node
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+@FunctionalInterface
+public interface NodeDataWriter<T> {
+
+    /**
+     * Writes the data as a single JSON value.
+     *
+     * <p>As JSON is also valid YAML, the same writer is used for both formats. The value must be written on a single
+     * line.</p>
+     *
+     * @param data the node's data, never null
+     * @param out  where to write the value
+     *
+     * @throws IOException if there is an error writing
+     */
+    void write(T data, Appendable out) throws IOException;
+
+    /**
+     * A writer that writes the data's {@link Object#toString()} as a JSON string.
+     *
+     * @param <T> the type of data held in each node
+     *
+     * @return the writer
+     */
+    static <T> NodeDataWriter<T> asString() {
+        return (data, out) -> NodeExporter.writeString(data.toString(), out);
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A difference between two versions of a tree, found by {@link Nodes#diff(Node, Node)}.
+ *
+ * @param <T> the type of data held in each node
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public final class NodeDifference<T> {
+
+    private final Type type;
+
+    private final Node<T> oldNode;
+
+    private final Node<T> newNode;
+
+    private final Node<T> root;
+
+    private NodeDifference(final Type type, final Node<T> oldNode, final Node<T> newNode, final Node<T> root) {
+        this.type = type;
+        this.oldNode = oldNode;
+        this.newNode = newNode;
+        this.root = root;
+    }
+
+    static <T> NodeDifference<T> added(final Node<T> newNode, final Node<T> newRoot) {
+        return new NodeDifference<>(Type.ADDED, null, newNode, newRoot);
+    }
+
+    static <T> NodeDifference<T> removed(final Node<T> oldNode, final Node<T> oldRoot) {
+        return new NodeDifference<>(Type.REMOVED, oldNode, null, oldRoot);
+    }
+
+    static <T> NodeDifference<T> renamed(final Node<T> oldNode, final Node<T> newNode, final Node<T> newRoot) {
+        return new NodeDifference<>(Type.RENAMED, oldNode, newNode, newRoot);
+    }
+
+    static <T> NodeDifference<T> dataChanged(final Node<T> oldNode, final Node<T> newNode, final Node<T> newRoot) {
+        return new NodeDifference<>(Type.DATA_CHANGED, oldNode, newNode, newRoot);
+    }
+
+    /**
+     * The kind of difference.
+     *
+     * @return the type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * The node in the old tree.
+     *
+     * @return an Optional containing the old node, or empty if the node was added
+     */
+    public Optional<Node<T>> findOldNode() {
+        return Optional.ofNullable(oldNode);
+    }
+
+    /**
+     * The node in the new tree.
+     *
+     * @return an Optional containing the new node, or empty if the node was removed
+     */
+    public Optional<Node<T>> findNewNode() {
+        return Optional.ofNullable(newNode);
+    }
+
+    /**
+     * The names of the nodes from below the root down to the node, in the new tree or, for a removed node, in the old
+     * tree.
+     *
+     * @return the path, which is empty for the root
+     */
+    public List<String> getPath() {
+        final Deque<String> names = new ArrayDeque<>();
+        Node<T> node;
+        if (newNode == null) {
+            node = oldNode;
+        } else {
+            node = newNode;
+        }
+        while (node != root) {
+            names.push(node.getName());
+            node = node.findParent()
+                       .orElse(root);
+        }
+        return new ArrayList<>(names);
+    }
+
+    @Override
+    public String toString() {
+        return "NodeDifference(" + type + ", " + String.join("/", getPath()) + ")";
+    }
+
+    /**
+     * The kinds of difference.
+     */
+    public enum Type {
+
+        /**
+         * A node, with any descendants, is only in the new tree.
+         */
+        ADDED,
+
+        /**
+         * A node, with any descendants, is only in the old tree.
+         */
+        REMOVED,
+
+        /**
+         * A node has a different name in the new tree but the same data.
+         */
+        RENAMED,
+
+        /**
+         * A node has different data in the new tree.
+         */
+        DATA_CHANGED
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node;
+
+import java.util.Optional;
+
+/**
+ * A change made to a node.
+ *
+ * @param <T> the type of data held in each node
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public final class NodeEvent<T> {
+
+    private final Type type;
+
+    private final Node<T> node;
+
+    private final Node<T> parent;
+
+    private final Node<T> oldParent;
+
+    private final String oldName;
+
+    private final T oldData;
+
+    private NodeEvent(
+            final Type type,
+            final Node<T> node,
+            final Node<T> parent,
+            final Node<T> oldParent,
+            final String oldName,
+            final T oldData
+    ) {
+        this.type = type;
+        this.node = node;
+        this.parent = parent;
+        this.oldParent = oldParent;
+        this.oldName = oldName;
+        this.oldData = oldData;
+    }
+
+    static <T> NodeEvent<T> added(final Node<T> node, final Node<T> parent) {
+        return new NodeEvent<>(Type.ADDED, node, parent, null, null, null);
+    }
+
+    static <T> NodeEvent<T> removed(final Node<T> node, final Node<T> oldParent) {
+        return new NodeEvent<>(Type.REMOVED, node, null, oldParent, null, null);
+    }
+
+    static <T> NodeEvent<T> moved(final Node<T> node, final Node<T> parent, final Node<T> oldParent) {
+        return new NodeEvent<>(Type.MOVED, node, parent, oldParent, null, null);
+    }
+
+    static <T> NodeEvent<T> renamed(final Node<T> node, final String oldName) {
+        return new NodeEvent<>(Type.RENAMED, node, null, null, oldName, null);
+    }
+
+    static <T> NodeEvent<T> dataChanged(final Node<T> node, final T oldData) {
+        return new NodeEvent<>(Type.DATA_CHANGED, node, null, null, null, oldData);
+    }
+
+    /**
+     * The kind of change.
+     *
+     * @return the type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * The node that was changed.
+     *
+     * @return the node
+     */
+    public Node<T> getNode() {
+        return node;
+    }
+
+    /**
+     * The parent the node was given, for {@link Type#ADDED} and {@link Type#MOVED}.
+     *
+     * @return an Optional containing the new parent, or empty for other types of change
+     */
+    public Optional<Node<T>> findParent() {
+        return Optional.ofNullable(parent);
+    }
+
+    /**
+     * The parent the node had before, for {@link Type#REMOVED} and {@link Type#MOVED}.
+     *
+     * @return an Optional containing the old parent, or empty for other types of change
+     */
+    public Optional<Node<T>> findOldParent() {
+        return Optional.ofNullable(oldParent);
+    }
+
+    /**
+     * The name the node had before, for {@link Type#RENAMED}.
+     *
+     * @return the old name, or null for other types of change
+     */
+    public String getOldName() {
+        return oldName;
+    }
+
+    /**
+     * The data the node held before, for {@link Type#DATA_CHANGED}.
+     *
+     * @return an Optional containing the old data, or empty if there was none or for other types of change
+     */
+    public Optional<T> findOldData() {
+        return Optional.ofNullable(oldData);
+    }
+
+    @Override
+    public String toString() {
+        return "NodeEvent(" + type + ", " + node.getName() + ")";
+    }
+
+    /**
+     * The kinds of change.
+     */
+    public enum Type {
+
+        /**
+         * A root node was given a parent.
+         */
+        ADDED,
+
+        /**
+         * A node was removed from its parent.
+         */
+        REMOVED,
+
+        /**
+         * A node was moved from one parent to another.
+         */
+        MOVED,
+
+        /**
+         * A node's name was changed.
+         */
+        RENAMED,
+
+        /**
+         * A node's data was changed.
+         */
+        DATA_CHANGED
+    }
+}
@@ -0,0 +1,317 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Subscribes listeners to the changes made to subtrees.
+ *
+ * <p>A listener subscribed to a node receives the changes made to that node and to all of its descendants, as well as
+ * the removal of any of them. Changes are made through {@link Node#setData(Object)}, {@link Node#setName(String)},
+ * {@link Node#addChild(Node)}, {@link Node#removeChild(Node)}, {@link Node#setParent(Node)} and the methods built on
+ * them. Changes made directly to the set returned by {@link Node#getChildren()} are not detected.</p>
+ *
+ * <p>While no listeners are subscribed anywhere, changes cost nothing more than a single check. Otherwise a change
+ * looks for listeners on the changed node and its ancestors, allocating nothing, so that changes to trees without
+ * listeners are not slowed by those subscribed to other trees.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public final class NodeEvents {
+
+    private static final AtomicInteger SUBSCRIPTIONS = new AtomicInteger();
+
+    private static final ThreadLocal<Batch> BATCH = new ThreadLocal<>();
+
+    private NodeEvents() {
+    }
+
+    /**
+     * Subscribes the listener to changes to the node and its descendants.
+     *
+     * @param node     the root of the subtree to listen to, which must have been created by {@link Nodes}
+     * @param listener the listener
+     * @param <T>      the type of data held in each node
+     *
+     * @return the subscription, to cancel when the listener is no longer needed
+     *
+     * @throws IllegalArgumentException if the node does not support listeners
+     */
+    public static <T> Subscription subscribe(final Node<T> node, final NodeListener<T> listener) {
+        return subscribe(node, listener, false);
+    }
+
+    /**
+     * Subscribes the listener to changes to the node and its descendants, delivering each event as soon as the change
+     * is made, even within a batch.
+     *
+     * @param node     the root of the subtree to listen to
+     * @param listener the listener
+     * @param <T>      the type of data held in each node
+     *
+     * @return the subscription
+     *
+     * @throws IllegalArgumentException if the node does not support listeners
+     */
+    static <T> Subscription subscribeImmediately(final Node<T> node, final NodeListener<T> listener) {
+        return subscribe(node, listener, true);
+    }
+
+    private static <T> Subscription subscribe(
+            final Node<T> node,
+            final NodeListener<T> listener,
+            final boolean immediate
+    ) {
+        if (!(node instanceof NodeItem)) {
+            throw new IllegalArgumentException("Node does not support listeners");
+        }
+        final Registration<T> registration = new Registration<>((NodeItem<T>) node, listener, immediate);
+        registration.node.addSubscription(registration);
+        SUBSCRIPTIONS.incrementAndGet();
+        return registration;
+    }
+
+    /**
+     * Makes the changes, delivering the events for them to each listener together once they are complete.
+     *
+     * <p>Batches may be nested, in which case the events are delivered when the outermost batch completes. Repeated
+     * renames, or repeated changes to the data, of the same node are delivered as a single event with the earliest
+     * old value.</p>
+     *
+     * @param mutations makes the changes
+     */
+    public static void batch(final Runnable mutations) {
+        Batch batch = BATCH.get();
+        if (batch == null) {
+            batch = new Batch();
+            BATCH.set(batch);
+        }
+        batch.depth++;
+        try {
+            mutations.run();
+        } finally {
+            batch.depth--;
+            if (batch.depth == 0) {
+                BATCH.remove();
+                batch.deliver();
+            }
+        }
+    }
+
+    /**
+     * Whether any listener is subscribed to the node or to one of its ancestors.
+     *
+     * @param node the node, or null
+     * @param <T>  the type of data held in each node
+     *
+     * @return true if a change to the node would be delivered to a listener
+     */
+    static <T> boolean isObserved(final Node<T> node) {
+        if (SUBSCRIPTIONS.get() == 0) {
+            return false;
+        }
+        Node<T> current = node;
+        while (current != null) {
+            if (current instanceof NodeItem) {
+                final List<Registration<T>> subscriptions = ((NodeItem<T>) current).getSubscriptions();
+                if (subscriptions != null && !subscriptions.isEmpty()) {
+                    return true;
+                }
+            }
+            current = current.findParent()
+                             .orElse(null);
+        }
+        return false;
+    }
+
+    static <T> void added(final Node<T> node, final Node<T> parent) {
+        if (isObserved(node)) {
+            emit(NodeEvent.added(node, parent), node, null);
+        }
+    }
+
+    static <T> void removed(final Node<T> node, final Node<T> oldParent) {
+        if (isObserved(node) || isObserved(oldParent)) {
+            emit(NodeEvent.removed(node, oldParent), node, oldParent);
+        }
+    }
+
+    static <T> void moved(final Node<T> node, final Node<T> parent, final Node<T> oldParent) {
+        if (isObserved(node) || isObserved(oldParent)) {
+            emit(NodeEvent.moved(node, parent, oldParent), node, oldParent);
+        }
+    }
+
+    static <T> void renamed(final Node<T> node, final String oldName) {
+        if (isObserved(node)) {
+            emit(NodeEvent.renamed(node, oldName), node, null);
+        }
+    }
+
+    static <T> void dataChanged(final Node<T> node, final T oldData) {
+        if (isObserved(node)) {
+            emit(NodeEvent.dataChanged(node, oldData), node, null);
+        }
+    }
+
+    private static <T> void emit(final NodeEvent<T> event, final Node<T> node, final Node<T> oldParent) {
+        final Set<Registration<T>> registrations = new LinkedHashSet<>();
+        collect(node, registrations);
+        collect(oldParent, registrations);
+        if (registrations.isEmpty()) {
+            return;
+        }
+        final Batch batch = BATCH.get();
+        for (final Registration<T> registration : registrations) {
+            if (batch == null || registration.immediate) {
+                registration.listener.onEvents(Collections.singletonList(event));
+            } else {
+                batch.add(registration, event);
+            }
+        }
+    }
+
+    private static <T> void collect(final Node<T> from, final Set<Registration<T>> registrations) {
+        Node<T> node = from;
+        while (node != null) {
+            if (node instanceof NodeItem) {
+                final List<Registration<T>> subscriptions = ((NodeItem<T>) node).getSubscriptions();
+                if (subscriptions != null) {
+                    registrations.addAll(subscriptions);
+                }
+            }
+            node = node.findParent()
+                       .orElse(null);
+        }
+    }
+
+    /**
+     * A listener's subscription to changes.
+     */
+    @FunctionalInterface
+    public interface Subscription {
+
+        /**
+         * Stops delivering events to the listener, including any not yet delivered from a batch.
+         */
+        void cancel();
+    }
+
+    /**
+     * A listener subscribed to a node.
+     *
+     * @param <T> the type of data held in each node
+     */
+    static final class Registration<T> implements Subscription {
+
+        private final NodeItem<T> node;
+
+        private final NodeListener<T> listener;
+
+        private final boolean immediate;
+
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        Registration(final NodeItem<T> node, final NodeListener<T> listener, final boolean immediate) {
+            this.node = node;
+            this.listener = listener;
+            this.immediate = immediate;
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled.compareAndSet(false, true)) {
+                node.removeSubscription(this);
+                SUBSCRIPTIONS.decrementAndGet();
+            }
+        }
+
+        void deliver(final List<NodeEvent<T>> events) {
+            if (!cancelled.get()) {
+                listener.onEvents(coalesce(events));
+            }
+        }
+
+        private static <T> List<NodeEvent<T>> coalesce(final List<NodeEvent<T>> events) {
+            final Set<Node<T>> renamed = Collections.newSetFromMap(new IdentityHashMap<>());
+            final Set<Node<T>> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+            final List<NodeEvent<T>> coalesced = new ArrayList<>(events.size());
+            for (final NodeEvent<T> event : events) {
+                if (event.getType() == NodeEvent.Type.RENAMED && !renamed.add(event.getNode())) {
+                    continue;
+                }
+                if (event.getType() == NodeEvent.Type.DATA_CHANGED && !changed.add(event.getNode())) {
+                    continue;
+                }
+                coalesced.add(event);
+            }
+            return coalesced;
+        }
+    }
+
+    /**
+     * The events collected in the current thread for each listener while a batch is open.
+     */
+    private static final class Batch {
+
+        private final Map<Registration<?>, List<NodeEvent<?>>> events = new LinkedHashMap<>();
+
+        private int depth;
+
+        <T> void add(final Registration<T> registration, final NodeEvent<T> event) {
+            events.computeIfAbsent(registration, key -> new ArrayList<>())
+                  .add(event);
+        }
+
+        @SuppressWarnings("unchecked")
+        void deliver() {
+            RuntimeException failure = null;
+            for (final Map.Entry<Registration<?>, List<NodeEvent<?>>> entry : events.entrySet()) {
+                final Registration<Object> registration = (Registration<Object>) entry.getKey();
+                final List<NodeEvent<Object>> batched = (List<NodeEvent<Object>>) (List<?>) entry.getValue();
+                try {
+                    registration.deliver(batched);
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
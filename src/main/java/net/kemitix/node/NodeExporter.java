@@ -0,0 +1,214 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.node;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Streams node trees to an {@link Appendable} as JSON or YAML.
+ *
+ * <p>Each node is written as an object with the fields {@code name}, {@code data} and {@code children}. Trees are
+ * written in a single pass without recursion, so neither the size nor the depth of the tree is limited by memory or
+ * the size of the stack.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public final class NodeExporter {
+
+    private static final int CONTROL_CHARACTERS = 0x20;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int NIBBLE_MASK = 0xf;
+    private static final int NIBBLE_SHIFT = 4;
+    private static final int INDENT = 2;
+
+    private NodeExporter() {
+    }
+
+    /**
+     * Writes the node and all its descendants as compact JSON.
+     *
+     * @param node       the node to write
+     * @param out        where to write the JSON
+     * @param dataWriter writes the data held in each node
+     * @param <T>        the type of data held in each node
+     *
+     * @throws IOException if there is an error writing
+     */
+    public static <T> void writeJson(
+            final Node<T> node,
+            final Appendable out,
+            final NodeDataWriter<T> dataWriter
+    ) throws IOException {
+        final Deque<Iterator<Node<T>>> siblings = new ArrayDeque<>();
+        openJson(node, out, dataWriter);
+        siblings.push(node.getChildren()
+                          .iterator());
+        while (!siblings.isEmpty()) {
+            final Iterator<Node<T>> next = siblings.peek();
+            if (next.hasNext()) {
+                final Node<T> child = next.next();
+                openJson(child, out, dataWriter);
+                siblings.push(child.getChildren()
+                                   .iterator());
+            } else {
+                siblings.pop();
+                out.append("]}");
+                if (!siblings.isEmpty() && siblings.peek()
+                                                   .hasNext()) {
+                    out.append(',');
+                }
+            }
+        }
+    }
+
+    private static <T> void openJson(
+            final Node<T> node,
+            final Appendable out,
+            final NodeDataWriter<T> dataWriter
+    ) throws IOException {
+        out.append("{\"name\":");
+        writeName(node, out);
+        out.append(",\"data\":");
+        writeData(node, out, dataWriter);
+        out.append(",\"children\":[");
+    }
+
+    /**
+     * Writes the node and all its descendants as block style YAML.
+     *
+     * @param node       the node to write
+     * @param out        where to write the YAML
+     * @param dataWriter writes the data held in each node
+     * @param <T>        the type of data held in each node
+     *
+     * @throws IOException if there is an error writing
+     */
+    public static <T> void writeYaml(
+            final Node<T> node,
+            final Appendable out,
+            final NodeDataWriter<T> dataWriter
+    ) throws IOException {
+        final StringBuilder indent = new StringBuilder();
+        final Deque<Iterator<Node<T>>> siblings = new ArrayDeque<>();
+        writeYaml(node, 0, indent, out, dataWriter);
+        siblings.push(node.getChildren()
+                          .iterator());
+        while (!siblings.isEmpty()) {
+            final Iterator<Node<T>> next = siblings.peek();
+            if (next.hasNext()) {
+                final Node<T> child = next.next();
+                writeYaml(child, siblings.size(), indent, out, dataWriter);
+                siblings.push(child.getChildren()
+                                   .iterator());
+            } else {
+                siblings.pop();
+            }
+        }
+    }
+
+    private static <T> void writeYaml(
+            final Node<T> node,
+            final int depth,
+            final StringBuilder indent,
+            final Appendable out,
+            final NodeDataWriter<T> dataWriter
+    ) throws IOException {
+        final int keyIndent = depth * INDENT;
+        while (indent.length() < keyIndent) {
+            indent.append(' ');
+        }
+        if (depth > 0) {
+            out.append(indent, 0, keyIndent - INDENT)
+               .append("- ");
+        }
+        out.append("name: ");
+        writeName(node, out);
+        out.append('\n')
+           .append(indent, 0, keyIndent)
+           .append("data: ");
+        writeData(node, out, dataWriter);
+        out.append('\n')
+           .append(indent, 0, keyIndent)
+           .append("children:");
+        if (node.getChildren()
+                .isEmpty()) {
+            out.append(" []");
+        }
+        out.append('\n');
+    }
+
+    private static <T> void writeName(final Node<T> node, final Appendable out) throws IOException {
+        final String name = node.getName();
+        if (name == null) {
+            writeString("", out);
+        } else {
+            writeString(name, out);
+        }
+    }
+
+    private static <T> void writeData(
+            final Node<T> node,
+            final Appendable out,
+            final NodeDataWriter<T> dataWriter
+    ) throws IOException {
+        final T data = node.findData()
+                           .orElse(null);
+        if (data == null) {
+            out.append("null");
+        } else {
+            dataWriter.write(data, out);
+        }
+    }
+
+    /**
+     * Writes the value as a quoted and escaped JSON string.
+     *
+     * @param value the value to write
+     * @param out   where to write the string
+     *
+     * @throws IOException if there is an error writing
+     */
+    static void writeString(final String value, final Appendable out) throws IOException {
+        out.append('"');
+        int unescaped = 0;
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\' || c < CONTROL_CHARACTERS) {
+                out.append(value, unescaped, i)
+                   .append('\\');
+                if (c < CONTROL_CHARACTERS) {
+                    out.append("u00")
+                       .append(HEX[c >> NIBBLE_SHIFT])
+                       .append(HEX[c & NIBBLE_MASK]);
+                } else {
+                    out.append(c);
+                }
+                unescaped = i + 1;
+            }
+        }
+        out.append(value, unescaped, value.length())
+           .append('"');
+    }
+}
@@ -0,0 +1,274 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A compiled glob pattern for finding nodes by the names along their path.
+ *
+ * <p>A pattern is a list of segments separated by {@code /}, matched against the names of the nodes below the root,
+ * as placed by {@link Node#insertInPath(Node, String...)}. Within a segment, {@code *} matches any run of characters
+ * and {@code ?} any single character. A segment of {@code **} matches any number of levels, including none, so
+ * {@code logs/**}{@code /error} finds {@code logs/error} as well as {@code logs/2018/05/error}.</p>
+ *
+ * <p>The search only descends into branches that can still match. Where the pattern allows only particular names, the
+ * children are found using {@link Node#findChildByName(String)} and {@link Node#findChildrenByNamePrefix(String)},
+ * which use the name index of an {@link OrderedNode}.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public final class NodeGlob {
+
+    private static final String ANY_LEVELS = "**";
+
+    private final String pattern;
+
+    private final Segment[] segments;
+
+    private NodeGlob(final String pattern, final Segment[] segments) {
+        this.pattern = pattern;
+        this.segments = segments;
+    }
+
+    /**
+     * Compiles a glob pattern.
+     *
+     * @param pattern the pattern, such as {@code a/*}{@code /c}
+     *
+     * @return the compiled pattern
+     *
+     * @throws IllegalArgumentException if the pattern is empty or has an empty segment
+     */
+    public static NodeGlob compile(final String pattern) {
+        final String[] parts = pattern.split("/", -1);
+        final Segment[] segments = new Segment[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            if (parts[i].isEmpty()) {
+                throw new IllegalArgumentException("Empty segment in pattern: " + pattern);
+            }
+            segments[i] = new Segment(parts[i]);
+        }
+        return new NodeGlob(pattern, segments);
+    }
+
+    /**
+     * Lazily streams the nodes below the root whose paths match the pattern, depth-first.
+     *
+     * <p>The root itself is included only when every segment is {@code **}.</p>
+     *
+     * @param root the node to search below
+     * @param <T>  the type of data held in each node
+     *
+     * @return the matching nodes
+     */
+    public <T> Stream<Node<T>> match(final Node<T> root) {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(new MatchIterator<>(root), Spliterator.NONNULL), false);
+    }
+
+    private BitSet closure(final BitSet states) {
+        for (int i = states.nextSetBit(0); i >= 0 && i < segments.length; i = states.nextSetBit(i + 1)) {
+            if (segments[i].anyLevels) {
+                states.set(i + 1);
+            }
+        }
+        return states;
+    }
+
+    private BitSet step(final BitSet states, final String name) {
+        final BitSet next = new BitSet(segments.length + 1);
+        for (int i = states.nextSetBit(0); i >= 0 && i < segments.length; i = states.nextSetBit(i + 1)) {
+            final Segment segment = segments[i];
+            if (segment.anyLevels) {
+                next.set(i);
+            } else if (segment.matches(name)) {
+                next.set(i + 1);
+            }
+        }
+        return closure(next);
+    }
+
+    private <T> Collection<Node<T>> candidates(final Node<T> node, final BitSet states) {
+        final Set<Node<T>> candidates = new LinkedHashSet<>();
+        for (int i = states.nextSetBit(0); i >= 0 && i < segments.length; i = states.nextSetBit(i + 1)) {
+            final Segment segment = segments[i];
+            if (segment.anyLevels || segment.prefix.isEmpty()) {
+                return node.getChildren();
+            }
+            if (segment.regex == null) {
+                node.findChildByName(segment.prefix)
+                    .ifPresent(candidates::add);
+            } else {
+                candidates.addAll(node.findChildrenByNamePrefix(segment.prefix)
+                                      .collect(Collectors.toList()));
+            }
+        }
+        return candidates;
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+
+    /**
+     * One segment of the pattern.
+     */
+    private static final class Segment {
+
+        private final boolean anyLevels;
+
+        private final String prefix;
+
+        private final Pattern regex;
+
+        Segment(final String text) {
+            anyLevels = ANY_LEVELS.equals(text);
+            final int wildcard = firstWildcard(text);
+            if (wildcard < 0) {
+                prefix = text;
+                regex = null;
+            } else {
+                prefix = text.substring(0, wildcard);
+                regex = toRegex(text);
+            }
+        }
+
+        private static int firstWildcard(final String text) {
+            for (int i = 0; i < text.length(); i++) {
+                final char c = text.charAt(i);
+                if (c == '*' || c == '?') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static Pattern toRegex(final String text) {
+            final StringBuilder regex = new StringBuilder();
+            final StringBuilder literal = new StringBuilder();
+            for (int i = 0; i < text.length(); i++) {
+                final char c = text.charAt(i);
+                if (c == '*' || c == '?') {
+                    if (literal.length() > 0) {
+                        regex.append(Pattern.quote(literal.toString()));
+                        literal.setLength(0);
+                    }
+                    regex.append(c == '*' ? ".*" : ".");
+                } else {
+                    literal.append(c);
+                }
+            }
+            if (literal.length() > 0) {
+                regex.append(Pattern.quote(literal.toString()));
+            }
+            return Pattern.compile(regex.toString(), Pattern.DOTALL);
+        }
+
+        boolean matches(final String name) {
+            final String actual = name == null ? "" : name;
+            if (regex == null) {
+                return prefix.equals(actual);
+            }
+            return regex.matcher(actual)
+                        .matches();
+        }
+    }
+
+    /**
+     * A node reached by the search, with the pattern positions still open at it.
+     */
+    private static final class Frame<T> {
+
+        private final Node<T> node;
+
+        private final BitSet states;
+
+        Frame(final Node<T> node, final BitSet states) {
+            this.node = node;
+            this.states = states;
+        }
+    }
+
+    /**
+     * Searches depth-first with an explicit stack, stopping at each match.
+     */
+    private final class MatchIterator<T> implements Iterator<Node<T>> {
+
+        private final Deque<Frame<T>> stack = new ArrayDeque<>();
+
+        private Node<T> next;
+
+        MatchIterator(final Node<T> root) {
+            final BitSet start = new BitSet(segments.length + 1);
+            start.set(0);
+            stack.push(new Frame<>(root, closure(start)));
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !stack.isEmpty()) {
+                final Frame<T> frame = stack.pop();
+                if (frame.states.nextSetBit(0) < segments.length) {
+                    // pushed in reverse so that children are searched in the order they are given
+                    final Deque<Frame<T>> children = new ArrayDeque<>();
+                    for (final Node<T> child : candidates(frame.node, frame.states)) {
+                        final BitSet states = step(frame.states, child.getName());
+                        if (!states.isEmpty()) {
+                            children.push(new Frame<>(child, states));
+                        }
+                    }
+                    children.forEach(stack::push);
+                }
+                if (frame.states.get(segments.length)) {
+                    next = frame.node;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Node<T> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Node<T> match = next;
+            next = null;
+            return match;
+        }
+    }
+}
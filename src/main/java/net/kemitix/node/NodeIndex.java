@@ -0,0 +1,241 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A named secondary index over the data of the nodes in a tree, such as every node with a given owner.
+ *
+ * <p>The index maps the key extracted from each node's data to the nodes with that key. Nodes without data, or whose
+ * key is null, are not indexed. It is kept current as the tree changes through {@link Node#setData(Object)},
+ * {@link Node#addChild(Node)}, {@link Node#removeChild(Node)} and {@link Node#setParent(Node)}, so a lookup takes time
+ * proportional to the number of nodes found. Changes made directly to the set returned by {@link Node#getChildren()}
+ * are not detected.</p>
+ *
+ * @param <T> the type of data held in each node
+ * @param <K> the type of the key
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public final class NodeIndex<T, K> {
+
+    private final String name;
+
+    private final Node<T> root;
+
+    private final Function<? super T, ? extends K> keyExtractor;
+
+    private final Map<K, Set<Node<T>>> nodesByKey = new HashMap<>();
+
+    private final Map<Node<T>, K> keysByNode = new HashMap<>();
+
+    private NodeEvents.Subscription subscription;
+
+    private NodeIndex(final String name, final Node<T> root, final Function<? super T, ? extends K> keyExtractor) {
+        this.name = name;
+        this.root = root;
+        this.keyExtractor = keyExtractor;
+    }
+
+    /**
+     * Creates an index over the node and its descendants.
+     *
+     * <p>Every node is visited to build the index, loading any children that are loaded lazily.</p>
+     *
+     * @param root         the root of the tree, which must have been created by {@link Nodes}
+     * @param name         the name of the index
+     * @param keyExtractor extracts the key from the data of a node
+     * @param <T>          the type of data held in each node
+     * @param <K>          the type of the key
+     *
+     * @return the index
+     *
+     * @throws IllegalArgumentException if the node does not support listeners
+     */
+    public static <T, K> NodeIndex<T, K> on(
+            final Node<T> root,
+            final String name,
+            final Function<? super T, ? extends K> keyExtractor
+    ) {
+        final NodeIndex<T, K> index = new NodeIndex<>(name, root, keyExtractor);
+        index.subscription = NodeEvents.subscribeImmediately(root, index::updateAll);
+        index.addSubtree(root);
+        return index;
+    }
+
+    /**
+     * The name of the index.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Finds the nodes with the key.
+     *
+     * @param key the key to look up
+     *
+     * @return the nodes, in no particular order
+     */
+    public synchronized Set<Node<T>> get(final K key) {
+        final Set<Node<T>> nodes = nodesByKey.get(key);
+        if (nodes == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(new HashSet<>(nodes));
+    }
+
+    /**
+     * Finds any one node with the key.
+     *
+     * @param key the key to look up
+     *
+     * @return a node with the key, or empty if there is none
+     */
+    public synchronized Optional<Node<T>> findAny(final K key) {
+        final Set<Node<T>> nodes = nodesByKey.get(key);
+        if (nodes == null) {
+            return Optional.empty();
+        }
+        return Optional.of(nodes.iterator()
+                                .next());
+    }
+
+    /**
+     * The keys of the indexed nodes.
+     *
+     * @return the keys
+     */
+    public synchronized Set<K> keys() {
+        return Collections.unmodifiableSet(new HashSet<>(nodesByKey.keySet()));
+    }
+
+    /**
+     * The number of indexed nodes.
+     *
+     * @return the number of nodes
+     */
+    public synchronized int size() {
+        return keysByNode.size();
+    }
+
+    /**
+     * Stops keeping the index current and discards it.
+     */
+    public synchronized void close() {
+        if (subscription != null) {
+            subscription.cancel();
+            subscription = null;
+        }
+        nodesByKey.clear();
+        keysByNode.clear();
+    }
+
+    private synchronized void updateAll(final List<NodeEvent<T>> events) {
+        events.forEach(this::update);
+    }
+
+    private void update(final NodeEvent<T> event) {
+        final Node<T> node = event.getNode();
+        switch (event.getType()) {
+            case ADDED:
+                addSubtree(node);
+                break;
+            case REMOVED:
+                removeSubtree(node);
+                break;
+            case MOVED:
+                moved(node, isWithin(event.findOldParent()), isWithin(event.findParent()));
+                break;
+            case DATA_CHANGED:
+                add(node);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void moved(final Node<T> node, final boolean wasWithin, final boolean isWithin) {
+        if (isWithin && !wasWithin) {
+            addSubtree(node);
+        } else if (wasWithin && !isWithin) {
+            removeSubtree(node);
+        }
+    }
+
+    private boolean isWithin(final Optional<Node<T>> node) {
+        Node<T> current = node.orElse(null);
+        while (current != null && current != root) {
+            current = current.findParent()
+                             .orElse(null);
+        }
+        return current != null;
+    }
+
+    private void addSubtree(final Node<T> node) {
+        node.walk(this::add);
+    }
+
+    private void removeSubtree(final Node<T> node) {
+        node.walk(this::remove);
+    }
+
+    private VisitResult add(final Node<T> node) {
+        remove(node);
+        node.findData()
+            .map(keyExtractor)
+            .ifPresent(key -> {
+                keysByNode.put(node, key);
+                nodesByKey.computeIfAbsent(key, k -> new HashSet<>())
+                          .add(node);
+            });
+        return VisitResult.CONTINUE;
+    }
+
+    private VisitResult remove(final Node<T> node) {
+        final K key = keysByNode.remove(node);
+        if (key != null) {
+            final Set<Node<T>> nodes = nodesByKey.get(key);
+            nodes.remove(node);
+            if (nodes.isEmpty()) {
+                nodesByKey.remove(key);
+            }
+        }
+        return VisitResult.CONTINUE;
+    }
+
+    @Override
+    public String toString() {
+        return "NodeIndex(" + name + ")";
+    }
+}
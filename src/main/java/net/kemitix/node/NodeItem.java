@@ -23,10 +23,10 @@ package net.kemitix.node;
 
 import lombok.Getter;
 import lombok.NonNull;
-import lombok.Setter;
 import lombok.val;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
@@ -36,23 +36,30 @@ import static net.kemitix.list.HeadTail.tail;
 /**
  * Represents a tree of nodes.
  *
+ * <p>Children are held with an index of their names, so that finding a child by its name, or by the start of its name,
+ * does not look at every child.</p>
+ *
  * @param <T> the type of data stored in each node
  *
  * @author Paul Campbell (pcampbell@kemitix.net)
  */
 class NodeItem<T> implements Node<T> {
 
-    private final Set<Node<T>> children = new HashSet<>();
+    private final Set<Node<T>> children;
 
-    @Setter
     private T data;
 
     private Node<T> parent;
 
-    @Setter
     @Getter
     private String name;
 
+    private Map<NodeAggregate<T, ?>, Object> aggregates;
+
+    private volatile NamePrefix.NameRange nameRange;
+
+    private volatile List<NodeEvents.Registration<T>> subscriptions;
+
     /**
      * Constructor.
      *
@@ -67,6 +74,26 @@ class NodeItem<T> implements Node<T> {
             final Node<T> parent,
             final Set<Node<T>> children
     ) {
+        this(data, name, parent, children, new NamedChildren<>());
+    }
+
+    /**
+     * Constructor for nodes that keep their children in a particular set.
+     *
+     * @param data     the data of the node
+     * @param name     the name of the node
+     * @param parent   the parent of the node, or null for a root node
+     * @param children the initial children of the node, or null for none
+     * @param childSet the empty set that will hold the children of the node
+     */
+    NodeItem(
+            final T data,
+            final String name,
+            final Node<T> parent,
+            final Set<Node<T>> children,
+            final Set<Node<T>> childSet
+    ) {
+        this.children = childSet;
         this.data = data;
         this.name = name;
         if (parent != null) {
@@ -86,6 +113,178 @@ class NodeItem<T> implements Node<T> {
         this.parent = newParent;
     }
 
+    /**
+     * Adds the child without the name and ancestry checks performed by {@link #addChild(Node)}.
+     *
+     * <p>For use when assembling a tree that is already known to be valid, such as one being read back from a
+     * {@link NodeSerializer}.</p>
+     *
+     * @param child the new child node, which must not already have a parent
+     */
+    void attachChild(final NodeItem<T> child) {
+        children.add(child);
+        child.forceParent(this);
+        invalidateAggregates();
+    }
+
+    /**
+     * Adds a child that is shared with other parents, leaving its parent unchanged.
+     *
+     * <p>For use when assembling an immutable tree in which identical subtrees are shared.</p>
+     *
+     * @param child the shared child node
+     */
+    void shareChild(final NodeItem<T> child) {
+        children.add(child);
+        invalidateAggregates();
+    }
+
+    /**
+     * Fetches the value of the aggregate cached for this node.
+     *
+     * @param aggregate the aggregate
+     *
+     * @return the cached value, or null if there is none
+     */
+    Object cachedAggregate(final NodeAggregate<T, ?> aggregate) {
+        if (aggregates == null) {
+            return null;
+        }
+        return aggregates.get(aggregate);
+    }
+
+    /**
+     * Caches the value of the aggregate for this node.
+     *
+     * @param aggregate the aggregate
+     * @param value     the value to cache
+     */
+    void cacheAggregate(final NodeAggregate<T, ?> aggregate, final Object value) {
+        if (aggregates == null) {
+            aggregates = new HashMap<>();
+        }
+        aggregates.put(aggregate, value);
+    }
+
+    /**
+     * Whether a search by name may record the range of names beneath this node, so that later searches can skip it.
+     *
+     * <p>Nodes whose children may be dropped by another thread do not, as the range could be recorded from children
+     * that have since been dropped.</p>
+     *
+     * @return true if the range of names may be recorded
+     */
+    boolean recordsNameRange() {
+        return true;
+    }
+
+    /**
+     * Fetches the range of names beneath this node recorded by an earlier search.
+     *
+     * @return the range, or null if none has been recorded since the subtree last changed
+     */
+    NamePrefix.NameRange getNameRange() {
+        return nameRange;
+    }
+
+    /**
+     * Records the range of names beneath this node.
+     *
+     * <p>The range is held apart from the other aggregates, in a single volatile field, so that several threads may
+     * search the same tree at once.</p>
+     *
+     * @param range the range of names
+     */
+    void setNameRange(final NamePrefix.NameRange range) {
+        nameRange = range;
+    }
+
+    /**
+     * Discards the aggregates, and the range of names, cached for this node and its ancestors.
+     *
+     * <p>A cached value for a node implies cached values for all its descendants, so the walk up the tree stops at
+     * the first node with nothing cached.</p>
+     */
+    void invalidateAggregates() {
+        Node<T> node = this;
+        while (node instanceof NodeItem) {
+            final NodeItem<T> item = (NodeItem<T>) node;
+            final boolean hasAggregates = item.aggregates != null && !item.aggregates.isEmpty();
+            if (!hasAggregates && item.nameRange == null) {
+                return;
+            }
+            if (hasAggregates) {
+                item.aggregates.clear();
+            }
+            item.nameRange = null;
+            node = item.parent;
+        }
+    }
+
+    /**
+     * Fetches the listeners subscribed to this node.
+     *
+     * @return the subscriptions, or null if there have never been any
+     */
+    List<NodeEvents.Registration<T>> getSubscriptions() {
+        return subscriptions;
+    }
+
+    /**
+     * Subscribes a listener to this node.
+     *
+     * @param registration the subscription
+     */
+    synchronized void addSubscription(final NodeEvents.Registration<T> registration) {
+        if (subscriptions == null) {
+            subscriptions = new CopyOnWriteArrayList<>();
+        }
+        subscriptions.add(registration);
+    }
+
+    /**
+     * Removes a listener's subscription to this node.
+     *
+     * @param registration the subscription
+     */
+    synchronized void removeSubscription(final NodeEvents.Registration<T> registration) {
+        if (subscriptions != null) {
+            subscriptions.remove(registration);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("hiddenfield")
+    public void setData(final T data) {
+        final T oldData = this.data;
+        this.data = data;
+        invalidateAggregates();
+        NodeEvents.dataChanged(this, oldData);
+    }
+
+    @Override
+    @SuppressWarnings("hiddenfield")
+    public void setName(final String name) {
+        final String oldName = this.name;
+        this.name = name;
+        if (parent instanceof NodeItem) {
+            ((NodeItem<T>) parent).childRenamed(this);
+        }
+        invalidateAggregates();
+        NodeEvents.renamed(this, oldName);
+    }
+
+    /**
+     * Notifies the node that one of its children has been renamed.
+     *
+     * @param child the renamed child
+     */
+    void childRenamed(final Node<T> child) {
+        if (children instanceof NamedChildren) {
+            ((NamedChildren<T>) children).reindex(child);
+        }
+    }
+
     @Override
     public Optional<T> findData() {
         return Optional.ofNullable(data);
@@ -121,12 +320,25 @@ class NodeItem<T> implements Node<T> {
         if (this.equals(newParent) || newParent.isDescendantOf(this)) {
             throw new NodeException("Parent is a descendant");
         }
-        if (this.parent != null) {
-            this.parent.getChildren()
-                       .remove(this);
+        final Node<T> oldParent = this.parent;
+        if (oldParent != null) {
+            oldParent.getChildren()
+                     .remove(this);
+            invalidateAggregates(oldParent);
         }
         this.parent = newParent;
         newParent.addChild(this);
+        if (oldParent == null) {
+            NodeEvents.added(this, newParent);
+        } else if (oldParent != newParent) {
+            NodeEvents.moved(this, newParent, oldParent);
+        }
+    }
+
+    private static <T> void invalidateAggregates(final Node<T> node) {
+        if (node instanceof NodeItem) {
+            ((NodeItem<T>) node).invalidateAggregates();
+        }
     }
 
     @Override
@@ -150,6 +362,7 @@ class NodeItem<T> implements Node<T> {
                                             });
         }
         children.add(child);
+        invalidateAggregates();
         // update the child's parent if they don't have one or it is not this
         if (!child.findParent()
                   .filter(this::equals)
@@ -178,10 +391,8 @@ class NodeItem<T> implements Node<T> {
 
     @Override
     @SuppressWarnings("hiddenfield")
-    public Node<T> createChild(final T child, final String name) {
-        Node<T> node = createChild(child);
-        node.setName(name);
-        return node;
+    public Node<T> createChild(@NonNull final T child, final String name) {
+        return new NodeItem<>(child, name, this, new HashSet<>());
     }
 
     /**
@@ -192,6 +403,14 @@ class NodeItem<T> implements Node<T> {
      */
     @Override
     public void createDescendantLine(@NonNull final List<T> descendants) {
+        if (NodeEvents.isObserved(this)) {
+            NodeEvents.batch(() -> createDescendants(descendants));
+        } else {
+            createDescendants(descendants);
+        }
+    }
+
+    private void createDescendants(final List<T> descendants) {
         if (!descendants.isEmpty()) {
             val child = descendants.get(0);
             val remainingLine = descendants.subList(1, descendants.size());
@@ -254,6 +473,15 @@ class NodeItem<T> implements Node<T> {
 
     @Override
     public void insertInPath(final Node<T> nodeItem, final String... path) {
+        // the node may be moved from a tree with its own listeners
+        if (NodeEvents.isObserved(this) || NodeEvents.isObserved(nodeItem)) {
+            NodeEvents.batch(() -> insertIntoPath(nodeItem, path));
+        } else {
+            insertIntoPath(nodeItem, path);
+        }
+    }
+
+    private void insertIntoPath(final Node<T> nodeItem, final String... path) {
         if (path.length == 0) {
             insertChild(nodeItem);
         } else {
@@ -292,12 +520,23 @@ class NodeItem<T> implements Node<T> {
 
     @Override
     public Optional<Node<T>> findChildByName(@NonNull final String named) {
+        if (children instanceof NamedChildren) {
+            return ((NamedChildren<T>) children).findByName(named);
+        }
         return children.stream()
                        .filter((Node<T> t) -> t.getName()
                                                .equals(named))
                        .findAny();
     }
 
+    @Override
+    public Stream<Node<T>> findChildrenByNamePrefix(@NonNull final String prefix) {
+        if (children instanceof NamedChildren) {
+            return ((NamedChildren<T>) children).prefixed(prefix);
+        }
+        return Node.super.findChildrenByNamePrefix(prefix);
+    }
+
     @Override
     public boolean isNamed() {
         String currentName = getName();
@@ -307,7 +546,9 @@ class NodeItem<T> implements Node<T> {
     @Override
     public void removeChild(final Node<T> node) {
         if (children.remove(node)) {
+            invalidateAggregates();
             node.removeParent();
+            NodeEvents.removed(node, this);
         }
     }
 
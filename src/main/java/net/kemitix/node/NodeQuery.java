@@ -0,0 +1,482 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A query over the nodes below a root, by depth, name, data and ancestry.
+ *
+ * <p>Queries are immutable; each condition returns a new query. All conditions must hold for a node to be found. The
+ * depth of the root is zero, and the root itself is a candidate.</p>
+ *
+ * <pre>
+ * NodeQuery&lt;Account&gt; query = NodeQuery.&lt;Account&gt;select()
+ *                                       .atDepth(3, 5)
+ *                                       .withData(Account::isOverdrawn)
+ *                                       .under("customers");
+ * List&lt;Node&lt;Account&gt;&gt; found = query.find(root, ForkJoinPool.commonPool());
+ * </pre>
+ *
+ * <p>Each query has a plan, described by {@link #explain()}. A query {@link #matching(String) matching} a glob finds
+ * its candidates with a {@link NodeGlob}; otherwise the tree is walked. The walk does not descend below the deepest
+ * depth that can match, nor into subtrees that are too shallow to contain a node under the named ancestor, and finds
+ * nodes at the deepest depth by name, using the name index of an {@link OrderedNode}, when the name is constrained.
+ * The cheapest conditions are checked first.</p>
+ *
+ * @param <T> the type of data held in each node
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public final class NodeQuery<T> {
+
+    private static final int SURPLUS_TASKS = 2;
+
+    private int minDepth;
+
+    private int maxDepth = Integer.MAX_VALUE;
+
+    private String name;
+
+    private String namePrefix;
+
+    private String ancestorName;
+
+    private NodeGlob glob;
+
+    private final List<Predicate<? super T>> dataPredicates = new ArrayList<>();
+
+    private final List<Predicate<Node<T>>> nodePredicates = new ArrayList<>();
+
+    private NodeQuery() {
+    }
+
+    /**
+     * Creates a query that finds every node.
+     *
+     * @param <T> the type of data held in each node
+     *
+     * @return the query
+     */
+    public static <T> NodeQuery<T> select() {
+        return new NodeQuery<>();
+    }
+
+    private NodeQuery<T> copy() {
+        final NodeQuery<T> copy = new NodeQuery<>();
+        copy.minDepth = minDepth;
+        copy.maxDepth = maxDepth;
+        copy.name = name;
+        copy.namePrefix = namePrefix;
+        copy.ancestorName = ancestorName;
+        copy.glob = glob;
+        copy.dataPredicates.addAll(dataPredicates);
+        copy.nodePredicates.addAll(nodePredicates);
+        return copy;
+    }
+
+    /**
+     * Finds only nodes within a range of depths, where the root is at depth zero.
+     *
+     * @param min the lowest depth, inclusive
+     * @param max the highest depth, inclusive
+     *
+     * @return the new query
+     */
+    public NodeQuery<T> atDepth(final int min, final int max) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("Invalid depth range: " + min + ".." + max);
+        }
+        final NodeQuery<T> query = copy();
+        query.minDepth = min;
+        query.maxDepth = max;
+        return query;
+    }
+
+    /**
+     * Finds only nodes with the name.
+     *
+     * @param named the name
+     *
+     * @return the new query
+     */
+    public NodeQuery<T> named(final String named) {
+        final NodeQuery<T> query = copy();
+        query.name = Objects.requireNonNull(named, "named");
+        return query;
+    }
+
+    /**
+     * Finds only nodes with names that start with the prefix.
+     *
+     * @param prefix the start of the name
+     *
+     * @return the new query
+     */
+    public NodeQuery<T> namedWithPrefix(final String prefix) {
+        final NodeQuery<T> query = copy();
+        query.namePrefix = Objects.requireNonNull(prefix, "prefix");
+        return query;
+    }
+
+    /**
+     * Finds only nodes below an ancestor with the name.
+     *
+     * @param ancestor the name of the ancestor, which may be the root
+     *
+     * @return the new query
+     */
+    public NodeQuery<T> under(final String ancestor) {
+        final NodeQuery<T> query = copy();
+        query.ancestorName = Objects.requireNonNull(ancestor, "ancestor");
+        return query;
+    }
+
+    /**
+     * Finds only nodes whose path below the root matches the glob.
+     *
+     * @param pattern the glob pattern, as for {@link NodeGlob}
+     *
+     * @return the new query
+     */
+    public NodeQuery<T> matching(final String pattern) {
+        final NodeQuery<T> query = copy();
+        query.glob = NodeGlob.compile(pattern);
+        return query;
+    }
+
+    /**
+     * Finds only nodes that have data, that matches the predicate.
+     *
+     * @param predicate the test for the data
+     *
+     * @return the new query
+     */
+    public NodeQuery<T> withData(final Predicate<? super T> predicate) {
+        final NodeQuery<T> query = copy();
+        query.dataPredicates.add(Objects.requireNonNull(predicate, "predicate"));
+        return query;
+    }
+
+    /**
+     * Finds only nodes that match the predicate.
+     *
+     * <p>These predicates are checked after all other conditions.</p>
+     *
+     * @param predicate the test for the node
+     *
+     * @return the new query
+     */
+    public NodeQuery<T> where(final Predicate<Node<T>> predicate) {
+        final NodeQuery<T> query = copy();
+        query.nodePredicates.add(Objects.requireNonNull(predicate, "predicate"));
+        return query;
+    }
+
+    /**
+     * Describes the plan for running the query, one step per line.
+     *
+     * @return the plan
+     */
+    public String explain() {
+        final List<String> steps = new ArrayList<>();
+        if (glob == null) {
+            steps.add("access: walk depth-first from the root");
+            if (maxDepth != Integer.MAX_VALUE) {
+                steps.add("prune: do not descend below depth " + maxDepth);
+            }
+            if (ancestorName != null && maxDepth != Integer.MAX_VALUE) {
+                steps.add("prune: do not descend from depth " + (maxDepth - 1) + " unless under \"" + ancestorName
+                        + "\"");
+            }
+            if (maxDepth != Integer.MAX_VALUE && keyName() != null) {
+                steps.add("index: find children at depth " + maxDepth + " by " + describeName());
+            }
+        } else {
+            steps.add("access: glob \"" + glob + "\" using the name index");
+        }
+        if (minDepth > 0 || maxDepth != Integer.MAX_VALUE) {
+            steps.add("filter: depth " + minDepth + ".." + (maxDepth == Integer.MAX_VALUE ? "" : maxDepth));
+        }
+        if (keyName() != null) {
+            steps.add("filter: " + describeName());
+        }
+        if (ancestorName != null) {
+            steps.add("filter: under \"" + ancestorName + "\"");
+        }
+        if (!dataPredicates.isEmpty()) {
+            steps.add("filter: data matches " + dataPredicates.size() + " predicate(s)");
+        }
+        if (!nodePredicates.isEmpty()) {
+            steps.add("filter: node matches " + nodePredicates.size() + " predicate(s)");
+        }
+        return String.join("\n", steps);
+    }
+
+    private String keyName() {
+        if (name != null) {
+            return name;
+        }
+        return namePrefix;
+    }
+
+    private String describeName() {
+        if (name != null) {
+            return "name \"" + name + "\"";
+        }
+        return "name prefix \"" + namePrefix + "\"";
+    }
+
+    /**
+     * Lazily streams the matching nodes, depth-first.
+     *
+     * @param root the root of the tree to search
+     *
+     * @return the matching nodes
+     */
+    public Stream<Node<T>> stream(final Node<T> root) {
+        if (glob != null) {
+            return glob.match(root)
+                       .map(node -> frameOf(node, root))
+                       .filter(this::accepts)
+                       .map(frame -> frame.node);
+        }
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(new QueryIterator(root), Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Finds the matching nodes, searching separate branches of the tree in parallel.
+     *
+     * <p>A query {@link #matching(String) matching} a glob is run sequentially. The nodes are returned in no
+     * particular order.</p>
+     *
+     * @param root the root of the tree to search
+     * @param pool the pool in which to search
+     *
+     * @return the matching nodes
+     */
+    public List<Node<T>> find(final Node<T> root, final ForkJoinPool pool) {
+        if (glob != null) {
+            return stream(root).collect(Collectors.toList());
+        }
+        final Deque<Frame<T>> frames = new ArrayDeque<>();
+        frames.push(new Frame<>(root, 0, false));
+        return pool.invoke(new QueryTask(frames));
+    }
+
+    private Frame<T> frameOf(final Node<T> node, final Node<T> root) {
+        int depth = 0;
+        boolean under = false;
+        Node<T> current = node;
+        while (current != root) {
+            current = current.findParent()
+                             .orElseThrow(() -> new NodeException("Node is not below the root"));
+            depth++;
+            under = under || isAncestor(current);
+        }
+        return new Frame<>(node, depth, under);
+    }
+
+    private boolean isAncestor(final Node<T> node) {
+        return ancestorName != null && ancestorName.equals(node.getName());
+    }
+
+    private boolean accepts(final Frame<T> frame) {
+        if (frame.depth < minDepth || frame.depth > maxDepth) {
+            return false;
+        }
+        final Node<T> node = frame.node;
+        if (name != null && !name.equals(node.getName())) {
+            return false;
+        }
+        if (namePrefix != null && !NamePrefix.matches(node, namePrefix)) {
+            return false;
+        }
+        if (ancestorName != null && !frame.under) {
+            return false;
+        }
+        if (!dataPredicates.isEmpty()) {
+            final Optional<T> data = node.findData();
+            if (!data.isPresent() || !dataPredicates.stream()
+                                                    .allMatch(predicate -> predicate.test(data.get()))) {
+                return false;
+            }
+        }
+        return nodePredicates.stream()
+                             .allMatch(predicate -> predicate.test(node));
+    }
+
+    /**
+     * Adds the children of the frame that may match, or have descendants that may match, to the stack.
+     */
+    private void descend(final Frame<T> frame, final Deque<Frame<T>> stack) {
+        final int childDepth = frame.depth + 1;
+        if (childDepth > maxDepth) {
+            return;
+        }
+        final boolean childUnder = frame.under || isAncestor(frame.node);
+        if (ancestorName != null && !childUnder && childDepth + 1 > maxDepth) {
+            return;
+        }
+        // pushed in reverse so that children are searched in the order they are given
+        final Deque<Frame<T>> children = new ArrayDeque<>();
+        for (final Node<T> child : children(frame.node, childDepth)) {
+            children.push(new Frame<>(child, childDepth, childUnder));
+        }
+        children.forEach(stack::push);
+    }
+
+    private Collection<Node<T>> children(final Node<T> node, final int childDepth) {
+        if (childDepth < maxDepth) {
+            return node.getChildren();
+        }
+        if (name != null) {
+            return node.findChildByName(name)
+                       .map(Collections::singletonList)
+                       .orElseGet(Collections::emptyList);
+        }
+        if (namePrefix != null) {
+            return node.findChildrenByNamePrefix(namePrefix)
+                       .collect(Collectors.toList());
+        }
+        return node.getChildren();
+    }
+
+    /**
+     * A node reached by the walk, with its depth and whether it is below the named ancestor.
+     */
+    private static final class Frame<T> {
+
+        private final Node<T> node;
+
+        private final int depth;
+
+        private final boolean under;
+
+        Frame(final Node<T> node, final int depth, final boolean under) {
+            this.node = node;
+            this.depth = depth;
+            this.under = under;
+        }
+    }
+
+    /**
+     * Walks the tree with an explicit stack, stopping at each match.
+     */
+    private final class QueryIterator implements Iterator<Node<T>> {
+
+        private final Deque<Frame<T>> stack = new ArrayDeque<>();
+
+        private Node<T> next;
+
+        QueryIterator(final Node<T> root) {
+            stack.push(new Frame<>(root, 0, false));
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !stack.isEmpty()) {
+                final Frame<T> frame = stack.pop();
+                descend(frame, stack);
+                if (accepts(frame)) {
+                    next = frame.node;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Node<T> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Node<T> match = next;
+            next = null;
+            return match;
+        }
+    }
+
+    /**
+     * Walks part of the tree, handing half of its pending nodes to a new task whenever the pool has idle threads.
+     */
+    private final class QueryTask extends RecursiveTask<List<Node<T>>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Deque<Frame<T>> stack;
+
+        private final transient List<Node<T>> found = new ArrayList<>();
+
+        QueryTask(final Deque<Frame<T>> stack) {
+            this.stack = stack;
+        }
+
+        @Override
+        protected List<Node<T>> compute() {
+            final List<QueryTask> forked = new ArrayList<>();
+            while (!stack.isEmpty()) {
+                if (stack.size() > 1 && getSurplusQueuedTaskCount() < SURPLUS_TASKS) {
+                    final QueryTask task = new QueryTask(split());
+                    task.fork();
+                    forked.add(task);
+                }
+                final Frame<T> frame = stack.pop();
+                descend(frame, stack);
+                if (accepts(frame)) {
+                    found.add(frame.node);
+                }
+            }
+            for (final QueryTask task : forked) {
+                found.addAll(task.join());
+            }
+            return found;
+        }
+
+        private Deque<Frame<T>> split() {
+            final Deque<Frame<T>> half = new ArrayDeque<>();
+            final int count = stack.size() / 2;
+            for (int i = 0; i < count; i++) {
+                half.addFirst(stack.pollLast());
+            }
+            return half;
+        }
+    }
+}
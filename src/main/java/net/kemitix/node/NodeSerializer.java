@@ -0,0 +1,467 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.kemitix.node;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * Writes node trees to, and reads them back from, a compact binary format.
+ *
+ * <p>The format starts with a header of the magic bytes {@code NODE}, a version byte and a flags byte. Each node
+ * then follows in pre-order as three varints: a name reference, the length of the encoded data plus one (zero where
+ * the node is empty) followed by the data itself, and the number of children.</p>
+ *
+ * <p>Names are held in a dictionary shared across the whole tree. A name reference of zero is an unnamed node, one
+ * introduces a new name whose UTF-8 bytes follow, and any higher value refers to a previously introduced name.</p>
+ *
+ * <p>An {@link #indexed()} serializer follows the nodes with an index: the offset of each node, in pre-order, as
+ * eight bytes; the number of nodes in each node's subtree as four bytes; and the offset of each name in the
+ * dictionary as eight bytes. A footer of the offset of the index, the number of nodes, the number of names and the
+ * magic bytes {@code NIDX} completes the file. This allows a tree to be {@link #map(Path) mapped} from a file and
+ * decoded only as it is explored.</p>
+ *
+ * <p>Trees are written and read without recursion, so are not limited in depth by the size of the stack.</p>
+ *
+ * @param <T> the type of data held in each node
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public final class NodeSerializer<T> {
+
+    private static final byte[] MAGIC = {'N', 'O', 'D', 'E'};
+    private static final int VERSION = 1;
+    private static final int VERSION_AND_FLAGS_SIZE = 2;
+    private static final int NO_FLAGS = 0;
+    private static final int INDEXED = 1;
+
+    /**
+     * The name reference for an unnamed node.
+     */
+    static final int UNNAMED = 0;
+
+    /**
+     * The name reference that introduces a new name.
+     */
+    static final int NEW_NAME = 1;
+
+    /**
+     * The name reference of the first name in the dictionary.
+     */
+    static final int FIRST_NAME_INDEX = 2;
+
+    /**
+     * The data length for an empty node.
+     */
+    static final int NO_DATA = 0;
+
+    private final NodeDataCodec<T> codec;
+    private final boolean indexed;
+
+    private NodeSerializer(final NodeDataCodec<T> codec, final boolean indexed) {
+        this.codec = codec;
+        this.indexed = indexed;
+    }
+
+    /**
+     * Creates a serializer that uses the codec for the data in each node.
+     *
+     * @param codec the codec for node data
+     * @param <T>   the type of data held in each node
+     *
+     * @return the serializer
+     */
+    public static <T> NodeSerializer<T> using(final NodeDataCodec<T> codec) {
+        return new NodeSerializer<>(codec, false);
+    }
+
+    /**
+     * Creates a serializer that also writes an index of where each node and name is stored.
+     *
+     * <p>The index adds twelve bytes for each node and eight for each distinct name, and is required to
+     * {@link #map(Path)} the tree. Readers that don't need it, such as {@link #read(InputStream)}, ignore it.</p>
+     *
+     * @return the serializer
+     */
+    public NodeSerializer<T> indexed() {
+        return new NodeSerializer<>(codec, true);
+    }
+
+    /**
+     * Writes the node and all its descendants to the stream.
+     *
+     * <p>The stream is flushed, but not closed.</p>
+     *
+     * @param node the node to write
+     * @param out  the stream to write to
+     *
+     * @throws IOException if there is an error writing to the stream
+     */
+    public void write(final Node<T> node, final OutputStream out) throws IOException {
+        write(node, BinaryOutput.to(out));
+    }
+
+    /**
+     * Writes the node and all its descendants to the channel.
+     *
+     * <p>The channel is not closed.</p>
+     *
+     * @param node the node to write
+     * @param out  the channel to write to
+     *
+     * @throws IOException if there is an error writing to the channel
+     */
+    public void write(final Node<T> node, final WritableByteChannel out) throws IOException {
+        write(node, BinaryOutput.to(out));
+    }
+
+    /**
+     * Reads a tree from the stream.
+     *
+     * @param in the stream to read from
+     *
+     * @return the root node of the tree
+     *
+     * @throws IOException if there is an error reading from the stream or it does not contain a tree
+     */
+    public Node<T> read(final InputStream in) throws IOException {
+        return read(BinaryInput.from(in), NodeSerializer::newNode);
+    }
+
+    /**
+     * Reads a tree from the channel.
+     *
+     * @param in the channel to read from
+     *
+     * @return the root node of the tree
+     *
+     * @throws IOException if there is an error reading from the channel or it does not contain a tree
+     */
+    public Node<T> read(final ReadableByteChannel in) throws IOException {
+        return read(BinaryInput.from(in), NodeSerializer::newNode);
+    }
+
+    /**
+     * Reads an immutable tree from the stream.
+     *
+     * @param in the stream to read from
+     *
+     * @return the root node of the immutable tree
+     *
+     * @throws IOException if there is an error reading from the stream or it does not contain a tree
+     */
+    public Node<T> readImmutable(final InputStream in) throws IOException {
+        return read(BinaryInput.from(in), NodeSerializer::newImmutableNode);
+    }
+
+    /**
+     * Reads an immutable tree from the channel.
+     *
+     * @param in the channel to read from
+     *
+     * @return the root node of the immutable tree
+     *
+     * @throws IOException if there is an error reading from the channel or it does not contain a tree
+     */
+    public Node<T> readImmutable(final ReadableByteChannel in) throws IOException {
+        return read(BinaryInput.from(in), NodeSerializer::newImmutableNode);
+    }
+
+    /**
+     * Maps a tree written by an {@link #indexed()} serializer directly from a file.
+     *
+     * <p>The returned tree is read-only and decodes the names, data and children of each node only when they are
+     * first accessed, so opening even a large tree is fast, and the file's pages are shared through the operating
+     * system's page cache with any other process mapping the same file. The file may not be larger than 2GB.</p>
+     *
+     * @param path the file to map
+     *
+     * @return the root node of the tree
+     *
+     * @throws IOException if there is an error reading the file or it does not contain an indexed tree
+     */
+    public Node<T> map(final Path path) throws IOException {
+        final ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Tree is too large to map: " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        for (final byte magic : MAGIC) {
+            if (buffer.remaining() == 0 || buffer.get() != magic) {
+                throw new IOException("Not a serialized node tree");
+            }
+        }
+        if (buffer.remaining() < VERSION_AND_FLAGS_SIZE) {
+            throw new IOException("Not a serialized node tree");
+        }
+        final int version = buffer.get();
+        if (version != VERSION) {
+            throw new IOException("Unsupported format version: " + version);
+        }
+        if ((buffer.get() & INDEXED) == 0) {
+            throw new IOException("Tree was written without an index");
+        }
+        return MappedNodeItem.root(buffer, codec);
+    }
+
+    private static <T> NodeItem<T> newNode(final T data, final String name) {
+        return new NodeItem<>(data, name, null, Collections.emptySet());
+    }
+
+    private static <T> NodeItem<T> newImmutableNode(final T data, final String name) {
+        return ImmutableNodeItem.newRoot(data, name, Collections.emptySet());
+    }
+
+    private void write(final Node<T> root, final BinaryOutput out) throws IOException {
+        for (final byte magic : MAGIC) {
+            out.writeByte(magic);
+        }
+        out.writeByte(VERSION);
+        final Index index;
+        if (indexed) {
+            out.writeByte(INDEXED);
+            index = new Index();
+        } else {
+            out.writeByte(NO_FLAGS);
+            index = null;
+        }
+        final Map<String, Integer> names = new HashMap<>();
+        final Deque<Iterator<Node<T>>> siblings = new ArrayDeque<>();
+        writeNode(root, names, index, out);
+        siblings.push(root.getChildren()
+                          .iterator());
+        while (!siblings.isEmpty()) {
+            final Iterator<Node<T>> next = siblings.peek();
+            if (next.hasNext()) {
+                final Node<T> node = next.next();
+                writeNode(node, names, index, out);
+                siblings.push(node.getChildren()
+                                  .iterator());
+            } else {
+                siblings.pop();
+                if (index != null) {
+                    index.closeNode();
+                }
+            }
+        }
+        if (index != null) {
+            index.write(out);
+        }
+        out.flush();
+    }
+
+    private void writeNode(
+            final Node<T> node,
+            final Map<String, Integer> names,
+            final Index index,
+            final BinaryOutput out
+    ) throws IOException {
+        if (index != null) {
+            index.openNode(out.position());
+        }
+        final String name = node.getName();
+        if (name == null || name.isEmpty()) {
+            out.writeVarInt(UNNAMED);
+        } else {
+            final Integer nameIndex = names.get(name);
+            if (nameIndex == null) {
+                names.put(name, names.size());
+                out.writeVarInt(NEW_NAME);
+                if (index != null) {
+                    index.addName(out.position());
+                }
+                out.writeString(name);
+            } else {
+                out.writeVarInt(FIRST_NAME_INDEX + nameIndex);
+            }
+        }
+        final T data = node.findData()
+                           .orElse(null);
+        if (data == null) {
+            out.writeVarInt(NO_DATA);
+        } else {
+            final byte[] bytes = codec.encode(data);
+            out.writeVarInt(bytes.length + 1);
+            out.writeBytes(bytes);
+        }
+        out.writeVarInt(node.getChildren()
+                            .size());
+    }
+
+    private Node<T> read(
+            final BinaryInput in,
+            final BiFunction<T, String, NodeItem<T>> factory
+    ) throws IOException {
+        for (final byte magic : MAGIC) {
+            if (in.readByte() != magic) {
+                throw new IOException("Not a serialized node tree");
+            }
+        }
+        final int version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported format version: " + version);
+        }
+        // the index that follows the nodes of an indexed tree is not needed to read it in full
+        in.readByte();
+        final List<String> names = new ArrayList<>();
+        final NodeItem<T> root = readNode(in, names, factory);
+        final Deque<Frame<T>> parents = new ArrayDeque<>();
+        parents.push(new Frame<>(root, in.readVarInt()));
+        while (!parents.isEmpty()) {
+            final Frame<T> parent = parents.peek();
+            if (parent.remaining == 0) {
+                parents.pop();
+            } else {
+                parent.remaining--;
+                final NodeItem<T> child = readNode(in, names, factory);
+                parent.node.attachChild(child);
+                final int children = in.readVarInt();
+                if (children > 0) {
+                    parents.push(new Frame<>(child, children));
+                }
+            }
+        }
+        return root;
+    }
+
+    private NodeItem<T> readNode(
+            final BinaryInput in,
+            final List<String> names,
+            final BiFunction<T, String, NodeItem<T>> factory
+    ) throws IOException {
+        final String name = readName(in, names);
+        final int length = in.readVarInt();
+        if (length == NO_DATA) {
+            return factory.apply(null, name);
+        }
+        return factory.apply(codec.decode(in.readBytes(length - 1)), name);
+    }
+
+    private static String readName(final BinaryInput in, final List<String> names) throws IOException {
+        final int reference = in.readVarInt();
+        if (reference == UNNAMED) {
+            return "";
+        }
+        if (reference == NEW_NAME) {
+            final String name = in.readString();
+            names.add(name);
+            return name;
+        }
+        final int index = reference - FIRST_NAME_INDEX;
+        if (index >= names.size()) {
+            throw new IOException("Unknown name reference: " + reference);
+        }
+        return names.get(index);
+    }
+
+    /**
+     * The positions of each node and name as they are written, and the number of nodes in each subtree.
+     */
+    private static final class Index {
+
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private long[] nodeOffsets = new long[INITIAL_CAPACITY];
+        private int[] subtreeSizes = new int[INITIAL_CAPACITY];
+        private int nodeCount;
+        private int[] openNodes = new int[INITIAL_CAPACITY];
+        private int depth;
+        private long[] nameOffsets = new long[INITIAL_CAPACITY];
+        private int nameCount;
+
+        void openNode(final long offset) {
+            if (nodeCount == nodeOffsets.length) {
+                nodeOffsets = Arrays.copyOf(nodeOffsets, nodeCount * 2);
+                subtreeSizes = Arrays.copyOf(subtreeSizes, nodeCount * 2);
+            }
+            if (depth == openNodes.length) {
+                openNodes = Arrays.copyOf(openNodes, depth * 2);
+            }
+            nodeOffsets[nodeCount] = offset;
+            openNodes[depth++] = nodeCount++;
+        }
+
+        void closeNode() {
+            final int node = openNodes[--depth];
+            subtreeSizes[node] = nodeCount - node;
+        }
+
+        void addName(final long offset) {
+            if (nameCount == nameOffsets.length) {
+                nameOffsets = Arrays.copyOf(nameOffsets, nameCount * 2);
+            }
+            nameOffsets[nameCount++] = offset;
+        }
+
+        void write(final BinaryOutput out) throws IOException {
+            final long indexOffset = out.position();
+            for (int i = 0; i < nodeCount; i++) {
+                out.writeLong(nodeOffsets[i]);
+            }
+            for (int i = 0; i < nodeCount; i++) {
+                out.writeInt(subtreeSizes[i]);
+            }
+            for (int i = 0; i < nameCount; i++) {
+                out.writeLong(nameOffsets[i]);
+            }
+            out.writeLong(indexOffset);
+            out.writeInt(nodeCount);
+            out.writeInt(nameCount);
+            out.writeInt(MappedNodeItem.INDEX_MAGIC);
+        }
+    }
+
+    /**
+     * A node being read whose children are still to follow.
+     *
+     * @param <T> the type of data held in each node
+     */
+    private static final class Frame<T> {
+
+        private final NodeItem<T> node;
+        private int remaining;
+
+        Frame(final NodeItem<T> node, final int remaining) {
+            this.node = node;
+            this.remaining = remaining;
+        }
+    }
+}
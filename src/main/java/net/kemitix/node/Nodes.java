@@ -21,9 +21,28 @@
 
 package net.kemitix.node;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * Utility class for {@link Node} items.
@@ -32,6 +51,8 @@ import java.util.stream.Collectors;
  */
 public final class Nodes {
 
+    private static final String UNNAMED = "(unnamed)";
+
     private Nodes() {
     }
 
@@ -89,9 +110,80 @@ public final class Nodes {
         return new NodeItem<>(data, name, parent, new HashSet<>());
     }
 
+    /**
+     * Creates a new named root node that keeps its children in order of their names.
+     *
+     * @param data the data the node will contain
+     * @param name the name of the node
+     * @param <T>  the type of the data
+     *
+     * @return the new node
+     */
+    public static <T> OrderedNode<T> orderedRoot(final T data, final String name) {
+        return new OrderedNodeItem<>(data, name, null);
+    }
+
+    /**
+     * Creates a new named child node that keeps its children in order of their names.
+     *
+     * @param data   the data the node will contain
+     * @param name   the name of the node
+     * @param parent the parent of the node
+     * @param <T>    the type of the data
+     *
+     * @return the new node
+     */
+    public static <T> OrderedNode<T> orderedChild(final T data, final String name, final Node<T> parent) {
+        return new OrderedNodeItem<>(data, name, parent);
+    }
+
+    /**
+     * Creates a new named root node whose descendants are loaded as they are needed.
+     *
+     * <p>The loader is not called until the node's children are first needed, such as by
+     * {@link Node#getChildren()}, {@link Node#findChildByName(String)} or {@link Node#stream()}. The loaded children
+     * are retained and are themselves loaded in the same way.</p>
+     *
+     * @param data   the data the node will contain
+     * @param name   the name of the node
+     * @param loader loads the children of each node
+     * @param <T>    the type of the data
+     *
+     * @return the new node
+     */
+    public static <T> Node<T> lazyRoot(final T data, final String name, final ChildLoader<T> loader) {
+        return new LazyNodeItem<>(data, name, loader, null);
+    }
+
+    /**
+     * Creates a new named root node whose descendants are loaded as they are needed and may be dropped again to keep
+     * within the budget of a cache.
+     *
+     * <p>The cache may be shared between several trees to give them a common budget.</p>
+     *
+     * @param data   the data the node will contain
+     * @param name   the name of the node
+     * @param loader loads the children of each node
+     * @param cache  limits the loaded nodes kept in memory
+     * @param <T>    the type of the data
+     *
+     * @return the new node
+     */
+    public static <T> Node<T> lazyRoot(
+            final T data,
+            final String name,
+            final ChildLoader<T> loader,
+            final LazyNodeCache<T> cache
+    ) {
+        return new LazyNodeItem<>(data, name, loader, cache);
+    }
+
     /**
      * Creates an immutable copy of an existing node tree.
      *
+     * <p>The tree is copied without recursion, so is not limited by its depth. Every node of the copy, including the
+     * parent of each node, is immutable.</p>
+     *
      * @param root the root node of the source tree
      * @param <T>  the type of the data
      *
@@ -102,26 +194,13 @@ public final class Nodes {
                 .isPresent()) {
             throw new IllegalArgumentException("source must be the root node");
         }
-        final Set<Node<T>> children = getImmutableChildren(root);
-        return ImmutableNodeItem.newRoot(root.findData()
-                .orElse(null), root.getName(), children);
-    }
-
-    private static <T> Set<Node<T>> getImmutableChildren(final Node<T> source) {
-        return source.getChildren()
-                .stream()
-                .map(Nodes::asImmutableChild)
-                .collect(Collectors.toSet());
-    }
-
-    private static <T> Node<T> asImmutableChild(
-            final Node<T> source
-    ) {
-        return ImmutableNodeItem.newChild(source.findData()
-                        .orElse(null), source.getName(), source.findParent()
-                        .orElse(null),
-                getImmutableChildren(source)
-        );
+        return new SubtreeReducer<T, ImmutableNodeItem<T>>((source, children) -> {
+            final ImmutableNodeItem<T> node = ImmutableNodeItem.newRoot(source.findData()
+                                                                              .orElse(null), source.getName(),
+                    Collections.emptySet());
+            children.forEach(node::attachChild);
+            return node;
+        }, SubtreeReducer.DEFAULT_THRESHOLD).reduce(root);
     }
 
     /**
@@ -137,16 +216,576 @@ public final class Nodes {
             final int depth
     ) {
         final StringBuilder sb = new StringBuilder();
-        if (node.isNamed()) {
-            sb.append(formatByDepth(node.getName(), depth));
-        } else if (!node.getChildren().isEmpty()) {
-            sb.append(formatByDepth("(unnamed)", depth));
+        try {
+            drawTree(node, depth, sb, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        } catch (IOException e) {
+            // a StringBuilder doesn't throw IOExceptions
+            throw new UncheckedIOException(e);
         }
-        node.getChildren().forEach(c -> sb.append(drawTree(c, depth + 1)));
         return sb.toString();
     }
 
-    private static String formatByDepth(final String value, final int depth) {
-        return String.format("[%1$" + (depth + value.length()) + "s]\n", value);
+    /**
+     * Draw a representation of the tree.
+     *
+     * <p>The tree is written as it is walked, without recursion, so drawing large or deep trees needs little memory
+     * beyond the output itself.</p>
+     *
+     * @param node the root node to draw
+     * @param out  where to draw the tree
+     * @param <T>  the type of the node's content
+     *
+     * @throws IOException if there is an error writing to {@code out}
+     */
+    public static <T> void drawTree(
+            final Node<T> node,
+            final Appendable out
+    ) throws IOException {
+        drawTree(node, 0, out, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Draw a representation of part of the tree.
+     *
+     * <p>Drawing stops once {@code maxNodes} lines have been drawn. Nodes more than {@code maxDepth} levels below
+     * {@code node} are not drawn and the children of nodes {@code maxDepth} levels below are never requested, so an
+     * unnamed node at that depth is drawn whether or not it has children.</p>
+     *
+     * @param node     the root node to draw
+     * @param out      where to draw the tree
+     * @param maxDepth the number of levels below the root node to draw
+     * @param maxNodes the maximum number of nodes to draw
+     * @param <T>      the type of the node's content
+     *
+     * @throws IOException if there is an error writing to {@code out}
+     */
+    public static <T> void drawTree(
+            final Node<T> node,
+            final Appendable out,
+            final int maxDepth,
+            final int maxNodes
+    ) throws IOException {
+        drawTree(node, 0, out, maxDepth, maxNodes);
+    }
+
+    private static <T> void drawTree(
+            final Node<T> node,
+            final int depth,
+            final Appendable out,
+            final int maxDepth,
+            final int maxNodes
+    ) throws IOException {
+        if (maxNodes <= 0) {
+            return;
+        }
+        final StringBuilder indent = new StringBuilder();
+        final Deque<Iterator<Node<T>>> siblings = new ArrayDeque<>();
+        int drawn = drawNode(node, depth, indent, out, maxDepth > 0);
+        if (maxDepth > 0) {
+            siblings.push(node.getChildren()
+                              .iterator());
+        }
+        while (!siblings.isEmpty() && drawn < maxNodes) {
+            final Iterator<Node<T>> next = siblings.peek();
+            if (next.hasNext()) {
+                final Node<T> child = next.next();
+                final boolean expand = siblings.size() < maxDepth;
+                drawn += drawNode(child, depth + siblings.size(), indent, out, expand);
+                if (expand) {
+                    siblings.push(child.getChildren()
+                                       .iterator());
+                }
+            } else {
+                siblings.pop();
+            }
+        }
+    }
+
+    private static <T> int drawNode(
+            final Node<T> node,
+            final int depth,
+            final StringBuilder indent,
+            final Appendable out,
+            final boolean expand
+    ) throws IOException {
+        if (node.isNamed()) {
+            drawLine(node.getName(), depth, indent, out);
+            return 1;
+        }
+        // an unnamed node is only drawn if it has children, unless they are not to be requested
+        if (!expand || !node.getChildren()
+                            .isEmpty()) {
+            drawLine(UNNAMED, depth, indent, out);
+            return 1;
+        }
+        return 0;
+    }
+
+    private static void drawLine(
+            final String value,
+            final int depth,
+            final StringBuilder indent,
+            final Appendable out
+    ) throws IOException {
+        while (indent.length() < depth) {
+            indent.append(' ');
+        }
+        out.append('[')
+           .append(indent, 0, depth)
+           .append(value)
+           .append("]\n");
+    }
+
+    /**
+     * Builds a tree from its representation as drawn by {@link #drawTree(Node, Appendable)}.
+     *
+     * <p>Each line holds one node, its name within square brackets, indented by one space for each level below the
+     * root node. A name of {@code (unnamed)} creates an unnamed node. The tree is built as the text is read, holding
+     * only the nodes along the current line of descent, so parsing takes time in proportion to the number of lines.
+     * </p>
+     *
+     * @param reader      the source of the text
+     * @param dataFactory creates the data for each node from its name, which is empty for unnamed nodes
+     * @param <T>         the type of the data
+     *
+     * @return the root node of the tree
+     *
+     * @throws IOException if there is an error reading the text
+     */
+    public static <T> Node<T> parseTree(
+            final Reader reader,
+            final Function<String, T> dataFactory
+    ) throws IOException {
+        final BufferedReader lines;
+        if (reader instanceof BufferedReader) {
+            lines = (BufferedReader) reader;
+        } else {
+            lines = new BufferedReader(reader);
+        }
+        final List<ParentNode<T>> parents = new ArrayList<>();
+        NodeItem<T> root = null;
+        int rootDepth = 0;
+        int lineNumber = 0;
+        String line = lines.readLine();
+        while (line != null) {
+            lineNumber++;
+            if (!line.isEmpty()) {
+                if (line.length() < 2 || line.charAt(0) != '[' || line.charAt(line.length() - 1) != ']') {
+                    throw new NodeException("Malformed node at line " + lineNumber + ": " + line);
+                }
+                int indent = 1;
+                while (line.charAt(indent) == ' ') {
+                    indent++;
+                }
+                String name = line.substring(indent, line.length() - 1);
+                if (UNNAMED.equals(name)) {
+                    name = "";
+                }
+                final NodeItem<T> node = new NodeItem<>(dataFactory.apply(name), name, null, Collections.emptySet());
+                if (root == null) {
+                    root = node;
+                    rootDepth = indent;
+                } else {
+                    final int depth = indent - rootDepth;
+                    if (depth < 1 || depth > parents.size()) {
+                        throw new NodeException("Unexpected indentation at line " + lineNumber + ": " + line);
+                    }
+                    while (parents.size() > depth) {
+                        parents.remove(parents.size() - 1);
+                    }
+                    parents.get(depth - 1)
+                           .attach(node, lineNumber);
+                }
+                parents.add(new ParentNode<>(node));
+            }
+            line = lines.readLine();
+        }
+        if (root == null) {
+            throw new NodeException("No nodes to parse");
+        }
+        return root;
+    }
+
+    /**
+     * Builds a tree from its UTF-8 encoded representation as drawn by {@link #drawTree(Node, Appendable)}.
+     *
+     * @param channel     the source of the text
+     * @param dataFactory creates the data for each node from its name, which is empty for unnamed nodes
+     * @param <T>         the type of the data
+     *
+     * @return the root node of the tree
+     *
+     * @throws IOException if there is an error reading the text
+     * @see #parseTree(Reader, Function)
+     */
+    public static <T> Node<T> parseTree(
+            final ReadableByteChannel channel,
+            final Function<String, T> dataFactory
+    ) throws IOException {
+        return parseTree(Channels.newReader(channel, StandardCharsets.UTF_8.name()), dataFactory);
+    }
+
+    /**
+     * Folds the values of every node in the tree into a single result, evaluating sibling subtrees in parallel in the
+     * common fork/join pool.
+     *
+     * @param node      the root of the tree to fold
+     * @param leafFn    the value of each node on its own
+     * @param combineFn combines two values, which must be associative and, as children are unordered, commutative
+     * @param <T>       the type of data held in each node
+     * @param <R>       the type of the result
+     *
+     * @return the combined values of the node and all its descendants
+     * @see #fold(Node, Function, BinaryOperator, int, ForkJoinPool)
+     */
+    public static <T, R> R fold(
+            final Node<T> node,
+            final Function<Node<T>, R> leafFn,
+            final BinaryOperator<R> combineFn
+    ) {
+        return fold(node, leafFn, combineFn, SubtreeReducer.DEFAULT_THRESHOLD, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Folds the values of every node in the tree into a single result, evaluating sibling subtrees in parallel.
+     *
+     * <p>The tree is evaluated bottom-up: the result for each node is its own value combined with the result for each
+     * of its children. Subtrees with fewer nodes than the threshold are evaluated sequentially, as are batches of small
+     * sibling subtrees.</p>
+     *
+     * @param node                the root of the tree to fold
+     * @param leafFn              the value of each node on its own
+     * @param combineFn           combines two values, which must be associative and, as children are unordered,
+     *                            commutative
+     * @param sequentialThreshold the number of nodes below which a subtree is evaluated sequentially
+     * @param pool                the pool in which to evaluate the tree
+     * @param <T>                 the type of data held in each node
+     * @param <R>                 the type of the result
+     *
+     * @return the combined values of the node and all its descendants
+     */
+    public static <T, R> R fold(
+            final Node<T> node,
+            final Function<Node<T>, R> leafFn,
+            final BinaryOperator<R> combineFn,
+            final int sequentialThreshold,
+            final ForkJoinPool pool
+    ) {
+        return new SubtreeReducer<T, R>((current, results) -> {
+            R result = leafFn.apply(current);
+            for (final R childResult : results) {
+                result = combineFn.apply(result, childResult);
+            }
+            return result;
+        }, sequentialThreshold).reduce(node, pool);
+    }
+
+    /**
+     * Creates a new tree with the same names and structure as the node and its descendants, but with the data of each
+     * node mapped by the function, building sibling subtrees in parallel in the common fork/join pool.
+     *
+     * <p>The function is not called for empty nodes, which remain empty.</p>
+     *
+     * @param node   the root of the tree to map
+     * @param mapper maps the data of each node
+     * @param <A>    the type of data in the source tree
+     * @param <B>    the type of data in the new tree
+     *
+     * @return the root of the new tree
+     */
+    public static <A, B> Node<B> map(final Node<A> node, final Function<A, B> mapper) {
+        return map(node, mapper, SubtreeReducer.DEFAULT_THRESHOLD, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new tree with the same names and structure as the node and its descendants, but with the data of each
+     * node mapped by the function, building sibling subtrees in parallel.
+     *
+     * <p>The function is not called for empty nodes, which remain empty. As it may be called from several threads at
+     * once, it must be thread-safe.</p>
+     *
+     * @param node                the root of the tree to map
+     * @param mapper              maps the data of each node
+     * @param sequentialThreshold the number of nodes below which a subtree is mapped sequentially
+     * @param pool                the pool in which to map the tree
+     * @param <A>                 the type of data in the source tree
+     * @param <B>                 the type of data in the new tree
+     *
+     * @return the root of the new tree
+     */
+    public static <A, B> Node<B> map(
+            final Node<A> node,
+            final Function<A, B> mapper,
+            final int sequentialThreshold,
+            final ForkJoinPool pool
+    ) {
+        return mapTree(node, mapper, (data, name) -> new NodeItem<>(data, name, null, Collections.emptySet()),
+                sequentialThreshold, pool);
+    }
+
+    /**
+     * Creates a new immutable tree with the same names and structure as the node and its descendants, but with the
+     * data of each node mapped by the function, building sibling subtrees in parallel in the common fork/join pool.
+     *
+     * <p>The function is not called for empty nodes, which remain empty.</p>
+     *
+     * @param node   the root of the tree to map
+     * @param mapper maps the data of each node
+     * @param <A>    the type of data in the source tree
+     * @param <B>    the type of data in the new tree
+     *
+     * @return the root of the new immutable tree
+     */
+    public static <A, B> Node<B> mapImmutable(final Node<A> node, final Function<A, B> mapper) {
+        return mapImmutable(node, mapper, SubtreeReducer.DEFAULT_THRESHOLD, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new immutable tree with the same names and structure as the node and its descendants, but with the
+     * data of each node mapped by the function, building sibling subtrees in parallel.
+     *
+     * <p>The function is not called for empty nodes, which remain empty. As it may be called from several threads at
+     * once, it must be thread-safe.</p>
+     *
+     * @param node                the root of the tree to map
+     * @param mapper              maps the data of each node
+     * @param sequentialThreshold the number of nodes below which a subtree is mapped sequentially
+     * @param pool                the pool in which to map the tree
+     * @param <A>                 the type of data in the source tree
+     * @param <B>                 the type of data in the new tree
+     *
+     * @return the root of the new immutable tree
+     * @see #mapImmutable(Node, Function)
+     */
+    public static <A, B> Node<B> mapImmutable(
+            final Node<A> node,
+            final Function<A, B> mapper,
+            final int sequentialThreshold,
+            final ForkJoinPool pool
+    ) {
+        return mapTree(node, mapper, (data, name) -> ImmutableNodeItem.newRoot(data, name, Collections.emptySet()),
+                sequentialThreshold, pool);
+    }
+
+    private static <A, B> Node<B> mapTree(
+            final Node<A> node,
+            final Function<A, B> mapper,
+            final BiFunction<B, String, NodeItem<B>> nodeFactory,
+            final int sequentialThreshold,
+            final ForkJoinPool pool
+    ) {
+        return new SubtreeReducer<A, NodeItem<B>>((source, children) -> {
+            final NodeItem<B> target = nodeFactory.apply(source.findData()
+                                                               .map(mapper)
+                                                               .orElse(null), source.getName());
+            children.forEach(target::attachChild);
+            return target;
+        }, sequentialThreshold).reduce(node, pool);
+    }
+
+    /**
+     * Creates a new tree containing only the nodes that match the predicate, together with their ancestors.
+     *
+     * <p>The tree is filtered in a single pass without recursion. The new tree holds the same data and names as the
+     * source tree.</p>
+     *
+     * @param node      the root of the tree to filter
+     * @param predicate selects the nodes to keep
+     * @param <T>       the type of data held in each node
+     *
+     * @return the root of the new tree, or empty if no node matches
+     */
+    public static <T> Optional<Node<T>> filter(final Node<T> node, final Predicate<Node<T>> predicate) {
+        return Optional.ofNullable(filterReducer(predicate, SubtreeReducer.DEFAULT_THRESHOLD).reduce(node));
+    }
+
+    /**
+     * Creates a new tree containing only the nodes that match the predicate, together with their ancestors, filtering
+     * sibling subtrees in parallel.
+     *
+     * <p>As the predicate may be called from several threads at once, it must be thread-safe.</p>
+     *
+     * @param node                the root of the tree to filter
+     * @param predicate           selects the nodes to keep
+     * @param sequentialThreshold the number of nodes below which a subtree is filtered sequentially
+     * @param pool                the pool in which to filter the tree
+     * @param <T>                 the type of data held in each node
+     *
+     * @return the root of the new tree, or empty if no node matches
+     * @see #filter(Node, Predicate)
+     */
+    public static <T> Optional<Node<T>> filter(
+            final Node<T> node,
+            final Predicate<Node<T>> predicate,
+            final int sequentialThreshold,
+            final ForkJoinPool pool
+    ) {
+        return Optional.ofNullable(filterReducer(predicate, sequentialThreshold).reduce(node, pool));
+    }
+
+    private static <T> SubtreeReducer<T, NodeItem<T>> filterReducer(
+            final Predicate<Node<T>> predicate,
+            final int sequentialThreshold
+    ) {
+        return new SubtreeReducer<>((source, children) -> {
+            NodeItem<T> target = null;
+            if (predicate.test(source)) {
+                target = copyOf(source);
+            }
+            for (final NodeItem<T> child : children) {
+                if (child != null) {
+                    if (target == null) {
+                        target = copyOf(source);
+                    }
+                    target.attachChild(child);
+                }
+            }
+            return target;
+        }, sequentialThreshold);
+    }
+
+    private static <T> NodeItem<T> copyOf(final Node<T> source) {
+        return new NodeItem<>(source.findData()
+                                    .orElse(null), source.getName(), null, Collections.emptySet());
+    }
+
+    /**
+     * Compares two versions of a tree, comparing independent subtrees in parallel in the common fork/join pool.
+     *
+     * @param oldTree the root of the old version of the tree
+     * @param newTree the root of the new version of the tree
+     * @param <T>     the type of data held in each node
+     *
+     * @return the differences, in no particular order
+     * @see #diff(Node, Node, ForkJoinPool)
+     */
+    public static <T> Stream<NodeDifference<T>> diff(final Node<T> oldTree, final Node<T> newTree) {
+        return diff(oldTree, newTree, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Compares two versions of a tree, comparing independent subtrees in parallel.
+     *
+     * <p>The children of each pair of matching nodes are matched by name. Children left over in both trees are then
+     * matched where they hold equal data, and reported as renamed. Any still left over are reported as added or
+     * removed, once for the whole subtree. Matching nodes holding different data are reported as changed. The time
+     * taken is linear in the size of the trees.</p>
+     *
+     * @param oldTree the root of the old version of the tree
+     * @param newTree the root of the new version of the tree
+     * @param pool    the pool in which to compare the trees
+     * @param <T>     the type of data held in each node
+     *
+     * @return the differences, in no particular order
+     */
+    public static <T> Stream<NodeDifference<T>> diff(
+            final Node<T> oldTree,
+            final Node<T> newTree,
+            final ForkJoinPool pool
+    ) {
+        return new TreeDiff<>(oldTree, newTree).compare(pool)
+                                               .stream();
+    }
+
+    /**
+     * Computes a 64-bit hash of the structure of the subtree: the name and data of each node, and the order-independent
+     * combination of the hashes of its children.
+     *
+     * <p>The hash of each node is cached until the node or one of its descendants changes, so asking again costs
+     * nothing, and asking after a single change recomputes only the path to the root. Once hashed, identical subtrees
+     * are also skipped by {@link #diff(Node, Node)}. Different subtrees may share a hash, so equal hashes alone do not
+     * show that two subtrees are equal; see {@link #structurallyEquals(Node, Node)}.</p>
+     *
+     * @param node the root of the subtree
+     * @param <T>  the type of data held in each node
+     *
+     * @return the hash
+     */
+    public static <T> long structuralHash(final Node<T> node) {
+        return StructuralHash.of(node);
+    }
+
+    /**
+     * Checks whether two subtrees have the same structure, names and data, first comparing their
+     * {@link #structuralHash(Node) structural hashes}.
+     *
+     * <p>Once the hashes are cached, subtrees with different hashes are told apart in constant time. As different
+     * subtrees may share a hash, subtrees with equal hashes are then compared node by node, taking time in proportion
+     * to their size. The same node, or a subtree shared by both sides as {@link #freeze(Node)} shares them, is not
+     * compared.</p>
+     *
+     * @param first  the first subtree
+     * @param second the second subtree
+     * @param <T>    the type of data held in each node
+     *
+     * @return true if the subtrees are equal
+     */
+    public static <T> boolean structurallyEquals(final Node<T> first, final Node<T> second) {
+        return first == second
+                || (StructuralHash.of(first) == StructuralHash.of(second) && StructuralHash.equal(first, second));
+    }
+
+    /**
+     * Creates an immutable copy of an existing node tree, storing structurally identical subtrees only once.
+     *
+     * <p>Subtrees with the same names, data and children become a single shared subtree, so the result is a directed
+     * acyclic graph rather than a tree. A shared node's {@link Node#findParent()} is the first of its parents.</p>
+     *
+     * @param root the root node of the source tree
+     * @param <T>  the type of the data
+     *
+     * @return the frozen tree, with statistics on the sharing
+     */
+    public static <T> FrozenTree<T> freeze(final Node<T> root) {
+        if (root.findParent()
+                .isPresent()) {
+            throw new IllegalArgumentException("source must be the root node");
+        }
+        return FrozenTree.freeze(root);
+    }
+
+    /**
+     * Finds the nodes below the root whose paths match a glob pattern.
+     *
+     * <p>The pattern is compiled each time; use {@link NodeGlob#compile(String)} to reuse it.</p>
+     *
+     * @param root    the node to search below
+     * @param pattern the glob pattern, such as {@code a/*}{@code /c}
+     * @param <T>     the type of data held in each node
+     *
+     * @return the matching nodes
+     *
+     * @see NodeGlob
+     */
+    public static <T> Stream<Node<T>> match(final Node<T> root, final String pattern) {
+        return NodeGlob.compile(pattern)
+                       .match(root);
+    }
+
+    /**
+     * A node that may still receive children while parsing a tree.
+     *
+     * @param <T> the type of the data
+     */
+    private static final class ParentNode<T> {
+
+        private final NodeItem<T> node;
+        private Set<String> childNames;
+
+        ParentNode(final NodeItem<T> node) {
+            this.node = node;
+        }
+
+        void attach(final NodeItem<T> child, final int lineNumber) {
+            if (child.isNamed()) {
+                if (childNames == null) {
+                    childNames = new HashSet<>();
+                }
+                if (!childNames.add(child.getName())) {
+                    throw new NodeException("Node with that name already exists here at line " + lineNumber);
+                }
+            }
+            node.attachChild(child);
+        }
     }
 }
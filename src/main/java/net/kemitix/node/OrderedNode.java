@@ -0,0 +1,114 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * A node whose children are kept in order of their names.
+ *
+ * <p>{@link #getChildren()} iterates the children in name order, with unnamed children first. Children with the same
+ * name, which may only be unnamed, are kept in the order they were added.</p>
+ *
+ * @param <T> the type of data held in each node
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public interface OrderedNode<T> extends Node<T> {
+
+    /**
+     * Fetches the first child.
+     *
+     * @return the first child, or empty if there are no children
+     */
+    Optional<Node<T>> findFirstChild();
+
+    /**
+     * Fetches the last child.
+     *
+     * @return the last child, or empty if there are no children
+     */
+    Optional<Node<T>> findLastChild();
+
+    /**
+     * Fetches the child that follows a child, in constant time.
+     *
+     * @param child a child of this node
+     *
+     * @return the next child, or empty if the child is the last
+     *
+     * @throws NodeException if the node is not a child of this node
+     */
+    Optional<Node<T>> findChildAfter(Node<T> child);
+
+    /**
+     * Fetches the child that precedes a child, in constant time.
+     *
+     * @param child a child of this node
+     *
+     * @return the previous child, or empty if the child is the first
+     *
+     * @throws NodeException if the node is not a child of this node
+     */
+    Optional<Node<T>> findChildBefore(Node<T> child);
+
+    /**
+     * Streams the children with names within a range, in order.
+     *
+     * <p>Locating the start of the range takes logarithmic time.</p>
+     *
+     * @param fromName the lowest name, inclusive
+     * @param toName   the highest name, exclusive
+     *
+     * @return the children in the range
+     */
+    Stream<Node<T>> streamChildrenInRange(String fromName, String toName);
+
+    /**
+     * Lists a page of children, in order.
+     *
+     * <p>Locating the start of the page takes time proportional to the offset, or to the number of children after it,
+     * whichever is less. Use {@link #getChildrenAfter(String, int)} to page through large numbers of children.</p>
+     *
+     * @param offset the number of children to skip
+     * @param limit  the maximum number of children to return
+     *
+     * @return the children on the page
+     */
+    List<Node<T>> getChildren(int offset, int limit);
+
+    /**
+     * Lists a page of the children whose names follow a name, in order.
+     *
+     * <p>Locating the start of the page takes logarithmic time. Passing the name of the last child on one page gives
+     * the next page.</p>
+     *
+     * @param name  the name to continue after, exclusive
+     * @param limit the maximum number of children to return
+     *
+     * @return the children on the page
+     */
+    List<Node<T>> getChildrenAfter(String name, int limit);
+}
@@ -0,0 +1,120 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node;
+
+import lombok.NonNull;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * A node whose children are kept in order of their names.
+ *
+ * @param <T> the type of data stored in each node
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+class OrderedNodeItem<T> extends NodeItem<T> implements OrderedNode<T> {
+
+    private final SortedChildren<T> sortedChildren;
+
+    /**
+     * Constructor.
+     *
+     * @param data   the data of the node
+     * @param name   the name of the node
+     * @param parent the parent of the node, or null for a root node
+     */
+    OrderedNodeItem(final T data, final String name, final Node<T> parent) {
+        this(data, name, parent, new SortedChildren<>());
+    }
+
+    private OrderedNodeItem(
+            final T data,
+            final String name,
+            final Node<T> parent,
+            final SortedChildren<T> sortedChildren
+    ) {
+        super(data, name, parent, null, sortedChildren);
+        this.sortedChildren = sortedChildren;
+    }
+
+    @Override
+    void childRenamed(final Node<T> child) {
+        sortedChildren.reposition(child);
+    }
+
+    @Override
+    public Optional<Node<T>> findChildByName(@NonNull final String named) {
+        return sortedChildren.findByName(named);
+    }
+
+    @Override
+    public Stream<Node<T>> findChildrenByNamePrefix(@NonNull final String prefix) {
+        return sortedChildren.prefixed(prefix);
+    }
+
+    @Override
+    public Optional<Node<T>> findFirstChild() {
+        return sortedChildren.first();
+    }
+
+    @Override
+    public Optional<Node<T>> findLastChild() {
+        return sortedChildren.last();
+    }
+
+    @Override
+    public Optional<Node<T>> findChildAfter(@NonNull final Node<T> child) {
+        return sortedChildren.next(child);
+    }
+
+    @Override
+    public Optional<Node<T>> findChildBefore(@NonNull final Node<T> child) {
+        return sortedChildren.previous(child);
+    }
+
+    @Override
+    public Stream<Node<T>> streamChildrenInRange(@NonNull final String fromName, @NonNull final String toName) {
+        return sortedChildren.range(fromName, toName);
+    }
+
+    @Override
+    public List<Node<T>> getChildren(final int offset, final int limit) {
+        verifyPage(offset, limit);
+        return sortedChildren.page(offset, limit);
+    }
+
+    @Override
+    public List<Node<T>> getChildrenAfter(@NonNull final String name, final int limit) {
+        verifyPage(0, limit);
+        return sortedChildren.after(name, limit);
+    }
+
+    private static void verifyPage(final int offset, final int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative: " + offset + ", " + limit);
+        }
+    }
+}
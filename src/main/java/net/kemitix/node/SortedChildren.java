@@ -0,0 +1,377 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * The children of an {@link OrderedNode}, iterated in order of their names.
+ *
+ * <p>Children are held in a sorted map, for lookups and range queries by name, and in a linked list through the same
+ * entries, for moving between siblings in constant time. Unnamed children come first, in the order they were added, as
+ * do children with the same name.</p>
+ *
+ * <p>A child's position is fixed when it is added, so a child that is renamed must be {@link #reposition(Node)
+ * repositioned}.</p>
+ *
+ * @param <T> the type of data held in each node
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+class SortedChildren<T> extends AbstractSet<Node<T>> {
+
+    private static final int MAX_INITIAL_PAGE_CAPACITY = 64;
+
+    private final TreeMap<Key, Link<T>> sorted = new TreeMap<>();
+
+    private final Map<Node<T>, Link<T>> links = new HashMap<>();
+
+    private Link<T> head;
+
+    private Link<T> tail;
+
+    private long sequence;
+
+    private static String nameOf(final Node<?> node) {
+        final String name = node.getName();
+        if (name == null) {
+            return "";
+        }
+        return name;
+    }
+
+    @Override
+    public boolean add(final Node<T> node) {
+        if (links.containsKey(node)) {
+            return false;
+        }
+        final Link<T> link = new Link<>(node, new Key(nameOf(node), sequence++));
+        sorted.put(link.key, link);
+        links.put(node, link);
+        final Map.Entry<Key, Link<T>> previous = sorted.lowerEntry(link.key);
+        if (previous == null) {
+            link.next = head;
+            head = link;
+        } else {
+            link.previous = previous.getValue();
+            link.next = link.previous.next;
+            link.previous.next = link;
+        }
+        if (link.next == null) {
+            tail = link;
+        } else {
+            link.next.previous = link;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean remove(final Object node) {
+        final Link<T> link = links.remove(node);
+        if (link == null) {
+            return false;
+        }
+        sorted.remove(link.key);
+        if (link.previous == null) {
+            head = link.next;
+        } else {
+            link.previous.next = link.next;
+        }
+        if (link.next == null) {
+            tail = link.previous;
+        } else {
+            link.next.previous = link.previous;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(final Object node) {
+        return links.containsKey(node);
+    }
+
+    @Override
+    public int size() {
+        return links.size();
+    }
+
+    @Override
+    public void clear() {
+        sorted.clear();
+        links.clear();
+        head = null;
+        tail = null;
+    }
+
+    @Override
+    public Iterator<Node<T>> iterator() {
+        return new LinkIterator();
+    }
+
+    /**
+     * Moves a child to the position for its current name.
+     *
+     * @param node the renamed child
+     */
+    void reposition(final Node<T> node) {
+        final Link<T> link = links.get(node);
+        if (link != null && !link.key.name.equals(nameOf(node))) {
+            remove(node);
+            add(node);
+        }
+    }
+
+    /**
+     * Finds the first child with the name.
+     *
+     * @param name the name to look for
+     *
+     * @return the child, or empty if there is none with that name
+     */
+    Optional<Node<T>> findByName(final String name) {
+        return Optional.ofNullable(sorted.ceilingEntry(new Key(name, Long.MIN_VALUE)))
+                       .map(Map.Entry::getValue)
+                       .filter(link -> link.key.name.equals(name))
+                       .map(link -> link.node);
+    }
+
+    Optional<Node<T>> first() {
+        return nodeOf(head);
+    }
+
+    Optional<Node<T>> last() {
+        return nodeOf(tail);
+    }
+
+    Optional<Node<T>> next(final Node<T> node) {
+        return nodeOf(linkOf(node).next);
+    }
+
+    Optional<Node<T>> previous(final Node<T> node) {
+        return nodeOf(linkOf(node).previous);
+    }
+
+    private static <T> Optional<Node<T>> nodeOf(final Link<T> link) {
+        if (link == null) {
+            return Optional.empty();
+        }
+        return Optional.of(link.node);
+    }
+
+    private Link<T> linkOf(final Node<T> node) {
+        final Link<T> link = links.get(node);
+        if (link == null) {
+            throw new NodeException("Node is not a child of this node");
+        }
+        return link;
+    }
+
+    /**
+     * The children with names in the range, in order.
+     *
+     * @param fromName the lowest name, inclusive
+     * @param toName   the highest name, exclusive
+     *
+     * @return the children in the range
+     */
+    Stream<Node<T>> range(final String fromName, final String toName) {
+        if (fromName.compareTo(toName) >= 0) {
+            return Stream.empty();
+        }
+        return sorted.subMap(new Key(fromName, Long.MIN_VALUE), new Key(toName, Long.MIN_VALUE))
+                     .values()
+                     .stream()
+                     .map(link -> link.node);
+    }
+
+    /**
+     * The children with names starting with the prefix, in order.
+     *
+     * @param prefix the start of the names
+     *
+     * @return the matching children
+     */
+    Stream<Node<T>> prefixed(final String prefix) {
+        final String upperBound = NamePrefix.upperBound(prefix);
+        final Key from = new Key(prefix, Long.MIN_VALUE);
+        final Map<Key, Link<T>> matching;
+        if (upperBound == null) {
+            matching = sorted.tailMap(from);
+        } else {
+            matching = sorted.subMap(from, new Key(upperBound, Long.MIN_VALUE));
+        }
+        return matching.values()
+                       .stream()
+                       .map(link -> link.node);
+    }
+
+    /**
+     * A page of children, in order.
+     *
+     * @param offset the number of children to skip
+     * @param limit  the maximum number of children to return
+     *
+     * @return the children on the page
+     */
+    List<Node<T>> page(final int offset, final int limit) {
+        if (offset >= links.size() || limit == 0) {
+            return Collections.emptyList();
+        }
+        Link<T> link;
+        if (offset <= links.size() / 2) {
+            link = head;
+            for (int i = 0; i < offset; i++) {
+                link = link.next;
+            }
+        } else {
+            link = tail;
+            for (int i = links.size() - 1; i > offset; i--) {
+                link = link.previous;
+            }
+        }
+        return collect(link, limit);
+    }
+
+    /**
+     * A page of children following the name, in order.
+     *
+     * @param name  the name to continue after, exclusive
+     * @param limit the maximum number of children to return
+     *
+     * @return the children on the page
+     */
+    List<Node<T>> after(final String name, final int limit) {
+        final Map.Entry<Key, Link<T>> entry = sorted.higherEntry(new Key(name, Long.MAX_VALUE));
+        if (entry == null || limit == 0) {
+            return Collections.emptyList();
+        }
+        return collect(entry.getValue(), limit);
+    }
+
+    private static <T> List<Node<T>> collect(final Link<T> start, final int limit) {
+        final List<Node<T>> page = new ArrayList<>(Math.min(limit, MAX_INITIAL_PAGE_CAPACITY));
+        for (Link<T> link = start; link != null && page.size() < limit; link = link.next) {
+            page.add(link.node);
+        }
+        return page;
+    }
+
+    /**
+     * The position of a child: its name when it was added, then the order in which it was added.
+     */
+    private static final class Key implements Comparable<Key> {
+
+        private static final int HASH_MULTIPLIER = 31;
+
+        private final String name;
+
+        private final long sequence;
+
+        Key(final String name, final long sequence) {
+            this.name = name;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(final Key other) {
+            final int byName = name.compareTo(other.name);
+            if (byName != 0) {
+                return byName;
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof Key && compareTo((Key) other) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode() * HASH_MULTIPLIER + Long.hashCode(sequence);
+        }
+    }
+
+    /**
+     * A child, its position, and its neighbours.
+     */
+    private static final class Link<T> {
+
+        private final Node<T> node;
+
+        private final Key key;
+
+        private Link<T> previous;
+
+        private Link<T> next;
+
+        Link(final Node<T> node, final Key key) {
+            this.node = node;
+            this.key = key;
+        }
+    }
+
+    /**
+     * Walks the linked children from first to last.
+     */
+    private final class LinkIterator implements Iterator<Node<T>> {
+
+        private Link<T> next = head;
+
+        private Link<T> current;
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Node<T> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            current = next;
+            next = next.next;
+            return current.node;
+        }
+
+        @Override
+        public void remove() {
+            if (current == null) {
+                throw new IllegalStateException();
+            }
+            SortedChildren.this.remove(current.node);
+            current = null;
+        }
+    }
+}
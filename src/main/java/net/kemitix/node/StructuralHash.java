@@ -0,0 +1,219 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A 64-bit hash of a subtree's structure: the name and data of each node and the hashes of its children.
+ *
+ * <p>The hash is held as a {@link NodeAggregate}, so it is computed only once it is asked for, is then cached on each
+ * node, and is discarded along the ancestor chain when a node changes. Children are combined in a way that does not
+ * depend on their order, as the children of a node are unordered.</p>
+ *
+ * <p>Different subtrees may share a hash, not least because the data is hashed by its 32-bit {@link Object#hashCode()},
+ * so a matching hash is only a sign that two subtrees may be equal, to be confirmed by {@link #equal(Node, Node)}.</p>
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+final class StructuralHash {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long DATA_SEED = 0x9e3779b97f4a7c15L;
+    private static final long CHILD_SEED = 0xc2b2ae3d27d4eb4fL;
+    private static final long MIX_1 = 0xbf58476d1ce4e5b9L;
+    private static final long MIX_2 = 0x94d049bb133111ebL;
+    private static final int SHIFT_1 = 30;
+    private static final int SHIFT_2 = 27;
+    private static final int SHIFT_3 = 31;
+
+    private static final NodeAggregate<Object, Long> AGGREGATE = NodeAggregate.of("structural hash",
+            StructuralHash::hash);
+
+    private StructuralHash() {
+    }
+
+    /**
+     * The structural hash of the subtree, computing any not already cached.
+     *
+     * @param node the root of the subtree
+     * @param <T>  the type of data held in each node
+     *
+     * @return the hash
+     */
+    static <T> long of(final Node<T> node) {
+        return aggregate(node).get(node);
+    }
+
+    /**
+     * The structural hash of the subtree, if it is cached.
+     *
+     * @param node the root of the subtree
+     * @param <T>  the type of data held in each node
+     *
+     * @return the hash, or null if it has not been computed since the subtree last changed
+     */
+    static <T> Long cached(final Node<T> node) {
+        if (node instanceof NodeItem) {
+            return (Long) ((NodeItem<T>) node).cachedAggregate(aggregate(node));
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether two subtrees have the same structure, names and data, as must be confirmed once their hashes are
+     * found to be equal.
+     *
+     * <p>Pairs of nodes are compared from a stack rather than by recursion. Named children are paired by name and
+     * unnamed children by their hash, with each candidate compared in turn only where several share a hash.</p>
+     *
+     * @param first  the first subtree
+     * @param second the second subtree
+     * @param <T>    the type of data held in each node
+     *
+     * @return true if the subtrees are equal
+     */
+    static <T> boolean equal(final Node<T> first, final Node<T> second) {
+        final Deque<Node<T>> pairs = new ArrayDeque<>();
+        pairs.push(first);
+        pairs.push(second);
+        while (!pairs.isEmpty()) {
+            final Node<T> secondNode = pairs.pop();
+            final Node<T> firstNode = pairs.pop();
+            if (firstNode == secondNode) {
+                continue;
+            }
+            if (!Objects.equals(firstNode.getName(), secondNode.getName())
+                    || !Objects.equals(dataOf(firstNode), dataOf(secondNode))) {
+                return false;
+            }
+            final Set<Node<T>> firstChildren = firstNode.getChildren();
+            final Set<Node<T>> secondChildren = secondNode.getChildren();
+            if (firstChildren.size() != secondChildren.size() || !pairChildren(firstChildren, secondChildren, pairs)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static <T> boolean pairChildren(
+            final Set<Node<T>> firstChildren,
+            final Set<Node<T>> secondChildren,
+            final Deque<Node<T>> pairs
+    ) {
+        final Map<String, Node<T>> named = new HashMap<>();
+        final Map<Long, List<Node<T>>> unnamed = new HashMap<>();
+        for (final Node<T> child : secondChildren) {
+            if (child.isNamed()) {
+                named.put(child.getName(), child);
+            } else {
+                unnamed.computeIfAbsent(of(child), hash -> new ArrayList<>())
+                       .add(child);
+            }
+        }
+        for (final Node<T> child : firstChildren) {
+            if (child.isNamed()) {
+                final Node<T> match = named.remove(child.getName());
+                if (match == null) {
+                    return false;
+                }
+                pairs.push(child);
+                pairs.push(match);
+            } else if (!pairUnnamed(child, unnamed.get(of(child)), pairs)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static <T> boolean pairUnnamed(
+            final Node<T> child,
+            final List<Node<T>> candidates,
+            final Deque<Node<T>> pairs
+    ) {
+        if (candidates == null || candidates.isEmpty()) {
+            return false;
+        }
+        if (candidates.size() == 1) {
+            pairs.push(child);
+            pairs.push(candidates.remove(0));
+            return true;
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            if (equal(child, candidates.get(i))) {
+                candidates.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T> Object dataOf(final Node<T> node) {
+        return node.findData()
+                   .orElse(null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> NodeAggregate<T, Long> aggregate(final Node<T> node) {
+        return (NodeAggregate<T, Long>) (NodeAggregate<?, Long>) AGGREGATE;
+    }
+
+    private static long hash(final Node<Object> node, final List<Long> children) {
+        long hash = mix(nameHash(node.getName()) ^ mix(Objects.hashCode(node.findData()
+                                                                            .orElse(null)) + DATA_SEED));
+        long childSum = 0;
+        for (final Long child : children) {
+            childSum += mix(child + CHILD_SEED);
+        }
+        hash = mix(hash + mix(childSum + children.size()));
+        return hash;
+    }
+
+    private static long nameHash(final String name) {
+        if (name == null) {
+            return 0;
+        }
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < name.length(); i++) {
+            hash ^= name.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    // the finaliser of SplitMix64
+    private static long mix(final long value) {
+        long mixed = value;
+        mixed = (mixed ^ (mixed >>> SHIFT_1)) * MIX_1;
+        mixed = (mixed ^ (mixed >>> SHIFT_2)) * MIX_2;
+        return mixed ^ (mixed >>> SHIFT_3);
+    }
+}
@@ -0,0 +1,339 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiFunction;
+
+/**
+ * Evaluates a tree bottom-up, giving each node the results already computed for its children.
+ *
+ * <p>When run in a {@link ForkJoinPool}, sibling subtrees are evaluated in parallel. Subtrees with fewer nodes than
+ * the threshold are evaluated sequentially, and small siblings are batched together up to the threshold, so that each
+ * task has a worthwhile amount of work. To find which subtrees are small, the subtrees of siblings are counted in
+ * step with each other and counting stops at the threshold, so sizes are never counted in full.</p>
+ *
+ * <p>Neither evaluation uses recursion to descend the tree, so deep trees do not exhaust the stack. Results are
+ * passed to the reducer in the order in which the children are returned by {@link Node#getChildren()}.</p>
+ *
+ * @param <T> the type of data held in each node
+ * @param <R> the type of the result for each subtree
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+final class SubtreeReducer<T, R> {
+
+    /**
+     * The default number of nodes below which a subtree is evaluated sequentially.
+     */
+    static final int DEFAULT_THRESHOLD = 1024;
+
+    private final BiFunction<Node<T>, List<R>, R> reducer;
+
+    private final int threshold;
+
+    /**
+     * Constructor.
+     *
+     * @param reducer   computes the result for a node from the node and the results for its children
+     * @param threshold the number of nodes below which a subtree is evaluated sequentially
+     */
+    SubtreeReducer(final BiFunction<Node<T>, List<R>, R> reducer, final int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Threshold must be positive: " + threshold);
+        }
+        this.reducer = reducer;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Evaluates the tree in the calling thread.
+     *
+     * @param root the root of the tree
+     *
+     * @return the result for the root
+     */
+    R reduce(final Node<T> root) {
+        final Deque<Frame<T, R>> stack = new ArrayDeque<>();
+        stack.push(new Frame<>(root));
+        while (true) {
+            final Frame<T, R> frame = stack.peek();
+            if (frame.children.hasNext()) {
+                stack.push(new Frame<>(frame.children.next()));
+            } else {
+                stack.pop();
+                final R result = reducer.apply(frame.node, frame.results);
+                if (stack.isEmpty()) {
+                    return result;
+                }
+                stack.peek().results.add(result);
+            }
+        }
+    }
+
+    /**
+     * Evaluates the tree in the pool.
+     *
+     * @param root the root of the tree
+     * @param pool the pool in which to evaluate the tree
+     *
+     * @return the result for the root
+     */
+    R reduce(final Node<T> root, final ForkJoinPool pool) {
+        return pool.invoke(new SubtreeTask(root));
+    }
+
+    @SuppressWarnings("unchecked")
+    private R complete(final Node<T> node, final Object[] results) {
+        return reducer.apply(node, (List<R>) Arrays.asList(results));
+    }
+
+    /**
+     * A node being evaluated sequentially and the results of those of its children already evaluated.
+     */
+    private static final class Frame<T, R> {
+
+        private final Node<T> node;
+
+        private final Iterator<Node<T>> children;
+
+        private final List<R> results = new ArrayList<>();
+
+        Frame(final Node<T> node) {
+            this.node = node;
+            this.children = node.getChildren()
+                                .iterator();
+        }
+    }
+
+    /**
+     * Counts the nodes in a subtree one at a time.
+     */
+    private static final class Probe<T> {
+
+        private final int index;
+
+        private final Deque<Iterator<Node<T>>> pending = new ArrayDeque<>();
+
+        private int count = 1;
+
+        Probe(final int index, final Node<T> node) {
+            this.index = index;
+            push(node);
+        }
+
+        private void push(final Node<T> node) {
+            final Iterator<Node<T>> children = node.getChildren()
+                                                   .iterator();
+            if (children.hasNext()) {
+                pending.push(children);
+            }
+        }
+
+        boolean isFinished() {
+            return pending.isEmpty();
+        }
+
+        void step() {
+            while (!pending.isEmpty()) {
+                final Iterator<Node<T>> children = pending.peek();
+                if (children.hasNext()) {
+                    count++;
+                    push(children.next());
+                    return;
+                }
+                pending.pop();
+            }
+        }
+    }
+
+    /**
+     * Evaluates a subtree, forking tasks for siblings and continuing down one child within the same task.
+     */
+    private final class SubtreeTask extends RecursiveTask<R> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Node<T> node;
+
+        SubtreeTask(final Node<T> node) {
+            this.node = node;
+        }
+
+        @Override
+        protected R compute() {
+            final Deque<Split> spine = new ArrayDeque<>();
+            Split split = new Split(node);
+            while (split.next >= 0) {
+                spine.push(split);
+                split = new Split(split.children.get(split.next));
+            }
+            R result = split.complete();
+            while (!spine.isEmpty()) {
+                split = spine.pop();
+                split.results[split.next] = result;
+                result = split.complete();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Evaluates a batch of small sibling subtrees sequentially.
+     */
+    private final class BatchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<Node<T>> children;
+
+        private final transient List<Integer> indices;
+
+        private final transient Object[] results;
+
+        BatchTask(final List<Node<T>> children, final List<Integer> indices, final Object[] results) {
+            this.children = children;
+            this.indices = indices;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            for (final Integer index : indices) {
+                results[index] = reduce(children.get(index));
+            }
+        }
+    }
+
+    /**
+     * A node whose children have been divided into batches of small subtrees, large subtrees each with their own task,
+     * and at most one child to continue with in the current task.
+     */
+    private final class Split {
+
+        private final Node<T> node;
+
+        private final List<Node<T>> children;
+
+        private final Object[] results;
+
+        private final List<BatchTask> batches = new ArrayList<>();
+
+        private final List<Integer> largeIndices = new ArrayList<>();
+
+        private final List<SubtreeTask> largeTasks = new ArrayList<>();
+
+        private BatchTask inline;
+
+        private int next = -1;
+
+        Split(final Node<T> node) {
+            this.node = node;
+            this.children = new ArrayList<>(node.getChildren());
+            this.results = new Object[children.size()];
+            if (!children.isEmpty()) {
+                divide();
+            }
+        }
+
+        private void divide() {
+            final List<Probe<T>> small = new ArrayList<>();
+            final List<Integer> large = new ArrayList<>();
+            List<Probe<T>> unresolved = new ArrayList<>();
+            for (int i = 0; i < children.size(); i++) {
+                unresolved.add(new Probe<>(i, children.get(i)));
+            }
+            while (unresolved.size() > 1) {
+                final List<Probe<T>> stillUnresolved = new ArrayList<>(unresolved.size());
+                for (final Probe<T> probe : unresolved) {
+                    probe.step();
+                    if (probe.isFinished()) {
+                        small.add(probe);
+                    } else if (probe.count >= threshold) {
+                        large.add(probe.index);
+                    } else {
+                        stillUnresolved.add(probe);
+                    }
+                }
+                unresolved = stillUnresolved;
+            }
+            if (!unresolved.isEmpty()) {
+                next = unresolved.get(0).index;
+            } else if (!large.isEmpty()) {
+                next = large.remove(large.size() - 1);
+            }
+            batch(small);
+            if (next < 0 && !batches.isEmpty()) {
+                inline = batches.remove(batches.size() - 1);
+            }
+            batches.forEach(BatchTask::fork);
+            for (final Integer index : large) {
+                final SubtreeTask task = new SubtreeTask(children.get(index));
+                task.fork();
+                largeIndices.add(index);
+                largeTasks.add(task);
+            }
+        }
+
+        private void batch(final List<Probe<T>> small) {
+            List<Integer> indices = new ArrayList<>();
+            int size = 0;
+            for (final Probe<T> probe : small) {
+                indices.add(probe.index);
+                size += probe.count;
+                if (size >= threshold) {
+                    batches.add(new BatchTask(children, indices, results));
+                    indices = new ArrayList<>();
+                    size = 0;
+                }
+            }
+            if (!indices.isEmpty()) {
+                batches.add(new BatchTask(children, indices, results));
+            }
+        }
+
+        R complete() {
+            if (children.isEmpty()) {
+                return reducer.apply(node, Collections.emptyList());
+            }
+            if (inline != null) {
+                inline.compute();
+            }
+            batches.forEach(BatchTask::join);
+            for (int i = 0; i < largeTasks.size(); i++) {
+                results[largeIndices.get(i)] = largeTasks.get(i)
+                                                         .join();
+            }
+            return SubtreeReducer.this.complete(node, results);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Compares two versions of a tree for {@link Nodes#diff(Node, Node)}.
+ *
+ * <p>Nodes are paired level by level: children are matched by name and any left over are paired by equal data, as
+ * renames. Each pair of nodes is compared once, so the time taken is linear in the size of the trees. Pending pairs
+ * are held on a stack rather than by recursion, and half of the stack is split off into a new fork/join task whenever
+ * the pool is short of work.</p>
+ *
+ * <p>Where both trees already have their {@link StructuralHash structural hashes} cached, pairs of nodes with equal
+ * hashes are not descended into once {@link StructuralHash#equal(Node, Node)} confirms them, as different subtrees may
+ * share a hash. A subtree found on both sides as the same node is not descended into at all.</p>
+ *
+ * @param <T> the type of data held in each node
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+final class TreeDiff<T> {
+
+    private static final int SURPLUS_TASKS = 2;
+
+    private final Node<T> oldRoot;
+
+    private final Node<T> newRoot;
+
+    /**
+     * Constructor.
+     *
+     * @param oldRoot the root of the old tree
+     * @param newRoot the root of the new tree
+     */
+    TreeDiff(final Node<T> oldRoot, final Node<T> newRoot) {
+        this.oldRoot = oldRoot;
+        this.newRoot = newRoot;
+    }
+
+    /**
+     * Compares the trees.
+     *
+     * @param pool the pool in which to compare the trees
+     *
+     * @return the differences, in no particular order
+     */
+    List<NodeDifference<T>> compare(final ForkJoinPool pool) {
+        final List<NodeDifference<T>> differences = new ArrayList<>();
+        if (!Objects.equals(oldRoot.getName(), newRoot.getName())) {
+            differences.add(NodeDifference.renamed(oldRoot, newRoot, newRoot));
+        }
+        final Deque<Node<T>> pairs = new ArrayDeque<>();
+        pairs.push(oldRoot);
+        pairs.push(newRoot);
+        differences.addAll(pool.invoke(new DiffTask(pairs)));
+        return differences;
+    }
+
+    private static <T> Object dataOf(final Node<T> node) {
+        return node.findData()
+                   .orElse(null);
+    }
+
+    /**
+     * Compares pairs of nodes from a stack, where each pair is pushed as the old node followed by the new node.
+     */
+    private final class DiffTask extends RecursiveTask<List<NodeDifference<T>>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Deque<Node<T>> pairs;
+
+        private final transient List<NodeDifference<T>> differences = new ArrayList<>();
+
+        DiffTask(final Deque<Node<T>> pairs) {
+            this.pairs = pairs;
+        }
+
+        @Override
+        protected List<NodeDifference<T>> compute() {
+            final List<DiffTask> forked = new ArrayList<>();
+            while (!pairs.isEmpty()) {
+                if (pairs.size() > 2 && getSurplusQueuedTaskCount() < SURPLUS_TASKS) {
+                    final DiffTask task = new DiffTask(split());
+                    task.fork();
+                    forked.add(task);
+                }
+                final Node<T> newNode = pairs.pop();
+                final Node<T> oldNode = pairs.pop();
+                comparePair(oldNode, newNode);
+            }
+            for (final DiffTask task : forked) {
+                differences.addAll(task.join());
+            }
+            return differences;
+        }
+
+        private Deque<Node<T>> split() {
+            final Deque<Node<T>> half = new ArrayDeque<>();
+            final int pairCount = pairs.size() / 2;
+            for (int i = 0; i < pairCount / 2; i++) {
+                half.addFirst(pairs.pollLast());
+                half.addFirst(pairs.pollLast());
+            }
+            return half;
+        }
+
+        private void comparePair(final Node<T> oldNode, final Node<T> newNode) {
+            if (unchanged(oldNode, newNode)) {
+                return;
+            }
+            if (!Objects.equals(dataOf(oldNode), dataOf(newNode))) {
+                differences.add(NodeDifference.dataChanged(oldNode, newNode, newRoot));
+            }
+            final Set<Node<T>> oldChildren = oldNode.getChildren();
+            final Set<Node<T>> newChildren = newNode.getChildren();
+            if (oldChildren.isEmpty() && newChildren.isEmpty()) {
+                return;
+            }
+            final Map<String, Node<T>> oldByName = new HashMap<>();
+            final List<Node<T>> unmatchedOld = new ArrayList<>();
+            for (final Node<T> child : oldChildren) {
+                if (child.isNamed()) {
+                    oldByName.put(child.getName(), child);
+                } else {
+                    unmatchedOld.add(child);
+                }
+            }
+            final List<Node<T>> unmatchedNew = new ArrayList<>();
+            for (final Node<T> child : newChildren) {
+                final Node<T> match;
+                if (child.isNamed()) {
+                    match = oldByName.remove(child.getName());
+                } else {
+                    match = null;
+                }
+                if (match == null) {
+                    unmatchedNew.add(child);
+                } else {
+                    push(match, child);
+                }
+            }
+            unmatchedOld.addAll(oldByName.values());
+            pairByData(unmatchedOld, unmatchedNew);
+        }
+
+        private void pairByData(final List<Node<T>> unmatchedOld, final List<Node<T>> unmatchedNew) {
+            final Map<Object, Deque<Node<T>>> oldByData = new HashMap<>();
+            for (final Node<T> child : unmatchedOld) {
+                final Object data = dataOf(child);
+                if (data == null || unmatchedNew.isEmpty()) {
+                    differences.add(NodeDifference.removed(child, oldRoot));
+                } else {
+                    oldByData.computeIfAbsent(data, key -> new ArrayDeque<>())
+                             .add(child);
+                }
+            }
+            for (final Node<T> child : unmatchedNew) {
+                final Deque<Node<T>> candidates = oldByData.get(dataOf(child));
+                final Node<T> match;
+                if (candidates == null) {
+                    match = null;
+                } else {
+                    match = candidates.poll();
+                }
+                if (match == null) {
+                    differences.add(NodeDifference.added(child, newRoot));
+                } else {
+                    if (!Objects.equals(match.getName(), child.getName())) {
+                        differences.add(NodeDifference.renamed(match, child, newRoot));
+                    }
+                    push(match, child);
+                }
+            }
+            for (final Deque<Node<T>> candidates : oldByData.values()) {
+                for (final Node<T> child : candidates) {
+                    differences.add(NodeDifference.removed(child, oldRoot));
+                }
+            }
+        }
+
+        private boolean unchanged(final Node<T> oldNode, final Node<T> newNode) {
+            if (oldNode == newNode) {
+                // such as a subtree shared by two frozen trees
+                return true;
+            }
+            final Long oldHash = StructuralHash.cached(oldNode);
+            return oldHash != null && oldHash.equals(StructuralHash.cached(newNode))
+                    && StructuralHash.equal(oldNode, newNode);
+        }
+
+        private void push(final Node<T> oldNode, final Node<T> newNode) {
+            pairs.push(oldNode);
+            pairs.push(newNode);
+        }
+    }
+}
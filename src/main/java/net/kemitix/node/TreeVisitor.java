@@ -0,0 +1,58 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node;
+
+/**
+ * A visitor of the nodes in a tree, for use with {@link Node#walk(TreeVisitor)}.
+ *
+ * <p>Each node is passed to {@link #preVisit(Node)} before any of its children, and to {@link #postVisit(Node)}
+ * after all of them, in the manner of {@link java.nio.file.FileVisitor}.</p>
+ *
+ * @param <T> the type of data held in each node
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+@FunctionalInterface
+public interface TreeVisitor<T> {
+
+    /**
+     * Called for a node before any of its children.
+     *
+     * @param node the node
+     *
+     * @return how the walk should continue
+     */
+    VisitResult preVisit(Node<T> node);
+
+    /**
+     * Called for a node after all of its children.
+     *
+     * @param node the node
+     *
+     * @return how the walk should continue, where {@link VisitResult#SKIP_SUBTREE} is the same as
+     * {@link VisitResult#CONTINUE}
+     */
+    default VisitResult postVisit(final Node<T> node) {
+        return VisitResult.CONTINUE;
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Walks a tree for {@link Node#walk(TreeVisitor)} using a stack of iterators rather than recursion.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+final class TreeWalker {
+
+    private TreeWalker() {
+    }
+
+    /**
+     * Walks the node and its descendants.
+     *
+     * @param root    the node to start from
+     * @param visitor the visitor to call for each node
+     * @param <T>     the type of data held in each node
+     */
+    static <T> void walk(final Node<T> root, final TreeVisitor<T> visitor) {
+        if (visitor.preVisit(root) != VisitResult.CONTINUE) {
+            return;
+        }
+        final Deque<Node<T>> nodes = new ArrayDeque<>();
+        final Deque<Iterator<Node<T>>> siblings = new ArrayDeque<>();
+        nodes.push(root);
+        siblings.push(root.getChildren()
+                          .iterator());
+        while (!nodes.isEmpty()) {
+            final Iterator<Node<T>> next = siblings.peek();
+            if (next.hasNext()) {
+                final Node<T> child = next.next();
+                final VisitResult result = visitor.preVisit(child);
+                if (result == VisitResult.CONTINUE) {
+                    final Set<Node<T>> children = child.getChildren();
+                    if (children.isEmpty()) {
+                        if (!proceed(visitor.postVisit(child), siblings)) {
+                            return;
+                        }
+                    } else {
+                        nodes.push(child);
+                        siblings.push(children.iterator());
+                    }
+                } else if (!proceed(result, siblings)) {
+                    return;
+                }
+            } else {
+                siblings.pop();
+                if (!proceed(visitor.postVisit(nodes.pop()), siblings)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the visitor's result to the walk.
+     *
+     * @param result   the result returned by the visitor
+     * @param siblings the iterators over the siblings of each node on the current path
+     * @param <T>      the type of data held in each node
+     *
+     * @return false if the walk should stop
+     */
+    private static <T> boolean proceed(final VisitResult result, final Deque<Iterator<Node<T>>> siblings) {
+        if (result == VisitResult.SKIP_SIBLINGS && !siblings.isEmpty()) {
+            skipSiblings(siblings);
+        }
+        return result != VisitResult.TERMINATE;
+    }
+
+    private static <T> void skipSiblings(final Deque<Iterator<Node<T>>> siblings) {
+        siblings.pop();
+        siblings.push(Collections.emptyIterator());
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 Paul Campbell
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE
+ * AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.kemitix.node;
+
+/**
+ * What a {@link TreeVisitor} asks the walk to do next.
+ *
+ * @author Paul Campbell (pcampbell@kemitix.net)
+ */
+public enum VisitResult {
+
+    /**
+     * Continue the walk.
+     */
+    CONTINUE,
+
+    /**
+     * Continue the walk without visiting the children of the node. Only meaningful when returned from
+     * {@link TreeVisitor#preVisit(Node)}, in which case {@link TreeVisitor#postVisit(Node)} is not called for the
+     * node.
+     */
+    SKIP_SUBTREE,
+
+    /**
+     * Continue the walk without visiting the remaining siblings of the node. When returned from
+     * {@link TreeVisitor#preVisit(Node)}, the children of the node are not visited either.
+     */
+    SKIP_SIBLINGS,
+
+    /**
+     * Stop the walk.
+     */
+    TERMINATE
+}
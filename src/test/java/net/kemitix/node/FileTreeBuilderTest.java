@@ -0,0 +1,109 @@
+package net.kemitix.node;
+
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static net.trajano.commons.testing.UtilityClassTestUtil.assertUtilityClassWellDefined;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link FileTreeBuilder}.
+ *
+ * @author pcampbell
+ */
+public class FileTreeBuilderTest {
+
+    private Path root;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("file-tree");
+        Files.createDirectories(root.resolve("src/main/java"));
+        Files.createDirectories(root.resolve("src/test"));
+        Files.createDirectories(root.resolve("empty"));
+        Files.write(root.resolve("pom.xml"), new byte[0]);
+        Files.write(root.resolve("src/main/java/App.java"), new byte[0]);
+        Files.write(root.resolve("src/test/AppTest.java"), new byte[0]);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            final List<Path> all = paths.sorted(Comparator.reverseOrder())
+                                        .collect(Collectors.toList());
+            for (final Path path : all) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void shouldBeValidUtilityClass() throws Exception {
+        assertUtilityClassWellDefined(FileTreeBuilder.class);
+    }
+
+    @Test
+    public void buildsTreeOfDirectory() {
+        //when
+        val tree = FileTreeBuilder.build(root);
+        //then
+        val rootName = root.getFileName().toString();
+        assertThat(tree.getName()).isEqualTo(rootName);
+        assertThat(tree.findData()).contains(root);
+        assertThat(tree.stream().count()).isEqualTo(9L);
+        assertThat(tree.findChildByName("src")
+                       .flatMap(src -> src.findChildByName("main"))
+                       .flatMap(main -> main.findChildByName("java"))
+                       .flatMap(java -> java.findChildByName("App.java"))
+                       .flatMap(Node::findData))
+                .contains(root.resolve("src/main/java/App.java"));
+        assertThat(tree.findChildByName("empty").get().getChildren()).isEmpty();
+        assertThat(tree.findChildByName("pom.xml").get().isRoot()).isFalse();
+    }
+
+    @Test
+    public void filterSkipsEntries() {
+        //given
+        val pool = new ForkJoinPool(2);
+        try {
+            //when
+            val tree = FileTreeBuilder.build(root, path -> !path.endsWith("src"), pool);
+            //then
+            assertThat(tree.getChildren().stream().map(Node::getName).collect(Collectors.toList()))
+                    .containsExactlyInAnyOrder("empty", "pom.xml");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void fileGivesSingleNode() {
+        //when
+        val tree = FileTreeBuilder.build(root.resolve("pom.xml"));
+        //then
+        assertThat(tree.getName()).isEqualTo("pom.xml");
+        assertThat(tree.getChildren()).isEmpty();
+    }
+
+    @Test
+    public void missingDirectoryIsUnchecked() {
+        //given
+        val missing = root.resolve("missing");
+        //then
+        assertThatExceptionOfType(UncheckedIOException.class)
+                .isThrownBy(() -> FileTreeBuilder.build(missing, path -> true, ForkJoinPool.commonPool()));
+    }
+}
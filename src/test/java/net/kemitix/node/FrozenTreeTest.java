@@ -0,0 +1,152 @@
+package net.kemitix.node;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link FrozenTree}.
+ *
+ * @author pcampbell
+ */
+public class FrozenTreeTest {
+
+    private static void template(final Node<String> tenant) {
+        val settings = Nodes.namedChild("settings", "settings", tenant);
+        Nodes.namedChild("on", "logging", settings);
+        Nodes.namedChild("30", "timeout", settings);
+    }
+
+    private static Node<String> tenants(final int count) {
+        val root = Nodes.namedRoot("config", "root");
+        for (int i = 0; i < count; i++) {
+            template(Nodes.namedChild("tenant", "tenant" + i, root));
+        }
+        return root;
+    }
+
+    @Test
+    public void sharesIdenticalSubtrees() {
+        //given
+        val source = tenants(100);
+        //when
+        val frozen = Nodes.freeze(source);
+        //then
+        val first = frozen.getRoot().findChildByName("tenant0").get().findChildByName("settings").get();
+        val last = frozen.getRoot().findChildByName("tenant99").get().findChildByName("settings").get();
+        assertThat(first).isSameAs(last);
+    }
+
+    @Test
+    public void reportsCountsAndSavings() {
+        //given
+        val source = tenants(100);
+        //when
+        val frozen = Nodes.freeze(source);
+        //then
+        assertThat(frozen.getNodeCount()).isEqualTo(401L);
+        // root, 100 tenants, one settings and its two children
+        assertThat(frozen.getUniqueNodeCount()).isEqualTo(104L);
+        assertThat(frozen.getEstimatedBytesSaved()).isEqualTo(297L * FrozenTree.ESTIMATED_NODE_BYTES);
+    }
+
+    @Test
+    public void preservesStructure() {
+        //given
+        val source = tenants(3);
+        //when
+        val frozen = Nodes.freeze(source);
+        //then
+        assertThat(frozen.getRoot().stream().count()).isEqualTo(13L);
+        assertThat(Nodes.structurallyEquals(frozen.getRoot(), source)).isTrue();
+        assertThat(frozen.getRoot().findInPath(Arrays.asList("tenant", "settings", "30")))
+                .isNotEmpty();
+    }
+
+    @Test
+    public void isImmutable() {
+        //given
+        val frozen = Nodes.freeze(tenants(1));
+        //then
+        assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> frozen.getRoot().setData("changed"));
+    }
+
+    @Test
+    public void sharedNodeParentIsItsFirstParent() {
+        //given
+        val frozen = Nodes.freeze(tenants(2));
+        val tenant0 = frozen.getRoot().findChildByName("tenant0").get();
+        val tenant1 = frozen.getRoot().findChildByName("tenant1").get();
+        //when
+        val settings = tenant1.findChildByName("settings").get();
+        //then
+        assertThat(tenant0.getChildren()).containsExactly(settings);
+        assertThat(settings.findParent().get()).isIn(tenant0, tenant1);
+    }
+
+    @Test
+    public void identicalUnnamedSiblingsAreKeptApart() {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        Nodes.unnamedChild("leaf", root);
+        Nodes.unnamedChild("leaf", root);
+        //when
+        val frozen = Nodes.freeze(root);
+        //then
+        final List<Node<String>> children = frozen.getRoot().getChildren().stream().collect(Collectors.toList());
+        assertThat(children).hasSize(2);
+        assertThat(children.get(0)).isNotSameAs(children.get(1));
+        assertThat(frozen.getUniqueNodeCount()).isEqualTo(3L);
+    }
+
+    @Test
+    public void sharesSubtreesWithIdenticalUnnamedSiblings() {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        for (int i = 0; i < 3; i++) {
+            val settings = Nodes.namedChild("settings", "settings", Nodes.namedChild("tenant", "tenant" + i, root));
+            Nodes.unnamedChild("on", settings);
+            Nodes.unnamedChild("on", settings);
+        }
+        //when
+        val frozen = Nodes.freeze(root);
+        //then
+        val first = frozen.getRoot().findChildByName("tenant0").get().findChildByName("settings").get();
+        val last = frozen.getRoot().findChildByName("tenant2").get().findChildByName("settings").get();
+        assertThat(first).isSameAs(last);
+        assertThat(first.getChildren()).hasSize(2);
+        assertThat(frozen.getNodeCount()).isEqualTo(13L);
+        // root, 3 tenants, one settings, its child and one copy of it
+        assertThat(frozen.getUniqueNodeCount()).isEqualTo(7L);
+        assertThat(frozen.getEstimatedBytesSaved()).isEqualTo(6L * FrozenTree.ESTIMATED_NODE_BYTES);
+    }
+
+    @Test
+    public void differentDataIsNotShared() {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        Nodes.namedChild("a", "x", Nodes.namedChild("p", "p1", root));
+        Nodes.namedChild("b", "x", Nodes.namedChild("p", "p2", root));
+        //when
+        val frozen = Nodes.freeze(root);
+        //then
+        assertThat(frozen.getUniqueNodeCount()).isEqualTo(5L);
+        assertThat(frozen.getEstimatedBytesSaved()).isEqualTo(0L);
+    }
+
+    @Test
+    public void requiresRoot() {
+        //given
+        val child = Nodes.namedChild("child", "child", Nodes.namedRoot("root", "root"));
+        //then
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> Nodes.freeze(child));
+    }
+}
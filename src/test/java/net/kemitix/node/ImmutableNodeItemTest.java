@@ -93,6 +93,43 @@ public class ImmutableNodeItemTest {
                         .hasFieldOrPropertyWithValue("data", "parent"));
     }
 
+    @Test
+    public void childParentIsImmutableRoot() {
+        //given
+        val parent = Nodes.namedRoot("parent", "root");
+        val child = Nodes.namedChild("subject", "child", parent);
+        Nodes.namedChild("grandchild", "grandchild", child);
+        //when
+        immutableNode = Nodes.asImmutable(parent);
+        //then
+        val immutableChild = immutableNode.findChildByName("child").get();
+        assertThat(immutableChild.findParent()).containsSame(immutableNode);
+        assertThat(immutableChild.findChildByName("grandchild").flatMap(Node::findParent)).containsSame(immutableChild);
+        assertThat(parent.getChildren()).containsExactly(child);
+    }
+
+    @Test
+    public void copiesDeepTreeWithoutRecursion() {
+        //given
+        val root = new NodeItem<String>(null, "level", null, null);
+        NodeItem<String> leaf = root;
+        for (int i = 0; i < 100_000; i++) {
+            val child = new NodeItem<String>(null, "level", null, null);
+            leaf.attachChild(child);
+            leaf = child;
+        }
+        //when
+        immutableNode = Nodes.asImmutable(root);
+        //then
+        Node<String> node = immutableNode;
+        int depth = 0;
+        while (!node.getChildren().isEmpty()) {
+            node = node.getChildren().iterator().next();
+            depth++;
+        }
+        assertThat(depth).isEqualTo(100_000);
+    }
+
     @Test
     public void shouldNotBeAbleToAddChildToImmutableTree() {
         //given
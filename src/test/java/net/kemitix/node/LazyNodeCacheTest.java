@@ -0,0 +1,267 @@
+package net.kemitix.node;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link LazyNodeCache}.
+ *
+ * @author pcampbell
+ */
+public class LazyNodeCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    /**
+     * Each node named "n" has the children "n0" and "n1", up to names of three characters.
+     */
+    private final ChildLoader<String> loader = node -> {
+        loads.incrementAndGet();
+        final Map<String, String> children = new HashMap<>();
+        if (node.getName().length() < 3) {
+            children.put(node.getName() + "0", "data " + node.getName() + "0");
+            children.put(node.getName() + "1", "data " + node.getName() + "1");
+        }
+        return children;
+    };
+
+    @Test
+    public void countsHitsAndMisses() {
+        //given
+        final LazyNodeCache<String> cache = LazyNodeCache.maxNodes(100);
+        val root = Nodes.lazyRoot("data", "r", loader, cache);
+        //when
+        root.getChildren();
+        root.getChildren();
+        root.findChildByName("r0");
+        //then
+        assertThat(cache.missCount()).isEqualTo(1);
+        assertThat(cache.hitCount()).isEqualTo(2);
+        assertThat(cache.evictionCount()).isEqualTo(0);
+        assertThat(cache.weight()).isEqualTo(2);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        //given
+        final LazyNodeCache<String> cache = LazyNodeCache.maxNodes(4);
+        val root = Nodes.lazyRoot("data", "r", loader, cache);
+        val r0 = root.findChildByName("r0").get();
+        val r00 = r0.findChildByName("r00").get();
+        val r1 = root.findChildByName("r1").get();
+        //when
+        r1.getChildren();
+        //then
+        assertThat(cache.evictionCount()).isEqualTo(1);
+        assertThat(cache.weight()).isEqualTo(4);
+        assertThat(r00.isRoot()).isTrue();
+        assertThat(loads.get()).isEqualTo(3);
+        assertThat(r0.findChildByName("r00")).isNotEmpty();
+        assertThat(loads.get()).isEqualTo(4);
+    }
+
+    @Test
+    public void modifiedNodesAreNotEvicted() {
+        //given
+        final LazyNodeCache<String> cache = LazyNodeCache.maxNodes(4);
+        val root = Nodes.lazyRoot("data", "r", loader, cache);
+        val r0 = root.findChildByName("r0").get();
+        r0.getChildren();
+        r0.setData("changed");
+        //when
+        root.findChildByName("r1").get().getChildren();
+        //then
+        assertThat(cache.evictionCount()).isEqualTo(1);
+        assertThat(root.findChildByName("r0")).contains(r0);
+        assertThat(r0.findData()).contains("changed");
+    }
+
+    @Test
+    public void addedChildIsNotEvicted() {
+        //given
+        final LazyNodeCache<String> cache = LazyNodeCache.maxNodes(2);
+        val root = Nodes.lazyRoot("data", "r", loader, cache);
+        val r0 = root.findChildByName("r0").get();
+        val extra = Nodes.namedRoot("extra", "extra");
+        r0.addChild(extra);
+        //when
+        root.findChildByName("r1").get().getChildren();
+        //then
+        assertThat(r0.getChildren()).contains(extra);
+        assertThat(root.findChildByName("r0")).contains(r0);
+    }
+
+    @Test
+    public void weighsNodes() {
+        //given
+        final LazyNodeCache<String> cache = LazyNodeCache.maxWeight(20, node -> node.findData().map(String::length).orElse(0));
+        val root = Nodes.lazyRoot("data", "r", loader, cache);
+        //when
+        root.getChildren();
+        //then
+        assertThat(cache.weight()).isEqualTo(14);
+    }
+
+    @Test
+    public void budgetIsSharedBetweenTrees() {
+        //given
+        final LazyNodeCache<String> cache = LazyNodeCache.maxNodes(2);
+        val first = Nodes.lazyRoot("data", "a", loader, cache);
+        val second = Nodes.lazyRoot("data", "b", loader, cache);
+        first.getChildren();
+        //when
+        second.getChildren();
+        //then
+        assertThat(cache.evictionCount()).isEqualTo(1);
+        assertThat(cache.weight()).isEqualTo(2);
+        first.getChildren();
+        assertThat(cache.missCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void evictionLeavesReturnedChildrenUnchanged() {
+        //given
+        final LazyNodeCache<String> cache = LazyNodeCache.maxNodes(2);
+        val first = Nodes.lazyRoot("data", "a", loader, cache);
+        val second = Nodes.lazyRoot("data", "b", loader, cache);
+        val children = first.getChildren();
+        //when
+        second.getChildren();
+        //then
+        assertThat(cache.evictionCount()).isEqualTo(1);
+        assertThat(children).hasSize(2);
+        assertThat(first.getChildren()).isNotSameAs(children);
+        assertThat(first.getChildren()).hasSize(2);
+    }
+
+    @Test
+    public void nodePinnedAfterBeingChosenIsNotEvicted() {
+        //given
+        final LazyNodeCache<String> cache = LazyNodeCache.maxNodes(2);
+        val first = (LazyNodeItem<String>) Nodes.lazyRoot("data", "a", loader, cache);
+        val second = (LazyNodeItem<String>) Nodes.lazyRoot("data", "b", loader, cache);
+        val children = first.getChildren();
+        val victims = cache.loaded(second, 2, false);
+        assertThat(victims).containsExactly(first);
+        //when
+        cache.pin(first);
+        first.unload();
+        //then
+        assertThat(first.getChildren()).isSameAs(children);
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(cache.evictionCount()).isEqualTo(0);
+        assertThat(cache.weight()).isEqualTo(4);
+    }
+
+    @Test
+    public void concurrentEvictionDoesNotDisturbReaders() throws Exception {
+        //given
+        final LazyNodeCache<String> cache = LazyNodeCache.maxNodes(2);
+        val reader = Nodes.lazyRoot("data", "a", loader, cache);
+        val running = new AtomicBoolean(true);
+        val failure = new AtomicReference<Throwable>();
+        val evictor = new Thread(() -> {
+            int i = 0;
+            while (running.get()) {
+                Nodes.lazyRoot("data", "e" + (i++ % 10), loader, cache).getChildren();
+            }
+        });
+        evictor.start();
+        try {
+            //when
+            for (int i = 0; i < 10_000; i++) {
+                int count = 0;
+                for (final Node<String> child : reader.getChildren()) {
+                    assertThat(child).isNotNull();
+                    count++;
+                }
+                assertThat(count).isEqualTo(2);
+            }
+        } catch (ConcurrentModificationException e) {
+            failure.set(e);
+        } finally {
+            running.set(false);
+            evictor.join();
+        }
+        //then
+        assertThat(failure.get()).isNull();
+    }
+
+    @Test
+    public void modifyingNodeEvictsOthersWithoutHoldingItsLock() throws Exception {
+        //given
+        final LazyNodeCache<String> cache = LazyNodeCache.maxNodes(2);
+        val a = Nodes.lazyRoot("data", "a", loader, cache);
+        val b = Nodes.lazyRoot("data", "b", loader, cache);
+        b.getChildren();
+        val holdingB = new CountDownLatch(1);
+        // another thread holds b's lock, as while changing b, and then needs a's lock
+        val other = new Thread(() -> {
+            synchronized (b) {
+                holdingB.countDown();
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                synchronized (a) {
+                    a.findData();
+                }
+            }
+        });
+        other.setDaemon(true);
+        other.start();
+        holdingB.await();
+        //when
+        val modifier = new Thread(() -> a.addChild(Nodes.namedRoot("new", "new")));
+        modifier.setDaemon(true);
+        modifier.start();
+        modifier.join(5_000);
+        other.join(5_000);
+        //then
+        assertThat(modifier.isAlive()).isFalse();
+        assertThat(other.isAlive()).isFalse();
+        assertThat(cache.evictionCount()).isEqualTo(1);
+        assertThat(a.getChildren()).hasSize(3);
+    }
+
+    @Test
+    public void loadingChildNeverEvictsItsAncestors() {
+        //given
+        final LazyNodeCache<String> cache = LazyNodeCache.maxNodes(3);
+        val root = Nodes.lazyRoot("data", "r", loader, cache);
+        val r0 = root.findChildByName("r0").get();
+        val r1 = root.findChildByName("r1").get();
+        //when
+        val children = r0.getChildren();
+        //then
+        assertThat(children).hasSize(2);
+        assertThat(r0.findParent()).containsSame(root);
+        assertThat(root.getChildren()).contains(r0);
+        assertThat(cache.evictionCount()).isEqualTo(0);
+        assertThat(cache.weight()).isEqualTo(4);
+        //when
+        r1.getChildren();
+        //then
+        assertThat(cache.evictionCount()).isEqualTo(1);
+        assertThat(cache.weight()).isEqualTo(4);
+        assertThat(r1.findParent()).containsSame(root);
+    }
+
+    @Test
+    public void negativeBudgetIsRejected() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> LazyNodeCache.maxNodes(-1));
+    }
+}
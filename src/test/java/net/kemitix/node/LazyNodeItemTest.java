@@ -0,0 +1,179 @@
+package net.kemitix.node;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link LazyNodeItem}.
+ *
+ * @author pcampbell
+ */
+public class LazyNodeItemTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    /**
+     * Each node named "n" has the children "n0" and "n1", up to names of three characters.
+     */
+    private final ChildLoader<String> loader = node -> {
+        loads.incrementAndGet();
+        final Map<String, String> children = new HashMap<>();
+        if (node.getName().length() < 3) {
+            children.put(node.getName() + "0", "data " + node.getName() + "0");
+            children.put(node.getName() + "1", "data " + node.getName() + "1");
+        }
+        return children;
+    };
+
+    @Test
+    public void creatingRootDoesNotLoadChildren() {
+        //when
+        val root = Nodes.lazyRoot("data", "r", loader);
+        //then
+        assertThat(loads.get()).isEqualTo(0);
+        assertThat(root.getName()).isEqualTo("r");
+        assertThat(root.findData()).contains("data");
+    }
+
+    @Test
+    public void getChildrenLoadsOnce() {
+        //given
+        val root = Nodes.lazyRoot("data", "r", loader);
+        //when
+        val children = root.getChildren();
+        root.getChildren();
+        //then
+        assertThat(children.stream().map(Node::getName).collect(Collectors.toList()))
+                .containsExactlyInAnyOrder("r0", "r1");
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void loadedChildrenAreLinkedAndLazy() {
+        //given
+        val root = Nodes.lazyRoot("data", "r", loader);
+        //when
+        val child = root.findChildByName("r1").get();
+        //then
+        assertThat(child.findParent()).contains(root);
+        assertThat(child.findData()).contains("data r1");
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(child.findChild("data r10")).isNotEmpty();
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void streamLoadsWholeTree() {
+        //given
+        val root = Nodes.lazyRoot("data", "r", loader);
+        //when
+        val count = root.stream().count();
+        //then
+        assertThat(count).isEqualTo(7L);
+        assertThat(loads.get()).isEqualTo(7);
+    }
+
+    @Test
+    public void findInPathLoadsOnlyThePath() {
+        //given
+        val root = Nodes.lazyRoot("data", "r", loader);
+        //when
+        val found = root.findInPath(Arrays.asList("data r0", "data r01"));
+        //then
+        assertThat(found.map(Node::getName)).contains("r01");
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void addChildKeepsLoadedChildren() {
+        //given
+        val root = Nodes.lazyRoot("data", "r", loader);
+        //when
+        root.addChild(Nodes.namedRoot("extra", "extra"));
+        //then
+        assertThat(root.getChildren()).hasSize(3);
+        assertThatExceptionOfType(NodeException.class)
+                .isThrownBy(() -> root.addChild(Nodes.namedRoot("duplicate", "r0")));
+    }
+
+    @Test
+    public void removeChildRemovesLoadedChild() {
+        //given
+        val root = Nodes.lazyRoot("data", "r", loader);
+        val child = root.findChildByName("r0").get();
+        //when
+        root.removeChild(child);
+        //then
+        assertThat(root.getChildren()).hasSize(1);
+        assertThat(child.isRoot()).isTrue();
+    }
+
+    @Test
+    public void failedLoadIsRetried() {
+        //given
+        val attempts = new AtomicInteger();
+        final ChildLoader<String> failingOnce = node -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("unavailable");
+            }
+            return Collections.singletonMap("child", "data");
+        };
+        val root = Nodes.lazyRoot("data", "r", failingOnce);
+        //when
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(root::getChildren);
+        //then
+        assertThat(root.getChildren()).hasSize(1);
+    }
+
+    @Test
+    public void concurrentAccessLoadsOnce() throws Exception {
+        //given
+        val threads = 8;
+        val start = new CountDownLatch(1);
+        val root = Nodes.lazyRoot("data", "r", node -> {
+            loads.incrementAndGet();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Collections.singletonMap("child", "data");
+        });
+        val executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<Integer>> sizes = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                sizes.add(executor.submit(() -> {
+                    start.await();
+                    return root.getChildren().size();
+                }));
+            }
+            //when
+            start.countDown();
+            //then
+            for (final Future<Integer> size : sizes) {
+                assertThat(size.get(10, TimeUnit.SECONDS)).isEqualTo(1);
+            }
+            assertThat(loads.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
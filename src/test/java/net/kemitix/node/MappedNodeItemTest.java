@@ -0,0 +1,189 @@
+package net.kemitix.node;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link MappedNodeItem}.
+ *
+ * @author pcampbell
+ */
+public class MappedNodeItemTest {
+
+    private final NodeSerializer<String> serializer = NodeSerializer.using(NodeDataCodec.utf8());
+
+    private static String describe(final Node<String> node) {
+        return node.getName() + "=" + node.findData().orElse("-")
+                + node.getChildren().stream()
+                      .map(MappedNodeItemTest::describe)
+                      .sorted()
+                      .collect(Collectors.joining(",", "(", ")"));
+    }
+
+    private static Node<String> sampleTree() {
+        val root = Nodes.namedRoot("root data", "root");
+        val alpha = Nodes.namedChild("alpha data", "alpha", root);
+        Nodes.namedChild(null, "shared", alpha);
+        Nodes.namedChild("gamma data", "gamma", alpha);
+        val beta = Nodes.namedChild("beta data", "beta", root);
+        Nodes.namedChild("", "shared", beta);
+        Nodes.unnamedChild("unnamed data", root);
+        return root;
+    }
+
+    private Node<String> map(final NodeSerializer<String> writer, final Node<String> tree) throws IOException {
+        final Path file = Files.createTempFile("tree", ".bin");
+        file.toFile().deleteOnExit();
+        try (OutputStream out = Files.newOutputStream(file)) {
+            writer.write(tree, out);
+        }
+        return serializer.map(file);
+    }
+
+    @Test
+    public void mappedTreeMatchesTheWrittenTree() throws IOException {
+        //given
+        val tree = sampleTree();
+        //when
+        val mapped = map(serializer.indexed(), tree);
+        //then
+        assertThat(describe(mapped)).isEqualTo(describe(tree));
+        assertThat(mapped.stream().count()).isEqualTo(7L);
+    }
+
+    @Test
+    public void indexedTreeCanStillBeRead() throws IOException {
+        //given
+        val tree = sampleTree();
+        val file = Files.createTempFile("tree", ".bin");
+        file.toFile().deleteOnExit();
+        try (OutputStream out = Files.newOutputStream(file)) {
+            serializer.indexed().write(tree, out);
+        }
+        //when
+        val result = serializer.read(Files.newInputStream(file));
+        //then
+        assertThat(describe(result)).isEqualTo(describe(tree));
+    }
+
+    @Test
+    public void mappedNodesLinkToTheirParents() throws IOException {
+        //given
+        val mapped = map(serializer.indexed(), sampleTree());
+        //when
+        val gamma = mapped.findInPath(Arrays.asList("alpha data", "gamma data")).get();
+        //then
+        assertThat(gamma.getName()).isEqualTo("gamma");
+        assertThat(gamma.findParent().map(Node::getName)).contains("alpha");
+        assertThat(gamma.parentStream().map(Node::getName).collect(Collectors.toList()))
+                .containsExactly("alpha", "root");
+        assertThat(gamma.isDescendantOf(mapped)).isTrue();
+        assertThat(mapped.isDescendantOf(gamma)).isFalse();
+        assertThat(mapped.isRoot()).isTrue();
+        assertThat(gamma.isRoot()).isFalse();
+    }
+
+    @Test
+    public void childrenAreDecodedOnce() throws IOException {
+        //given
+        val mapped = map(serializer.indexed(), sampleTree());
+        //when
+        val alpha = mapped.findChildByName("alpha").get();
+        //then
+        assertThat(mapped.findChildByName("alpha")).contains(alpha);
+        assertThat(mapped.getChildren()).isSameAs(mapped.getChildren());
+    }
+
+    @Test
+    public void emptyAndUnnamedNodesAreReported() throws IOException {
+        //given
+        val mapped = map(serializer.indexed(), sampleTree());
+        //when
+        val shared = mapped.findInPath(Collections.singletonList("alpha data")).get()
+                           .findChildByName("shared").get();
+        val unnamed = mapped.findChild("unnamed data").get();
+        //then
+        assertThat(shared.isEmpty()).isTrue();
+        assertThat(shared.findData()).isEmpty();
+        assertThat(shared.isEmpty()).isTrue();
+        assertThat(unnamed.isEmpty()).isFalse();
+        assertThat(unnamed.isNamed()).isFalse();
+        assertThat(mapped.findChild("missing")).isEmpty();
+        assertThat(mapped.findChildByName("missing")).isEmpty();
+        assertThat(mapped.findInPath(Collections.emptyList())).isEmpty();
+        assertThat(mapped.findInPath(Arrays.asList("alpha data", "missing"))).isEmpty();
+    }
+
+    @Test
+    public void mappedTreeCanNotBeModified() throws IOException {
+        //given
+        val mapped = map(serializer.indexed(), sampleTree());
+        val child = Nodes.unnamedRoot("child");
+        //then
+        assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> mapped.setName("name"))
+                .withMessage("Immutable object");
+        assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> mapped.setData("data"));
+        assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> mapped.setParent(child));
+        assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> mapped.addChild(child));
+        assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> mapped.createChild("data"));
+        assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> mapped.createChild("data", "name"));
+        assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> mapped.createDescendantLine(Collections.singletonList("data")));
+        assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> mapped.insertInPath(child, "path"));
+        assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> mapped.removeChild(child));
+        assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> mapped.removeParent());
+        assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> mapped.getChildren().clear());
+    }
+
+    @Test
+    public void mapRejectsTreeWithoutIndex() {
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> map(serializer, sampleTree()))
+                .withMessage("Tree was written without an index");
+    }
+
+    @Test
+    public void mapRejectsTruncatedHeader() throws IOException {
+        //given
+        val file = Files.createTempFile("tree", ".bin");
+        file.toFile().deleteOnExit();
+        Files.write(file, new byte[]{'N', 'O', 'D', 'E', 1});
+        //then
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> serializer.map(file))
+                .withMessage("Not a serialized node tree");
+    }
+
+    @Test
+    public void mapRejectsOtherContent() throws IOException {
+        //given
+        val file = Files.createTempFile("tree", ".bin");
+        file.toFile().deleteOnExit();
+        Files.write(file, "not a tree".getBytes());
+        //then
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> serializer.map(file))
+                .withMessage("Not a serialized node tree");
+    }
+}
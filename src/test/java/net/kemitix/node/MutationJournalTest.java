@@ -0,0 +1,230 @@
+package net.kemitix.node;
+
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link MutationJournal}.
+ *
+ * @author pcampbell
+ */
+public class MutationJournalTest {
+
+    private final List<MutationJournal<String>> journals = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        journals.forEach(MutationJournal::stop);
+    }
+
+    private static Node<String> tree() {
+        val root = Nodes.namedRoot("root", "root");
+        val src = Nodes.namedChild("src", "src", root);
+        Nodes.namedChild("main", "main", src);
+        Nodes.namedChild("docs", "docs", root);
+        return root;
+    }
+
+    private MutationJournal<String> record(final Node<String> root) {
+        val journal = MutationJournal.record(root);
+        journals.add(journal);
+        return journal;
+    }
+
+    private static String draw(final Node<String> node) {
+        val lines = new ArrayList<String>();
+        node.stream()
+            .forEach(each -> lines.add(String.join("/", pathOf(each)) + "=" + each.findData().orElse("-")));
+        lines.sort(String::compareTo);
+        return String.join("\n", lines);
+    }
+
+    private static List<String> pathOf(final Node<String> node) {
+        val names = new ArrayList<String>();
+        Node<String> current = node;
+        while (current != null) {
+            names.add(0, current.getName());
+            current = current.findParent().orElse(null);
+        }
+        return names;
+    }
+
+    private static void mutate(final Node<String> master) {
+        val src = master.findChildByName("src").get();
+        val docs = master.findChildByName("docs").get();
+        val test = Nodes.namedRoot("test", "test");
+        Nodes.namedChild("java", "java", test);
+        src.addChild(test);
+        src.findChildByName("main").get().setData("main v2");
+        docs.setName("documentation");
+        test.setParent(docs);
+        master.insertInPath(Nodes.namedRoot("leaf", "leaf"), "a", "b");
+        master.setData("root v2");
+        master.removeChild(master.findChildByName("a").get());
+        Nodes.namedChild("readme", "readme", docs);
+    }
+
+    @Test
+    public void replaysChangesOnReplica() {
+        //given
+        val master = tree();
+        val replica = tree();
+        val journal = record(master);
+        mutate(master);
+        //when
+        journal.apply(replica);
+        //then
+        assertThat(draw(replica)).isEqualTo(draw(master));
+        assertThat(journal.size()).isEqualTo(11);
+    }
+
+    @Test
+    public void replaysChangesAfterShipping() throws IOException {
+        //given
+        val master = tree();
+        val replica = tree();
+        val journal = record(master);
+        mutate(master);
+        val out = new ByteArrayOutputStream();
+        //when
+        journal.write(out, NodeDataCodec.utf8());
+        val shipped = MutationJournal.read(new ByteArrayInputStream(out.toByteArray()), NodeDataCodec.utf8());
+        shipped.apply(replica);
+        //then
+        assertThat(shipped.size()).isEqualTo(journal.size());
+        assertThat(draw(replica)).isEqualTo(draw(master));
+    }
+
+    @Test
+    public void replaysNamedChildCreation() {
+        //given
+        val master = tree();
+        val replica = tree();
+        val journal = record(master);
+        //when
+        master.createChild("created", "new");
+        journal.apply(replica);
+        //then
+        assertThat(journal.size()).isEqualTo(1);
+        assertThat(replica.findChildByName("new").flatMap(Node::findData)).contains("created");
+        assertThat(draw(replica)).isEqualTo(draw(master));
+    }
+
+    @Test
+    public void recordsNothingAfterStop() {
+        //given
+        val master = tree();
+        val journal = record(master);
+        //when
+        journal.stop();
+        master.setData("changed");
+        //then
+        assertThat(journal.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void clearDiscardsShippedOperations() {
+        //given
+        val master = tree();
+        val replica = tree();
+        val journal = record(master);
+        master.setData("first");
+        journal.apply(replica);
+        journal.clear();
+        //when
+        master.findChildByName("docs").get().setData("second");
+        journal.apply(replica);
+        //then
+        assertThat(journal.size()).isEqualTo(1);
+        assertThat(draw(replica)).isEqualTo(draw(master));
+    }
+
+    @Test
+    public void movingOutOfTreeIsRemoval() {
+        //given
+        val master = tree();
+        val replica = tree();
+        val elsewhere = Nodes.namedRoot("elsewhere", "elsewhere");
+        val journal = record(master);
+        //when
+        master.findChildByName("docs").get().setParent(elsewhere);
+        journal.apply(replica);
+        //then
+        assertThat(replica.findChildByName("docs")).isEmpty();
+    }
+
+    @Test
+    public void replicaWithoutNodeIsRejected() {
+        //given
+        val master = tree();
+        val journal = record(master);
+        master.findChildByName("docs").get().setData("changed");
+        //then
+        assertThatExceptionOfType(NodeException.class)
+                .isThrownBy(() -> journal.apply(Nodes.namedRoot("root", "root")))
+                .withMessage("No node at path: docs");
+    }
+
+    @Test
+    public void unnamedNodesAreAddedButCannotBeReplayed() {
+        //given
+        val master = tree();
+        val replica = tree();
+        val journal = record(master);
+        //when
+        val unnamed = Nodes.unnamedChild("data", master);
+        master.setData("changed");
+        //then
+        assertThat(master.getChildren()).contains(unnamed);
+        assertThat(journal.isReplayable()).isFalse();
+        assertThatExceptionOfType(NodeException.class)
+                .isThrownBy(() -> journal.apply(replica))
+                .withMessage("Cannot journal a change to an unnamed node");
+        assertThat(draw(replica)).isEqualTo(draw(tree()));
+    }
+
+    @Test
+    public void unnamedMarkerSurvivesShipping() throws IOException {
+        //given
+        val master = tree();
+        val journal = record(master);
+        master.findChildByName("docs").get().createChild("child");
+        val out = new ByteArrayOutputStream();
+        //when
+        journal.write(out, NodeDataCodec.utf8());
+        val shipped = MutationJournal.read(new ByteArrayInputStream(out.toByteArray()), NodeDataCodec.utf8());
+        //then
+        assertThat(shipped.isReplayable()).isFalse();
+        assertThatExceptionOfType(NodeException.class)
+                .isThrownBy(() -> shipped.apply(tree()));
+    }
+
+    @Test
+    public void recordedChangesAreReplayable() {
+        //given
+        val master = tree();
+        val journal = record(master);
+        //when
+        mutate(master);
+        //then
+        assertThat(journal.isReplayable()).isTrue();
+    }
+
+    @Test
+    public void readRejectsOtherData() {
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> MutationJournal.read(new ByteArrayInputStream(new byte[]{'N', 'O', 'D', 'E', 1}),
+                        NodeDataCodec.utf8()))
+                .withMessage("Not a mutation journal");
+    }
+}
@@ -0,0 +1,239 @@
+package net.kemitix.node;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link NamePrefix}.
+ *
+ * @author pcampbell
+ */
+public class NamePrefixTest {
+
+    private static List<String> names(final Stream<Node<String>> nodes) {
+        return nodes.map(Node::getName)
+                    .collect(Collectors.toList());
+    }
+
+    private static Node<String> tree(final Node<String> root) {
+        Nodes.namedChild("car", "car", root);
+        val cart = Nodes.namedChild("cart", "cart", root);
+        Nodes.namedChild("dog", "dog", root);
+        Nodes.namedChild("carton", "carton", cart);
+        Nodes.namedChild("cat", "cat", cart);
+        Nodes.unnamedChild("unnamed", root);
+        return root;
+    }
+
+    @Test
+    public void findsChildrenByPrefix() {
+        //given
+        val root = tree(Nodes.namedRoot("root", "root"));
+        //then
+        assertThat(names(root.findChildrenByNamePrefix("car"))).containsExactlyInAnyOrder("car", "cart");
+        assertThat(names(root.findChildrenByNamePrefix("x"))).isEmpty();
+    }
+
+    @Test
+    public void findsOrderedChildrenByPrefixInOrder() {
+        //given
+        val root = tree(Nodes.orderedRoot("root", "root"));
+        //then
+        assertThat(names(root.findChildrenByNamePrefix("car"))).containsExactly("car", "cart");
+        assertThat(names(root.findChildrenByNamePrefix("cart"))).containsExactly("cart");
+        assertThat(names(root.findChildrenByNamePrefix(""))).containsExactly("", "car", "cart", "dog");
+    }
+
+    @Test
+    public void findsOrderedChildrenAfterRename() {
+        //given
+        val root = tree(Nodes.orderedRoot("root", "root"));
+        //when
+        root.findChildByName("dog").get().setName("cab");
+        //then
+        assertThat(names(root.findChildrenByNamePrefix("ca"))).containsExactly("cab", "car", "cart");
+    }
+
+    @Test
+    public void findsChildrenAfterRenameAndRemoval() {
+        //given
+        val root = tree(Nodes.namedRoot("root", "root"));
+        val elsewhere = Nodes.namedRoot("elsewhere", "elsewhere");
+        //when
+        root.findChildByName("dog").get().setName("cab");
+        root.findChildByName("car").get().setParent(elsewhere);
+        root.getChildren().removeIf(child -> "cart".equals(child.getName()));
+        //then
+        assertThat(names(root.findChildrenByNamePrefix("ca"))).containsExactly("cab");
+        assertThat(root.findChildByName("dog")).isEmpty();
+        assertThat(root.findChildByName("cab")).isNotEmpty();
+        assertThat(names(root.findChildrenByNamePrefix(""))).containsExactly("", "cab");
+    }
+
+    @Test
+    public void removesManyUnnamedSiblings() {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        val children = new ArrayList<Node<String>>();
+        for (int i = 0; i < 100_000; i++) {
+            children.add(root.createChild("unnamed"));
+        }
+        Nodes.namedChild("named", "named", root);
+        assertThat(root.findChildrenByNamePrefix("").count()).isEqualTo(100_001L);
+        assertThat(root.findChildByName("")).isNotEmpty();
+        //when
+        children.forEach(root::removeChild);
+        //then
+        assertThat(names(root.findChildrenByNamePrefix(""))).containsExactly("named");
+        assertThat(root.findChildByName("")).isEmpty();
+        assertThat(root.getChildren()).hasSize(1);
+    }
+
+    @Test
+    public void findsDescendantsByPrefix() {
+        //given
+        val root = tree(Nodes.namedRoot("car root", "car root"));
+        //then
+        assertThat(names(root.findDescendantsByNamePrefix("car")))
+                .containsExactlyInAnyOrder("car", "cart", "carton");
+        assertThat(names(root.findDescendantsByNamePrefix("cat"))).containsExactly("cat");
+    }
+
+    @Test
+    public void descendantSearchSkipsSubtreesWithoutMatches() {
+        //given
+        val root = tree(Nodes.namedRoot("root", "root"));
+        val dog = root.findChildByName("dog").get();
+        assertThat(names(root.findDescendantsByNamePrefix("cat"))).containsExactly("cat");
+        // a change made directly to the children is not detected, so is only found if "dog" is searched
+        dog.getChildren().add(new NodeItem<>("cat2", "cat2", null, null));
+        //when
+        val skipped = names(root.findDescendantsByNamePrefix("cat"));
+        Nodes.namedChild("cat3", "cat3", dog);
+        val searched = names(root.findDescendantsByNamePrefix("cat"));
+        //then
+        assertThat(skipped).containsExactly("cat");
+        assertThat(searched).containsExactlyInAnyOrder("cat", "cat2", "cat3");
+    }
+
+    @Test
+    public void descendantSearchSkipsSubtreesHoldingUnnamedNodes() {
+        //given
+        val root = tree(Nodes.namedRoot("root", "root"));
+        val dog = root.findChildByName("dog").get();
+        Nodes.unnamedChild("puppy", dog);
+        assertThat(names(root.findDescendantsByNamePrefix("cat"))).containsExactly("cat");
+        // a change made directly to the children is not detected, so is only found if "dog" is searched
+        dog.getChildren().add(new NodeItem<>("cat2", "cat2", null, null));
+        //when
+        val skipped = names(root.findDescendantsByNamePrefix("cat"));
+        val unnamed = root.findDescendantsByNamePrefix("")
+                          .filter(node -> !node.isNamed())
+                          .count();
+        //then
+        assertThat(skipped).containsExactly("cat");
+        assertThat(unnamed).isEqualTo(2L);
+    }
+
+    @Test
+    public void concurrentDescendantSearches() throws Exception {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        for (int i = 0; i < 100; i++) {
+            val branch = Nodes.namedChild("branch", "branch" + i, root);
+            for (int j = 0; j < 100; j++) {
+                Nodes.namedChild("leaf", "leaf" + i + "-" + j, branch);
+            }
+        }
+        val pool = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Long>> counts = new ArrayList<>();
+            //when
+            for (int i = 0; i < 16; i++) {
+                counts.add(pool.submit(() -> root.findDescendantsByNamePrefix("leaf7-").count()));
+            }
+            //then
+            for (final Future<Long> count : counts) {
+                assertThat(count.get()).isEqualTo(100L);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void descendantSearchOfImmutableTree() {
+        //given
+        val root = Nodes.asImmutable(tree(Nodes.namedRoot("root", "root")));
+        //when
+        val first = names(root.findDescendantsByNamePrefix("cart"));
+        val second = names(root.findDescendantsByNamePrefix("cat"));
+        //then
+        assertThat(first).containsExactlyInAnyOrder("cart", "carton");
+        assertThat(second).containsExactly("cat");
+    }
+
+    @Test
+    public void descendantSearchFindsRenamedNodes() {
+        //given
+        val root = tree(Nodes.namedRoot("root", "root"));
+        assertThat(names(root.findDescendantsByNamePrefix("cat"))).containsExactly("cat");
+        //when
+        root.findChildByName("dog").get().setName("catdog");
+        root.findChildByName("cart").get().findChildByName("cat").get().setName("kitten");
+        //then
+        assertThat(names(root.findDescendantsByNamePrefix("cat"))).containsExactly("catdog");
+        assertThat(names(root.findDescendantsByNamePrefix("kit"))).containsExactly("kitten");
+    }
+
+    @Test
+    public void descendantSearchIsLazy() {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        for (int i = 0; i < 100; i++) {
+            Nodes.namedChild("match", "match" + i, root);
+        }
+        val visited = new AtomicInteger();
+        //when
+        val found = root.findDescendantsByNamePrefix("match")
+                        .peek(node -> visited.incrementAndGet())
+                        .limit(3)
+                        .count();
+        //then
+        assertThat(found).isEqualTo(3L);
+        assertThat(visited.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void descendantSearchOfDeepTree() {
+        //given
+        val root = new NodeItem<String>(null, "level", null, null);
+        NodeItem<String> leaf = root;
+        for (int i = 0; i < 100_000; i++) {
+            val child = new NodeItem<String>(null, "level", null, null);
+            leaf.attachChild(child);
+            leaf = child;
+        }
+        leaf.setName("bottom");
+        //then
+        assertThat(names(root.findDescendantsByNamePrefix("bot"))).containsExactly("bottom");
+    }
+
+    @Test
+    public void upperBoundOfPrefix() {
+        assertThat(NamePrefix.upperBound("abc")).isEqualTo("abd");
+        assertThat(NamePrefix.upperBound("a\uffff")).isEqualTo("b");
+        assertThat(NamePrefix.upperBound("\uffff")).isNull();
+        assertThat(NamePrefix.upperBound("")).isNull();
+    }
+}
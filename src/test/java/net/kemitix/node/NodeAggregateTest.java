@@ -0,0 +1,149 @@
+package net.kemitix.node;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link NodeAggregate}.
+ *
+ * @author pcampbell
+ */
+public class NodeAggregateTest {
+
+    private final AtomicInteger evaluations = new AtomicInteger();
+
+    private final NodeAggregate<Integer, Integer> total = NodeAggregate.of("total", node -> {
+        evaluations.incrementAndGet();
+        return node.findData().orElse(0);
+    }, Integer::sum);
+
+    private Node<Integer> root;
+
+    private Node<Integer> deepest;
+
+    /**
+     * A root with three branches, each a line of three nodes, all holding 1.
+     */
+    private void givenTree() {
+        root = Nodes.namedRoot(1, "root");
+        for (int branch = 0; branch < 3; branch++) {
+            Node<Integer> parent = root;
+            for (int depth = 0; depth < 3; depth++) {
+                parent = Nodes.namedChild(1, "node" + branch + depth, parent);
+            }
+            deepest = parent;
+        }
+    }
+
+    @Test
+    public void computesAggregate() {
+        //given
+        givenTree();
+        //then
+        assertThat(total.get(root)).isEqualTo(10);
+        assertThat(total.get(deepest)).isEqualTo(1);
+        assertThat(total.getName()).isEqualTo("total");
+    }
+
+    @Test
+    public void valuesAreCached() {
+        //given
+        givenTree();
+        total.get(root);
+        evaluations.set(0);
+        //when
+        total.get(root);
+        total.get(deepest.findParent().get());
+        //then
+        assertThat(evaluations.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void setDataRecomputesOnlyPathToRoot() {
+        //given
+        givenTree();
+        total.get(root);
+        evaluations.set(0);
+        //when
+        deepest.setData(5);
+        //then
+        assertThat(total.get(root)).isEqualTo(14);
+        assertThat(evaluations.get()).isEqualTo(4);
+    }
+
+    @Test
+    public void addChildRecomputesOnlyPathToRoot() {
+        //given
+        givenTree();
+        total.get(root);
+        evaluations.set(0);
+        //when
+        deepest.addChild(Nodes.namedRoot(7, "added"));
+        //then
+        assertThat(total.get(root)).isEqualTo(17);
+        assertThat(evaluations.get()).isEqualTo(5);
+    }
+
+    @Test
+    public void removeChildInvalidatesParent() {
+        //given
+        givenTree();
+        total.get(root);
+        val parent = deepest.findParent().get();
+        //when
+        parent.removeChild(deepest);
+        //then
+        assertThat(total.get(root)).isEqualTo(9);
+        assertThat(total.get(parent)).isEqualTo(1);
+    }
+
+    @Test
+    public void setParentInvalidatesBothParents() {
+        //given
+        givenTree();
+        val other = root.findChildByName("node00").get();
+        total.get(root);
+        val oldParent = deepest.findParent().get();
+        //when
+        deepest.setParent(other);
+        //then
+        assertThat(total.get(root)).isEqualTo(10);
+        assertThat(total.get(oldParent)).isEqualTo(1);
+        assertThat(total.get(other)).isEqualTo(4);
+    }
+
+    @Test
+    public void aggregatesAreIndependent() {
+        //given
+        givenTree();
+        final NodeAggregate<Integer, Integer> count = NodeAggregate.of("count",
+                (node, results) -> 1 + results.stream().mapToInt(Integer::intValue).sum());
+        total.get(root);
+        //when
+        deepest.setData(3);
+        //then
+        assertThat(count.get(root)).isEqualTo(10);
+        assertThat(total.get(root)).isEqualTo(12);
+    }
+
+    @Test
+    public void nullValuesAreCached() {
+        //given
+        givenTree();
+        val calls = new AtomicInteger();
+        final NodeAggregate<Integer, String> nothing = NodeAggregate.of("nothing", (node, results) -> {
+            calls.incrementAndGet();
+            return null;
+        });
+        nothing.get(root);
+        //when
+        val value = nothing.get(root);
+        //then
+        assertThat(value).isNull();
+        assertThat(calls.get()).isEqualTo(10);
+    }
+}
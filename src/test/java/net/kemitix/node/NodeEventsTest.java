@@ -0,0 +1,293 @@
+package net.kemitix.node;
+
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static net.trajano.commons.testing.UtilityClassTestUtil.assertUtilityClassWellDefined;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link NodeEvents}.
+ *
+ * @author pcampbell
+ */
+public class NodeEventsTest {
+
+    private final List<List<NodeEvent<String>>> batches = new ArrayList<>();
+
+    private final List<NodeEvents.Subscription> subscriptions = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        subscriptions.forEach(NodeEvents.Subscription::cancel);
+    }
+
+    private void listenTo(final Node<String> node) {
+        subscriptions.add(NodeEvents.subscribe(node, batches::add));
+    }
+
+    private List<NodeEvent<String>> events() {
+        return batches.stream()
+                      .flatMap(List::stream)
+                      .collect(Collectors.toList());
+    }
+
+    private List<NodeEvent.Type> types() {
+        return events().stream()
+                       .map(NodeEvent::getType)
+                       .collect(Collectors.toList());
+    }
+
+    @Test
+    public void shouldBeValidUtilityClass() throws Exception {
+        assertUtilityClassWellDefined(NodeEvents.class);
+    }
+
+    @Test
+    public void addedChild() {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        listenTo(root);
+        val child = Nodes.namedRoot("child", "child");
+        //when
+        root.addChild(child);
+        //then
+        assertThat(types()).containsExactly(NodeEvent.Type.ADDED);
+        val event = events().get(0);
+        assertThat(event.getNode()).isSameAs(child);
+        assertThat(event.findParent()).contains(root);
+        assertThat(event.findOldParent()).isEmpty();
+    }
+
+    @Test
+    public void createdChild() {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        listenTo(root);
+        //when
+        val child = Nodes.namedChild("child", "child", root);
+        //then
+        assertThat(types()).containsExactly(NodeEvent.Type.ADDED);
+        assertThat(events().get(0).getNode()).isSameAs(child);
+    }
+
+    @Test
+    public void removedChild() {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        val child = Nodes.namedChild("child", "child", root);
+        listenTo(root);
+        //when
+        root.removeChild(child);
+        //then
+        assertThat(types()).containsExactly(NodeEvent.Type.REMOVED);
+        assertThat(events().get(0).findOldParent()).contains(root);
+        assertThat(events().get(0).findParent()).isEmpty();
+    }
+
+    @Test
+    public void removedParent() {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        val child = Nodes.namedChild("child", "child", root);
+        listenTo(root);
+        //when
+        child.removeParent();
+        //then
+        assertThat(types()).containsExactly(NodeEvent.Type.REMOVED);
+    }
+
+    @Test
+    public void movedNodeNotifiesBothSubtrees() {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        val from = Nodes.namedChild("from", "from", root);
+        val to = Nodes.namedChild("to", "to", root);
+        val child = Nodes.namedChild("child", "child", from);
+        val fromEvents = new ArrayList<NodeEvent<String>>();
+        val toEvents = new ArrayList<NodeEvent<String>>();
+        subscriptions.add(NodeEvents.subscribe(from, fromEvents::addAll));
+        subscriptions.add(NodeEvents.subscribe(to, toEvents::addAll));
+        listenTo(root);
+        //when
+        child.setParent(to);
+        //then
+        assertThat(types()).containsExactly(NodeEvent.Type.MOVED);
+        assertThat(fromEvents).hasSize(1);
+        assertThat(toEvents).hasSize(1);
+        val event = events().get(0);
+        assertThat(event.findParent()).contains(to);
+        assertThat(event.findOldParent()).contains(from);
+    }
+
+    @Test
+    public void renamedAndDataChanged() {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        val child = Nodes.namedChild("old data", "old name", root);
+        listenTo(root);
+        //when
+        child.setName("new name");
+        child.setData("new data");
+        //then
+        assertThat(types()).containsExactly(NodeEvent.Type.RENAMED, NodeEvent.Type.DATA_CHANGED);
+        assertThat(events().get(0).getOldName()).isEqualTo("old name");
+        assertThat(events().get(1).findOldData()).contains("old data");
+        assertThat(batches).hasSize(2);
+    }
+
+    @Test
+    public void subscriptionIsScopedToSubtree() {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        val watched = Nodes.namedChild("watched", "watched", root);
+        val other = Nodes.namedChild("other", "other", root);
+        listenTo(watched);
+        //when
+        other.setData("changed");
+        Nodes.namedChild("child", "child", other);
+        Nodes.namedChild("child", "child", watched);
+        //then
+        assertThat(types()).containsExactly(NodeEvent.Type.ADDED);
+    }
+
+    @Test
+    public void batchDeliversOnceAtEnd() {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        listenTo(root);
+        //when
+        NodeEvents.batch(() -> {
+            Nodes.namedChild("a", "a", root);
+            NodeEvents.batch(() -> Nodes.namedChild("b", "b", root));
+            assertThat(batches).isEmpty();
+        });
+        //then
+        assertThat(batches).hasSize(1);
+        assertThat(types()).containsExactly(NodeEvent.Type.ADDED, NodeEvent.Type.ADDED);
+    }
+
+    @Test
+    public void batchCoalescesRepeatedChanges() {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        val child = Nodes.namedChild("v1", "child", root);
+        listenTo(root);
+        //when
+        NodeEvents.batch(() -> {
+            child.setData("v2");
+            child.setData("v3");
+            child.setName("renamed");
+            child.setName("renamed again");
+        });
+        //then
+        assertThat(types()).containsExactly(NodeEvent.Type.DATA_CHANGED, NodeEvent.Type.RENAMED);
+        assertThat(events().get(0).findOldData()).contains("v1");
+        assertThat(events().get(1).getOldName()).isEqualTo("child");
+    }
+
+    @Test
+    public void insertInPathIsOneBatch() {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        listenTo(root);
+        //when
+        root.insertInPath(Nodes.namedRoot("leaf", "leaf"), "a", "b", "c");
+        //then
+        assertThat(batches).hasSize(1);
+        assertThat(events()).hasSize(4);
+    }
+
+    @Test
+    public void cancelledListenerReceivesNothing() {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        val subscription = NodeEvents.subscribe(root, batches::add);
+        //when
+        subscription.cancel();
+        subscription.cancel();
+        root.setData("changed");
+        //then
+        assertThat(batches).isEmpty();
+        assertThat(NodeEvents.isObserved(root)).isFalse();
+    }
+
+    @Test
+    public void onlyListenedSubtreesAreObserved() {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        val child = Nodes.namedChild("child", "child", root);
+        val other = Nodes.namedRoot("other", "other");
+        //when
+        listenTo(child);
+        //then
+        assertThat(NodeEvents.isObserved(Nodes.namedChild("grandchild", "grandchild", child))).isTrue();
+        assertThat(NodeEvents.isObserved(root)).isFalse();
+        assertThat(NodeEvents.isObserved(other)).isFalse();
+    }
+
+    @Test
+    public void changesToUnlistenedTreeAreNotDelivered() {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        listenTo(root);
+        val other = Nodes.namedRoot("other", "other");
+        //when
+        other.insertInPath(Nodes.namedRoot("leaf", "leaf"), "a", "b");
+        other.createDescendantLine(Arrays.asList("x", "y"));
+        other.setData("changed");
+        //then
+        assertThat(batches).isEmpty();
+    }
+
+    @Test
+    public void insertingNodeFromListenedTreeIsDelivered() {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        val child = Nodes.namedChild("child", "child", root);
+        listenTo(root);
+        val other = Nodes.namedRoot("other", "other");
+        //when
+        other.insertInPath(child, "a");
+        //then
+        assertThat(batches).hasSize(1);
+        assertThat(types()).containsExactly(NodeEvent.Type.MOVED);
+    }
+
+    @Test
+    public void eventsAfterFailedBatchAreDelivered() {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        listenTo(root);
+        //when
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> NodeEvents.batch(() -> {
+                    root.setData("changed");
+                    throw new IllegalStateException("failed");
+                }));
+        //then
+        assertThat(types()).containsExactly(NodeEvent.Type.DATA_CHANGED);
+    }
+
+    @Test
+    public void subscribingToMappedNodeIsRejected() throws IOException {
+        //given
+        val bytes = new ByteArrayOutputStream();
+        NodeSerializer.using(NodeDataCodec.utf8()).indexed().write(Nodes.namedRoot("root", "root"), bytes);
+        val mapped = MappedNodeItem.root(ByteBuffer.wrap(bytes.toByteArray()), NodeDataCodec.utf8());
+        //then
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> NodeEvents.subscribe(mapped, batches::add))
+                .withMessage("Node does not support listeners");
+    }
+}
@@ -0,0 +1,136 @@
+package net.kemitix.node;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static net.trajano.commons.testing.UtilityClassTestUtil.assertUtilityClassWellDefined;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link NodeExporter}.
+ *
+ * @author pcampbell
+ */
+public class NodeExporterTest {
+
+    private static Node<String> chain() {
+        val root = Nodes.namedRoot("root data", "root");
+        val child = Nodes.namedChild((String) null, "child", root);
+        Nodes.unnamedChild("leaf data", child);
+        return root;
+    }
+
+    @Test
+    public void shouldBeValidUtilityClass() throws Exception {
+        assertUtilityClassWellDefined(NodeExporter.class);
+    }
+
+    @Test
+    public void writeJsonOfChain() throws IOException {
+        //given
+        val out = new StringBuilder();
+        //when
+        NodeExporter.writeJson(chain(), out, NodeDataWriter.asString());
+        //then
+        assertThat(out.toString()).isEqualTo(
+                "{\"name\":\"root\",\"data\":\"root data\",\"children\":["
+                        + "{\"name\":\"child\",\"data\":null,\"children\":["
+                        + "{\"name\":\"\",\"data\":\"leaf data\",\"children\":[]}]}]}");
+    }
+
+    @Test
+    public void writeJsonSeparatesSiblings() throws IOException {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        Nodes.namedChild("a", "a", root);
+        Nodes.namedChild("b", "b", root);
+        val out = new StringWriter();
+        //when
+        NodeExporter.writeJson(root, out, NodeDataWriter.asString());
+        //then
+        val a = "{\"name\":\"a\",\"data\":\"a\",\"children\":[]}";
+        val b = "{\"name\":\"b\",\"data\":\"b\",\"children\":[]}";
+        assertThat(out.toString()).isIn(
+                "{\"name\":\"root\",\"data\":\"root\",\"children\":[" + a + "," + b + "]}",
+                "{\"name\":\"root\",\"data\":\"root\",\"children\":[" + b + "," + a + "]}");
+    }
+
+    @Test
+    public void writeJsonEscapesStrings() throws IOException {
+        //given
+        val root = Nodes.namedRoot("tab\there", "say \"hi\"\\\n");
+        val out = new StringBuilder();
+        //when
+        NodeExporter.writeJson(root, out, NodeDataWriter.asString());
+        //then
+        assertThat(out.toString()).isEqualTo(
+                "{\"name\":\"say \\\"hi\\\"\\\\\\u000a\",\"data\":\"tab\\u0009here\",\"children\":[]}");
+    }
+
+    @Test
+    public void writeJsonUsesDataWriter() throws IOException {
+        //given
+        val root = Nodes.namedRoot(42, "answer");
+        val out = new StringBuilder();
+        //when
+        NodeExporter.writeJson(root, out, (data, appendable) -> appendable.append(data.toString()));
+        //then
+        assertThat(out.toString()).isEqualTo("{\"name\":\"answer\",\"data\":42,\"children\":[]}");
+    }
+
+    @Test
+    public void writeYamlOfChain() throws IOException {
+        //given
+        val out = new StringBuilder();
+        //when
+        NodeExporter.writeYaml(chain(), out, NodeDataWriter.asString());
+        //then
+        assertThat(out.toString()).isEqualTo(
+                "name: \"root\"\n"
+                        + "data: \"root data\"\n"
+                        + "children:\n"
+                        + "- name: \"child\"\n"
+                        + "  data: null\n"
+                        + "  children:\n"
+                        + "  - name: \"\"\n"
+                        + "    data: \"leaf data\"\n"
+                        + "    children: []\n");
+    }
+
+    private static Node<String> deepTree(final int depth) {
+        val root = new NodeItem<String>(null, "level", null, null);
+        NodeItem<String> leaf = root;
+        for (int i = 1; i < depth; i++) {
+            val child = new NodeItem<String>(null, "level", null, null);
+            leaf.attachChild(child);
+            leaf = child;
+        }
+        return root;
+    }
+
+    @Test
+    public void writeJsonOfDeepTreeWithoutRecursion() throws IOException {
+        //given
+        val root = deepTree(100_000);
+        val json = new StringBuilder();
+        //when
+        NodeExporter.writeJson(root, json, NodeDataWriter.asString());
+        //then
+        assertThat(json.toString().split("\\{", -1)).hasSize(100_001);
+    }
+
+    @Test
+    public void writeYamlOfDeepTreeWithoutRecursion() throws IOException {
+        //given
+        val depth = 2_000;
+        val root = deepTree(depth);
+        val yaml = new StringBuilder();
+        //when
+        NodeExporter.writeYaml(root, yaml, NodeDataWriter.asString());
+        //then
+        assertThat(yaml.toString().split("\n")).hasSize(depth * 3);
+    }
+}
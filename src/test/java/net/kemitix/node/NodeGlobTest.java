@@ -0,0 +1,151 @@
+package net.kemitix.node;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link NodeGlob}.
+ *
+ * @author pcampbell
+ */
+public class NodeGlobTest {
+
+    private static void insert(final Node<String> root, final String path) {
+        val names = path.split("/");
+        val leaf = names[names.length - 1];
+        val parents = new String[names.length - 1];
+        System.arraycopy(names, 0, parents, 0, parents.length);
+        root.insertInPath(Nodes.namedRoot(path, leaf), parents);
+    }
+
+    private static Node<String> tree(final Node<String> root) {
+        insert(root, "a/b/c");
+        insert(root, "a/x/c");
+        insert(root, "a/x/d");
+        insert(root, "logs/error");
+        insert(root, "logs/2018/05/error");
+        insert(root, "logs/2018/05/errors");
+        insert(root, "logs/2018/info");
+        return root;
+    }
+
+    private static List<String> paths(final Stream<Node<String>> nodes) {
+        return nodes.map(node -> node.findData().orElse(""))
+                    .collect(Collectors.toList());
+    }
+
+    @Test
+    public void literalPath() {
+        //given
+        val root = tree(Nodes.namedRoot(null, "root"));
+        //then
+        assertThat(paths(Nodes.match(root, "a/x/d"))).containsExactly("a/x/d");
+        assertThat(paths(Nodes.match(root, "a/y/d"))).isEmpty();
+    }
+
+    @Test
+    public void singleLevelWildcard() {
+        //given
+        val root = tree(Nodes.namedRoot(null, "root"));
+        //then
+        assertThat(paths(Nodes.match(root, "a/*/c"))).containsExactlyInAnyOrder("a/b/c", "a/x/c");
+    }
+
+    @Test
+    public void anyLevelsMatchesZeroOrMore() {
+        //given
+        val root = tree(Nodes.namedRoot(null, "root"));
+        //then
+        assertThat(paths(Nodes.match(root, "logs/**/error")))
+                .containsExactlyInAnyOrder("logs/error", "logs/2018/05/error");
+        assertThat(paths(Nodes.match(root, "**/c"))).containsExactlyInAnyOrder("a/b/c", "a/x/c");
+    }
+
+    @Test
+    public void wildcardsWithinName() {
+        //given
+        val root = tree(Nodes.orderedRoot(null, "root"));
+        //then
+        assertThat(paths(Nodes.match(root, "logs/**/err*")))
+                .containsExactlyInAnyOrder("logs/error", "logs/2018/05/error", "logs/2018/05/errors");
+        assertThat(paths(Nodes.match(root, "logs/*/0?/error"))).containsExactly("logs/2018/05/error");
+    }
+
+    @Test
+    public void orderedChildrenAreSearchedInOrder() {
+        //given
+        val root = Nodes.orderedRoot("root", "root");
+        Nodes.namedChild("c", "c", root);
+        Nodes.namedChild("a", "a", root);
+        Nodes.namedChild("b", "b", root);
+        //then
+        assertThat(paths(Nodes.match(root, "*"))).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    public void regexCharactersAreLiteral() {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        Nodes.namedChild("a.b", "a.b", root);
+        Nodes.namedChild("axb", "axb", root);
+        //then
+        assertThat(paths(Nodes.match(root, "a.*"))).containsExactly("a.b");
+    }
+
+    @Test
+    public void onlyAnyLevelsIncludesRoot() {
+        //given
+        val root = tree(Nodes.namedRoot("root", "root"));
+        //then
+        assertThat(Nodes.match(root, "**").count()).isEqualTo(root.stream().count());
+    }
+
+    @Test
+    public void literalSegmentsDoNotVisitOtherBranches() {
+        //given
+        val visits = new AtomicInteger();
+        val root = Nodes.<String>lazyRoot(null, "root", node -> {
+            visits.incrementAndGet();
+            final Map<String, String> children = new HashMap<>();
+            if (node.getName().length() < 7) {
+                for (int i = 0; i < 4; i++) {
+                    children.put(node.getName() + i, null);
+                }
+            }
+            return children;
+        });
+        //when
+        val found = Nodes.match(root, "root0/root01/root012").count();
+        //then
+        assertThat(found).isEqualTo(1L);
+        assertThat(visits.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void emptySegmentIsRejected() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> NodeGlob.compile("a//b"));
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> NodeGlob.compile(""));
+    }
+
+    @Test
+    public void compiledGlobIsReusable() {
+        //given
+        val glob = NodeGlob.compile("a/*/c");
+        //then
+        assertThat(glob.match(tree(Nodes.namedRoot(null, "one"))).count()).isEqualTo(2L);
+        assertThat(glob.match(tree(Nodes.namedRoot(null, "two"))).count()).isEqualTo(2L);
+        assertThat(glob.toString()).isEqualTo("a/*/c");
+    }
+}
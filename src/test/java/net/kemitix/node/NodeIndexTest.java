@@ -0,0 +1,169 @@
+package net.kemitix.node;
+
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link NodeIndex}.
+ *
+ * @author pcampbell
+ */
+public class NodeIndexTest {
+
+    /**
+     * Data of the form "owner:item".
+     */
+    private static String ownerOf(final String data) {
+        return data.substring(0, data.indexOf(':'));
+    }
+
+    private final List<NodeIndex<String, String>> indexes = new ArrayList<>();
+
+    private NodeIndex<String, String> index(final Node<String> root) {
+        final NodeIndex<String, String> index = NodeIndex.on(root, "owner", NodeIndexTest::ownerOf);
+        indexes.add(index);
+        return index;
+    }
+
+    @AfterEach
+    public void closeIndexes() {
+        indexes.forEach(NodeIndex::close);
+    }
+
+    private static Node<String> tree() {
+        val root = Nodes.namedRoot("admin:root", "root");
+        val a = Nodes.namedChild("alice:a", "a", root);
+        Nodes.namedChild("bob:a1", "a1", a);
+        Nodes.namedChild("alice:a2", "a2", a);
+        Nodes.namedChild("bob:b", "b", root);
+        return root;
+    }
+
+    @Test
+    public void indexesExistingNodes() {
+        //given
+        val root = tree();
+        //when
+        val index = index(root);
+        //then
+        assertThat(index.getName()).isEqualTo("owner");
+        assertThat(index.get("alice")).hasSize(2);
+        assertThat(index.get("bob")).hasSize(2);
+        assertThat(index.get("admin")).containsExactly(root);
+        assertThat(index.get("nobody")).isEmpty();
+        assertThat(index.keys()).containsExactlyInAnyOrder("admin", "alice", "bob");
+        assertThat(index.size()).isEqualTo(5);
+    }
+
+    @Test
+    public void nodesWithoutDataAreNotIndexed() {
+        //given
+        val root = tree();
+        Nodes.namedChild(null, "empty", root);
+        //when
+        val index = index(root);
+        //then
+        assertThat(index.size()).isEqualTo(5);
+    }
+
+    @Test
+    public void setDataMovesNodeToNewKey() {
+        //given
+        val root = tree();
+        val index = index(root);
+        val b = root.findChildByName("b").get();
+        //when
+        b.setData("carol:b");
+        //then
+        assertThat(index.get("bob")).hasSize(1);
+        assertThat(index.get("carol")).containsExactly(b);
+    }
+
+    @Test
+    public void setDataOnRootIsTracked() {
+        //given
+        val root = tree();
+        val index = index(root);
+        //when
+        root.setData("carol:root");
+        //then
+        assertThat(index.get("admin")).isEmpty();
+        assertThat(index.get("carol")).containsExactly(root);
+    }
+
+    @Test
+    public void addedSubtreeIsIndexed() {
+        //given
+        val root = tree();
+        val index = index(root);
+        val subtree = Nodes.namedRoot("dave:c", "c");
+        Nodes.namedChild("dave:c1", "c1", subtree);
+        //when
+        root.addChild(subtree);
+        //then
+        assertThat(index.get("dave")).hasSize(2);
+    }
+
+    @Test
+    public void removedSubtreeIsUnindexed() {
+        //given
+        val root = tree();
+        val index = index(root);
+        //when
+        root.removeChild(root.findChildByName("a").get());
+        //then
+        assertThat(index.get("alice")).isEmpty();
+        assertThat(index.get("bob")).hasSize(1);
+        assertThat(index.keys()).containsExactlyInAnyOrder("admin", "bob");
+    }
+
+    @Test
+    public void reparentingIsTracked() {
+        //given
+        val root = tree();
+        val other = Nodes.namedRoot("erin:other", "other");
+        val index = index(root);
+        val a = root.findChildByName("a").get();
+        val b = root.findChildByName("b").get();
+        //when
+        b.setParent(a);
+        a.setParent(other);
+        //then
+        assertThat(index.get("alice")).isEmpty();
+        assertThat(index.get("bob")).isEmpty();
+        //when
+        a.setParent(root);
+        //then
+        assertThat(index.get("alice")).hasSize(2);
+        assertThat(index.get("bob")).hasSize(2);
+    }
+
+    @Test
+    public void closeStopsTracking() {
+        //given
+        val root = tree();
+        val index = index(root);
+        //when
+        index.close();
+        Nodes.namedChild("frank:f", "f", root);
+        //then
+        assertThat(index.get("frank")).isEmpty();
+        assertThat(index.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void findAnyReturnsOneNode() {
+        //given
+        val root = tree();
+        val index = index(root);
+        //then
+        assertThat(index.findAny("alice").map(Node::getName).get()).isIn("a", "a2");
+        assertThat(index.findAny("nobody")).isEmpty();
+    }
+}
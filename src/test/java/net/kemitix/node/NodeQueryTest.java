@@ -0,0 +1,211 @@
+package net.kemitix.node;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link NodeQuery}.
+ *
+ * @author pcampbell
+ */
+public class NodeQueryTest {
+
+    /**
+     * root(0) - customers(1) - c1(2) - a1(3) = 10, a2(3) = -5
+     *                        - c2(2) - a3(3) = -20
+     *         - suppliers(1) - s1(2) - a4(3) = -1
+     */
+    private static Node<Integer> tree(final Node<Integer> root) {
+        val customers = Nodes.namedChild(0, "customers", root);
+        val c1 = Nodes.namedChild(0, "c1", customers);
+        Nodes.namedChild(10, "a1", c1);
+        Nodes.namedChild(-5, "a2", c1);
+        Nodes.namedChild(-20, "a3", Nodes.namedChild(0, "c2", customers));
+        Nodes.namedChild(-1, "a4", Nodes.namedChild(0, "s1", Nodes.namedChild(0, "suppliers", root)));
+        return root;
+    }
+
+    private static List<String> names(final Stream<Node<Integer>> nodes) {
+        return nodes.map(Node::getName)
+                    .collect(Collectors.toList());
+    }
+
+    @Test
+    public void selectFindsEveryNode() {
+        //given
+        val root = tree(Nodes.namedRoot(0, "root"));
+        //then
+        assertThat(NodeQuery.<Integer>select().stream(root).count()).isEqualTo(10L);
+    }
+
+    @Test
+    public void depthDataAndAncestor() {
+        //given
+        val root = tree(Nodes.namedRoot(0, "root"));
+        val query = NodeQuery.<Integer>select()
+                             .atDepth(3, 5)
+                             .withData(balance -> balance < 0)
+                             .under("customers");
+        //then
+        assertThat(names(query.stream(root))).containsExactlyInAnyOrder("a2", "a3");
+    }
+
+    @Test
+    public void depthRange() {
+        //given
+        val root = tree(Nodes.namedRoot(0, "root"));
+        //then
+        assertThat(names(NodeQuery.<Integer>select().atDepth(1, 1).stream(root)))
+                .containsExactlyInAnyOrder("customers", "suppliers");
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> NodeQuery.<Integer>select().atDepth(2, 1));
+    }
+
+    @Test
+    public void namesAndPredicates() {
+        //given
+        val root = tree(Nodes.namedRoot(0, "root"));
+        //then
+        assertThat(names(NodeQuery.<Integer>select().named("c2").stream(root))).containsExactly("c2");
+        assertThat(names(NodeQuery.<Integer>select().namedWithPrefix("a").where(Node::isRoot).stream(root)))
+                .isEmpty();
+        assertThat(names(NodeQuery.<Integer>select().namedWithPrefix("s").stream(root)))
+                .containsExactlyInAnyOrder("suppliers", "s1");
+    }
+
+    @Test
+    public void queriesAreImmutable() {
+        //given
+        val root = tree(Nodes.namedRoot(0, "root"));
+        val all = NodeQuery.<Integer>select();
+        //when
+        all.named("c1");
+        //then
+        assertThat(all.stream(root).count()).isEqualTo(10L);
+    }
+
+    @Test
+    public void globAccess() {
+        //given
+        val root = tree(Nodes.namedRoot(0, "root"));
+        val query = NodeQuery.<Integer>select()
+                             .matching("**/a*")
+                             .withData(balance -> balance < 0)
+                             .under("customers");
+        //then
+        assertThat(names(query.stream(root))).containsExactlyInAnyOrder("a2", "a3");
+        assertThat(query.explain()).startsWith("access: glob \"**/a*\"");
+    }
+
+    @Test
+    public void explainDescribesPruningAndIndex() {
+        //given
+        val query = NodeQuery.<Integer>select()
+                             .atDepth(3, 5)
+                             .named("x")
+                             .under("customers")
+                             .withData(balance -> balance < 0);
+        //then
+        assertThat(query.explain()).isEqualTo(
+                "access: walk depth-first from the root\n"
+                        + "prune: do not descend below depth 5\n"
+                        + "prune: do not descend from depth 4 unless under \"customers\"\n"
+                        + "index: find children at depth 5 by name \"x\"\n"
+                        + "filter: depth 3..5\n"
+                        + "filter: name \"x\"\n"
+                        + "filter: under \"customers\"\n"
+                        + "filter: data matches 1 predicate(s)");
+    }
+
+    @Test
+    public void depthLimitPrunesTheWalk() {
+        //given
+        val loads = new AtomicInteger();
+        val root = Nodes.<Integer>lazyRoot(0, "n", node -> {
+            loads.incrementAndGet();
+            final Map<String, Integer> children = new HashMap<>();
+            for (int i = 0; i < 3; i++) {
+                children.put(node.getName() + i, i);
+            }
+            return children;
+        });
+        //when
+        val found = NodeQuery.<Integer>select().atDepth(2, 2).stream(root).count();
+        //then
+        assertThat(found).isEqualTo(9L);
+        assertThat(loads.get()).isEqualTo(4);
+    }
+
+    @Test
+    public void ancestorPrunesShallowSubtrees() {
+        //given
+        val loads = new AtomicInteger();
+        val root = Nodes.<Integer>lazyRoot(0, "n", node -> {
+            loads.incrementAndGet();
+            final Map<String, Integer> children = new HashMap<>();
+            for (int i = 0; i < 3; i++) {
+                children.put(node.getName() + i, i);
+            }
+            return children;
+        });
+        //when
+        val found = NodeQuery.<Integer>select()
+                             .atDepth(0, 2)
+                             .under("n1")
+                             .stream(root);
+        //then
+        assertThat(names(found)).containsExactlyInAnyOrder("n10", "n11", "n12");
+        // only the root and n1 can have children under n1 within the depth limit
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void orderedNodesAreSearchedByName() {
+        //given
+        val root = Nodes.orderedRoot(0, "root");
+        for (int i = 0; i < 100; i++) {
+            Nodes.namedChild(i, "child" + i, root);
+        }
+        //then
+        assertThat(names(NodeQuery.<Integer>select().atDepth(1, 1).named("child42").stream(root)))
+                .containsExactly("child42");
+        assertThat(NodeQuery.<Integer>select().atDepth(1, 1).namedWithPrefix("child4").stream(root).count())
+                .isEqualTo(11L);
+    }
+
+    @Test
+    public void findInParallel() {
+        //given
+        val root = Nodes.namedRoot(0, "root");
+        for (int i = 0; i < 100; i++) {
+            val child = Nodes.namedChild(i, "child" + i, root);
+            for (int j = 0; j < 100; j++) {
+                Nodes.namedChild(j, "grandchild" + j, child);
+            }
+        }
+        val query = NodeQuery.<Integer>select()
+                             .atDepth(2, 2)
+                             .withData(data -> data % 10 == 0);
+        val pool = new ForkJoinPool(4);
+        try {
+            //when
+            val found = query.find(root, pool);
+            //then
+            assertThat(found).hasSize(1000);
+            assertThat(found.stream().distinct().count()).isEqualTo(1000L);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
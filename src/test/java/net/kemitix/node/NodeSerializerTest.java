@@ -0,0 +1,213 @@
+package net.kemitix.node;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link NodeSerializer}.
+ *
+ * @author pcampbell
+ */
+public class NodeSerializerTest {
+
+    private final NodeSerializer<String> serializer = NodeSerializer.using(NodeDataCodec.utf8());
+
+    private static String describe(final Node<String> node) {
+        return node.getName() + "=" + node.findData().orElse("-")
+                + node.getChildren().stream()
+                      .map(NodeSerializerTest::describe)
+                      .sorted()
+                      .collect(Collectors.joining(",", "(", ")"));
+    }
+
+    private static Node<String> sampleTree() {
+        val root = Nodes.namedRoot("root data", "root");
+        val alpha = Nodes.namedChild("alpha data", "alpha", root);
+        Nodes.namedChild(null, "shared", alpha);
+        val beta = Nodes.namedChild("beta data ☃", "beta", root);
+        Nodes.namedChild("", "shared", beta);
+        Nodes.unnamedChild("unnamed data", root);
+        return root;
+    }
+
+    private byte[] write(final Node<String> node) throws IOException {
+        val out = new ByteArrayOutputStream();
+        serializer.write(node, out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void roundTripPreservesNamesDataAndStructure() throws IOException {
+        //given
+        val root = sampleTree();
+        //when
+        val result = serializer.read(new ByteArrayInputStream(write(root)));
+        //then
+        assertThat(describe(result)).isEqualTo(describe(root));
+    }
+
+    @Test
+    public void roundTripViaChannels() throws IOException {
+        //given
+        val root = sampleTree();
+        val out = new ByteArrayOutputStream();
+        serializer.write(root, Channels.newChannel(out));
+        //when
+        val result = serializer.read(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())));
+        //then
+        assertThat(describe(result)).isEqualTo(describe(root));
+    }
+
+    @Test
+    public void readTreeIsMutableAndLinkedToParents() throws IOException {
+        //given
+        val bytes = write(sampleTree());
+        //when
+        val result = serializer.read(new ByteArrayInputStream(bytes));
+        //then
+        val alpha = result.findChildByName("alpha").get();
+        assertThat(alpha.findParent()).contains(result);
+        assertThat(result.isRoot()).isTrue();
+        alpha.setData("updated");
+        assertThat(alpha.findData()).contains("updated");
+    }
+
+    @Test
+    public void readImmutableTreeCanNotBeModified() throws IOException {
+        //given
+        val root = sampleTree();
+        val bytes = write(root);
+        //when
+        val result = serializer.readImmutable(new ByteArrayInputStream(bytes));
+        //then
+        assertThat(describe(result)).isEqualTo(describe(root));
+        val alpha = result.findChildByName("alpha").get();
+        assertThat(alpha.findParent()).contains(result);
+        assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> alpha.setData("updated"));
+    }
+
+    @Test
+    public void repeatedNamesAreWrittenOnce() throws IOException {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        for (int i = 0; i < 10; i++) {
+            Nodes.namedChild(null, "a-rather-long-repeated-name", Nodes.namedChild(null, "child" + i, root));
+        }
+        //when
+        val bytes = new String(write(root), "UTF-8");
+        //then
+        assertThat(bytes.split("a-rather-long-repeated-name", -1)).hasSize(2);
+    }
+
+    @Test
+    public void roundTripDataLargerThanTheBuffer() throws IOException {
+        //given
+        val chars = new char[200_000];
+        Arrays.fill(chars, 'x');
+        val data = new String(chars);
+        val root = Nodes.namedRoot(data, "root");
+        Nodes.namedChild(data, "child", root);
+        //when
+        val result = serializer.read(new ByteArrayInputStream(write(root)));
+        //then
+        assertThat(describe(result)).isEqualTo(describe(root));
+    }
+
+    @Test
+    public void roundTripDeepTreeWithoutRecursion() throws IOException {
+        //given
+        val depth = 100_000;
+        val root = new NodeItem<>("0", "level", null, null);
+        NodeItem<String> leaf = root;
+        for (int i = 1; i < depth; i++) {
+            val child = new NodeItem<>(Integer.toString(i), "level", null, null);
+            leaf.attachChild(child);
+            leaf = child;
+        }
+        //when
+        Node<String> node = serializer.read(new ByteArrayInputStream(write(root)));
+        //then
+        int count = 1;
+        while (!node.getChildren().isEmpty()) {
+            node = node.getChildren().iterator().next();
+            count++;
+        }
+        assertThat(count).isEqualTo(depth);
+        assertThat(node.findData()).contains(Integer.toString(depth - 1));
+    }
+
+    @Test
+    public void readRejectsOtherContent() {
+        //given
+        val in = new ByteArrayInputStream("not a tree".getBytes());
+        //then
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> serializer.read(in))
+                .withMessage("Not a serialized node tree");
+    }
+
+    @Test
+    public void readRejectsUnknownVersion() {
+        //given
+        val in = new ByteArrayInputStream(new byte[]{'N', 'O', 'D', 'E', 99, 0});
+        //then
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> serializer.read(in))
+                .withMessage("Unsupported format version: 99");
+    }
+
+    @Test
+    public void readRejectsNegativeVarInt() {
+        //given
+        val in = new ByteArrayInputStream(new byte[]{'N', 'O', 'D', 'E', 1, 0, 0,
+                (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x0f});
+        //then
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> serializer.read(in))
+                .withMessage("Malformed varint");
+    }
+
+    @Test
+    public void readRejectsOverLongVarInt() {
+        //given
+        val in = new ByteArrayInputStream(new byte[]{'N', 'O', 'D', 'E', 1, 0, (byte) 0x80, 0, 0, 0});
+        //then
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> serializer.read(in))
+                .withMessage("Malformed varint");
+    }
+
+    @Test
+    public void readsLargestVarInt() throws IOException {
+        //given
+        val bytes = new ByteArrayOutputStream();
+        val out = BinaryOutput.to(bytes);
+        out.writeVarInt(Integer.MAX_VALUE);
+        out.flush();
+        //when
+        val value = BinaryInput.from(new ByteArrayInputStream(bytes.toByteArray())).readVarInt();
+        //then
+        assertThat(value).isEqualTo(Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void readRejectsTruncatedContent() throws IOException {
+        //given
+        val bytes = write(sampleTree());
+        val in = new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 3));
+        //then
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> serializer.read(in));
+    }
+}
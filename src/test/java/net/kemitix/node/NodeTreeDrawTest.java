@@ -3,6 +3,10 @@ package net.kemitix.node;
 import lombok.val;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class NodeTreeDrawTest {
@@ -27,4 +31,94 @@ public class NodeTreeDrawTest {
         assertThat(lines).containsSubsequence("[root]", "[ bob]");
     }
 
+    private static Node<String> chain(final int length) {
+        final Node<String> root = Nodes.namedRoot(null, "0");
+        Node<String> leaf = root;
+        for (int i = 1; i < length; i++) {
+            leaf = Nodes.namedChild(null, Integer.toString(i), leaf);
+        }
+        return root;
+    }
+
+    @Test
+    public void drawTreeToAppendableMatchesDrawTree() throws IOException {
+        //given
+        final Node<String> node = Nodes.namedRoot(null, "root");
+        val alice = Nodes.namedChild("alice data", "alice", node);
+        Nodes.namedChild("dave data", "dave", alice);
+        val kim = Nodes.unnamedChild("kim data", node);
+        Nodes.namedChild("lucy data", "lucy", kim);
+        val out = new StringBuilder();
+        //when
+        Nodes.drawTree(node, out);
+        //then
+        assertThat(out.toString()).isEqualTo(Nodes.drawTree(node, 0));
+    }
+
+    @Test
+    public void drawTreeStopsAtMaxDepth() throws IOException {
+        //given
+        val out = new StringBuilder();
+        //when
+        Nodes.drawTree(chain(5), out, 2, Integer.MAX_VALUE);
+        //then
+        assertThat(out.toString()).isEqualTo("[0]\n[ 1]\n[  2]\n");
+    }
+
+    @Test
+    public void drawTreeDoesNotRequestChildrenBeyondMaxDepth() throws IOException {
+        //given
+        val loads = new AtomicInteger();
+        val root = Nodes.lazyRoot("root", "root", node -> {
+            loads.incrementAndGet();
+            return Collections.singletonMap("", "unnamed");
+        });
+        val out = new StringBuilder();
+        //when
+        Nodes.drawTree(root, out, 1, Integer.MAX_VALUE);
+        //then
+        assertThat(out.toString()).isEqualTo("[root]\n[ (unnamed)]\n");
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void drawTreeStopsAtMaxNodes() throws IOException {
+        //given
+        val out = new StringBuilder();
+        //when
+        Nodes.drawTree(chain(5), out, Integer.MAX_VALUE, 3);
+        //then
+        assertThat(out.toString()).isEqualTo("[0]\n[ 1]\n[  2]\n");
+    }
+
+    @Test
+    public void drawTreeWithNoNodesDrawsNothing() throws IOException {
+        //given
+        val out = new StringBuilder();
+        //when
+        Nodes.drawTree(chain(5), out, Integer.MAX_VALUE, 0);
+        //then
+        assertThat(out.toString()).isEmpty();
+    }
+
+    @Test
+    public void drawDeepTreeWithoutRecursion() throws IOException {
+        //given
+        val depth = 5_000;
+        val root = new NodeItem<String>(null, "level", null, null);
+        NodeItem<String> leaf = root;
+        for (int i = 1; i < depth; i++) {
+            val child = new NodeItem<String>(null, "level", null, null);
+            leaf.attachChild(child);
+            leaf = child;
+        }
+        val out = new StringBuilder();
+        //when
+        Nodes.drawTree(root, out);
+        //then
+        val lines = out.toString().split("\n");
+        assertThat(lines).hasSize(depth);
+        assertThat(lines[depth - 1]).hasSize(depth - 1 + "[level]".length());
+    }
+
 }
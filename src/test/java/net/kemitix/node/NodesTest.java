@@ -4,8 +4,20 @@ import lombok.val;
 import org.assertj.core.api.SoftAssertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
 import static net.trajano.commons.testing.UtilityClassTestUtil
         .assertUtilityClassWellDefined;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 /**
  * Tests for {@link Nodes}.
@@ -59,4 +71,315 @@ public class NodesTest {
         softly.assertAll();
     }
 
+    @Test
+    public void parseTreeRebuildsDrawnTree() throws IOException {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        val alice = Nodes.namedChild("alice", "alice", root);
+        Nodes.namedChild("dave", "dave", alice);
+        val kim = Nodes.unnamedChild("", root);
+        Nodes.namedChild("lucy", "lucy", kim);
+        Nodes.namedChild("bob", "bob", root);
+        val drawn = Nodes.drawTree(root, 0);
+        //when
+        val result = Nodes.parseTree(new StringReader(drawn), Function.identity());
+        //then
+        assertThat(Nodes.drawTree(result, 0).split("\n"))
+                .containsExactlyInAnyOrder(drawn.split("\n"));
+        assertThat(result.findInPath(Arrays.asList("alice", "dave"))).isNotEmpty();
+        assertThat(result.findChild("").map(Node::isNamed)).contains(false);
+    }
+
+    @Test
+    public void parseTreeFromChannel() throws IOException {
+        //given
+        val text = "[root]\n[ caf\u00e9]\n";
+        val channel = Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+        //when
+        val result = Nodes.parseTree(channel, Function.identity());
+        //then
+        assertThat(result.findChildByName("caf\u00e9").flatMap(Node::findData)).contains("caf\u00e9");
+    }
+
+    @Test
+    public void parseTreeIsRelativeToTheFirstNode() throws IOException {
+        //given
+        val text = "[  root]\n[   child]\n\n[    grandchild]\n[   sibling]\n";
+        //when
+        val result = Nodes.parseTree(new StringReader(text), String::length);
+        //then
+        assertThat(result.getName()).isEqualTo("root");
+        assertThat(result.getChildren()).hasSize(2);
+        assertThat(result.findChildByName("child").get().findChild(10)).isNotEmpty();
+    }
+
+    @Test
+    public void parseTreeRejectsMalformedLines() {
+        assertThatExceptionOfType(NodeException.class)
+                .isThrownBy(() -> Nodes.parseTree(new StringReader("[root]\n child\n"), Function.identity()))
+                .withMessage("Malformed node at line 2:  child");
+    }
+
+    @Test
+    public void parseTreeRejectsSkippedLevels() {
+        assertThatExceptionOfType(NodeException.class)
+                .isThrownBy(() -> Nodes.parseTree(new StringReader("[root]\n[  child]\n"), Function.identity()))
+                .withMessage("Unexpected indentation at line 2: [  child]");
+    }
+
+    @Test
+    public void parseTreeRejectsSecondRoot() {
+        assertThatExceptionOfType(NodeException.class)
+                .isThrownBy(() -> Nodes.parseTree(new StringReader("[root]\n[other]\n"), Function.identity()))
+                .withMessage("Unexpected indentation at line 2: [other]");
+    }
+
+    @Test
+    public void parseTreeRejectsDuplicateNames() {
+        assertThatExceptionOfType(NodeException.class)
+                .isThrownBy(() -> Nodes.parseTree(new StringReader("[root]\n[ a]\n[ a]\n"), Function.identity()))
+                .withMessage("Node with that name already exists here at line 3");
+    }
+
+    @Test
+    public void parseTreeRejectsEmptyText() {
+        assertThatExceptionOfType(NodeException.class)
+                .isThrownBy(() -> Nodes.parseTree(new StringReader("\n"), Function.identity()))
+                .withMessage("No nodes to parse");
+    }
+
+    @Test
+    public void parseDeepTreeWithoutRecursion() throws IOException {
+        //given
+        val depth = 5_000;
+        val text = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            text.append('[');
+            for (int j = 0; j < i; j++) {
+                text.append(' ');
+            }
+            text.append("level]\n");
+        }
+        //when
+        Node<String> node = Nodes.parseTree(new StringReader(text.toString()), Function.identity());
+        //then
+        int count = 1;
+        while (!node.getChildren().isEmpty()) {
+            node = node.getChildren().iterator().next();
+            count++;
+        }
+        assertThat(count).isEqualTo(depth);
+    }
+
+    @Test
+    public void foldSumsTree() {
+        //given
+        val root = Nodes.namedRoot(1, "root");
+        val child = Nodes.namedChild(2, "child", root);
+        Nodes.namedChild(3, "grandchild", child);
+        Nodes.namedChild(4, "other", root);
+        //when
+        final int total = Nodes.fold(root, node -> node.findData().orElse(0), Integer::sum);
+        //then
+        assertThat(total).isEqualTo(10);
+    }
+
+    @Test
+    public void foldInPoolWithThreshold() {
+        //given
+        val root = Nodes.namedRoot(1L, "root");
+        for (int i = 0; i < 100; i++) {
+            val branch = Nodes.namedChild(1L, "branch" + i, root);
+            for (int j = 0; j < 10; j++) {
+                Nodes.namedChild(1L, "leaf" + j, branch);
+            }
+        }
+        val pool = new ForkJoinPool(2);
+        try {
+            //when
+            final long total = Nodes.fold(root, node -> node.findData().orElse(0L), Long::sum, 8, pool);
+            //then
+            assertThat(total).isEqualTo(1101L);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void mapPreservesNamesAndStructure() {
+        //given
+        val root = Nodes.namedRoot(1, "root");
+        val child = Nodes.namedChild(2, "child", root);
+        Nodes.unnamedChild(3, child);
+        Nodes.namedChild((Integer) null, "empty", root);
+        //when
+        final Node<String> mapped = Nodes.map(root, data -> "#" + data);
+        //then
+        assertThat(mapped.getName()).isEqualTo("root");
+        assertThat(mapped.findData()).contains("#1");
+        assertThat(mapped.isRoot()).isTrue();
+        val mappedChild = mapped.findChildByName("child").get();
+        assertThat(mappedChild.findData()).contains("#2");
+        assertThat(mappedChild.findParent()).contains(mapped);
+        assertThat(mappedChild.findChild("#3")).isNotEmpty();
+        assertThat(mapped.findChildByName("empty").get().isEmpty()).isTrue();
+        assertThat(mapped.stream().count()).isEqualTo(4L);
+    }
+
+    @Test
+    public void mapInPoolWithThreshold() {
+        //given
+        val root = Nodes.namedRoot(0, "root");
+        for (int i = 0; i < 50; i++) {
+            val branch = Nodes.namedChild(i, "branch" + i, root);
+            for (int j = 0; j < 20; j++) {
+                Nodes.namedChild(j, "leaf" + j, branch);
+            }
+        }
+        val pool = new ForkJoinPool(4);
+        try {
+            //when
+            final Node<Integer> mapped = Nodes.map(root, data -> data * 2, 8, pool);
+            //then
+            assertThat(mapped.stream().count()).isEqualTo(1051L);
+            assertThat(mapped.findChildByName("branch7")
+                             .flatMap(branch -> branch.findChildByName("leaf9"))
+                             .flatMap(Node::findData)).contains(18);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void mapImmutableCannotBeChanged() {
+        //given
+        val root = Nodes.namedRoot(1, "root");
+        Nodes.namedChild(2, "child", root);
+        //when
+        final Node<Long> mapped = Nodes.mapImmutable(root, Integer::longValue);
+        //then
+        val child = mapped.findChildByName("child").get();
+        assertThat(child.findData()).contains(2L);
+        assertThat(child.findParent()).contains(mapped);
+        assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> child.setData(3L))
+                .withMessage("Immutable object");
+    }
+
+    @Test
+    public void mapImmutableInPoolWithThreshold() {
+        //given
+        val root = Nodes.namedRoot(0, "root");
+        for (int i = 0; i < 50; i++) {
+            val branch = Nodes.namedChild(i, "branch" + i, root);
+            for (int j = 0; j < 20; j++) {
+                Nodes.namedChild(j, "leaf" + j, branch);
+            }
+        }
+        val pool = new ForkJoinPool(4);
+        try {
+            //when
+            final Node<Integer> mapped = Nodes.mapImmutable(root, data -> data * 2, 8, pool);
+            //then
+            assertThat(mapped.stream().count()).isEqualTo(1051L);
+            val leaf = mapped.findChildByName("branch7")
+                             .flatMap(branch -> branch.findChildByName("leaf9"))
+                             .get();
+            assertThat(leaf.findData()).contains(18);
+            assertThatExceptionOfType(UnsupportedOperationException.class)
+                    .isThrownBy(() -> leaf.setData(0))
+                    .withMessage("Immutable object");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void mapDeepTreeWithoutRecursion() {
+        //given
+        val root = new NodeItem<Integer>(0, "level", null, null);
+        NodeItem<Integer> leaf = root;
+        for (int i = 1; i < 100_000; i++) {
+            val child = new NodeItem<Integer>(i, "level", null, null);
+            leaf.attachChild(child);
+            leaf = child;
+        }
+        //when
+        final Node<Integer> mapped = Nodes.map(root, data -> -data);
+        //then
+        Node<Integer> node = mapped;
+        while (!node.getChildren().isEmpty()) {
+            node = node.getChildren().iterator().next();
+        }
+        assertThat(node.findData()).contains(-99_999);
+    }
+
+    @Test
+    public void filterKeepsMatchesAndAncestors() {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        val src = Nodes.namedChild("src", "src", root);
+        Nodes.namedChild("App.java", "App.java", src);
+        Nodes.namedChild("notes.txt", "notes.txt", src);
+        val docs = Nodes.namedChild("docs", "docs", root);
+        Nodes.namedChild("index.md", "index.md", docs);
+        //when
+        val filtered = Nodes.filter(root, node -> node.getName().endsWith(".java"));
+        //then
+        assertThat(filtered).isNotEmpty();
+        assertThat(Nodes.drawTree(filtered.get(), 0)).isEqualTo(
+                "[root]\n"
+                        + "[ src]\n"
+                        + "[  App.java]\n");
+        assertThat(root.stream().count()).isEqualTo(6L);
+    }
+
+    @Test
+    public void filterKeepsDescendantsOnlyWhenTheyMatch() {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        val parent = Nodes.namedChild("keep", "parent", root);
+        Nodes.namedChild("drop", "child", parent);
+        //when
+        val filtered = Nodes.filter(root, node -> node.findData().filter("keep"::equals).isPresent());
+        //then
+        val keptParent = filtered.get().findChildByName("parent").get();
+        assertThat(keptParent.findParent()).contains(filtered.get());
+        assertThat(keptParent.getChildren()).isEmpty();
+    }
+
+    @Test
+    public void filterWithNoMatchIsEmpty() {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        Nodes.namedChild("child", "child", root);
+        //then
+        assertThat(Nodes.filter(root, node -> false)).isEmpty();
+    }
+
+    @Test
+    public void filterInParallelAgreesWithSequential() {
+        //given
+        val root = Nodes.namedRoot(0, "root");
+        for (int i = 0; i < 40; i++) {
+            val branch = Nodes.namedChild(i, "branch" + i, root);
+            for (int j = 0; j < 25; j++) {
+                Nodes.namedChild(i * j, "leaf" + j, branch);
+            }
+        }
+        final Predicate<Node<Integer>> predicate =
+                node -> node.findData().filter(data -> data % 7 == 3).isPresent();
+        val pool = new ForkJoinPool(4);
+        try {
+            //when
+            val parallel = Nodes.filter(root, predicate, 8, pool);
+            //then
+            assertThat(Nodes.drawTree(parallel.get(), 0).length())
+                    .isEqualTo(Nodes.drawTree(Nodes.filter(root, predicate).get(), 0).length());
+            assertThat(parallel.get().stream().filter(predicate).count())
+                    .isEqualTo(root.stream().filter(predicate).count());
+        } finally {
+            pool.shutdown();
+        }
+    }
 }
@@ -0,0 +1,196 @@
+package net.kemitix.node;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link OrderedNodeItem}.
+ *
+ * @author pcampbell
+ */
+public class OrderedNodeItemTest {
+
+    private static OrderedNode<String> rootWith(final String... names) {
+        val root = Nodes.<String>orderedRoot("root", "root");
+        for (final String name : names) {
+            Nodes.namedChild(name, name, root);
+        }
+        return root;
+    }
+
+    private static List<String> names(final Stream<Node<String>> nodes) {
+        return nodes.map(Node::getName)
+                    .collect(Collectors.toList());
+    }
+
+    private static List<String> names(final List<Node<String>> nodes) {
+        return names(nodes.stream());
+    }
+
+    @Test
+    public void childrenIterateInNameOrder() {
+        //given
+        val root = rootWith("delta", "alpha", "charlie", "bravo");
+        //then
+        assertThat(names(root.getChildren().stream())).containsExactly("alpha", "bravo", "charlie", "delta");
+    }
+
+    @Test
+    public void unnamedChildrenComeFirstInOrderAdded() {
+        //given
+        val root = rootWith("bravo");
+        val first = Nodes.unnamedChild("first", root);
+        val second = Nodes.unnamedChild("second", root);
+        //then
+        assertThat(root.getChildren()).containsExactly(first, second, root.findChildByName("bravo").get());
+    }
+
+    @Test
+    public void rangeQueryIsFromInclusiveToExclusive() {
+        //given
+        val root = rootWith("apple", "banana", "cherry", "date", "elderberry");
+        //then
+        assertThat(names(root.streamChildrenInRange("b", "d"))).containsExactly("banana", "cherry");
+        assertThat(names(root.streamChildrenInRange("banana", "date"))).containsExactly("banana", "cherry");
+        assertThat(names(root.streamChildrenInRange("x", "a"))).isEmpty();
+    }
+
+    @Test
+    public void siblingNavigation() {
+        //given
+        val root = rootWith("c", "a", "b");
+        val a = root.findFirstChild().get();
+        //when
+        val b = root.findChildAfter(a).get();
+        //then
+        assertThat(b.getName()).isEqualTo("b");
+        assertThat(root.findChildBefore(b)).contains(a);
+        assertThat(root.findChildBefore(a)).isEmpty();
+        assertThat(root.findLastChild().map(Node::getName)).contains("c");
+        assertThat(root.findChildAfter(root.findLastChild().get())).isEmpty();
+    }
+
+    @Test
+    public void siblingNavigationRequiresChild() {
+        //given
+        val root = rootWith("a");
+        val stranger = Nodes.namedRoot("stranger", "stranger");
+        //then
+        assertThatExceptionOfType(NodeException.class)
+                .isThrownBy(() -> root.findChildAfter(stranger));
+    }
+
+    @Test
+    public void pagesByOffset() {
+        //given
+        val root = rootWith("e", "d", "c", "b", "a");
+        //then
+        assertThat(names(root.getChildren(0, 2))).containsExactly("a", "b");
+        assertThat(names(root.getChildren(3, 10))).containsExactly("d", "e");
+        assertThat(names(root.getChildren(5, 10))).isEmpty();
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> root.getChildren(-1, 10));
+    }
+
+    @Test
+    public void pagesByName() {
+        //given
+        val root = rootWith("e", "d", "c", "b", "a");
+        //then
+        assertThat(names(root.getChildrenAfter("b", 2))).containsExactly("c", "d");
+        assertThat(names(root.getChildrenAfter("bb", 10))).containsExactly("c", "d", "e");
+        assertThat(names(root.getChildrenAfter("e", 10))).isEmpty();
+    }
+
+    @Test
+    public void renamedChildMoves() {
+        //given
+        val root = rootWith("a", "b", "c");
+        val a = root.findChildByName("a").get();
+        //when
+        a.setName("z");
+        //then
+        assertThat(names(root.getChildren().stream())).containsExactly("b", "c", "z");
+        assertThat(root.findChildByName("z")).contains(a);
+        assertThat(root.findChildByName("a")).isEmpty();
+    }
+
+    @Test
+    public void createdChildIsPositionedByName() {
+        //given
+        val root = rootWith("a", "c");
+        //when
+        root.createChild("b", "b");
+        //then
+        assertThat(names(root.getChildren().stream())).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    public void removedAndMovedChildrenLeave() {
+        //given
+        val root = rootWith("a", "b", "c");
+        val other = Nodes.orderedRoot("other", "other");
+        //when
+        root.removeChild(root.findChildByName("b").get());
+        root.findChildByName("c").get().setParent(other);
+        //then
+        assertThat(names(root.getChildren().stream())).containsExactly("a");
+        assertThat(root.findLastChild().map(Node::getName)).contains("a");
+        assertThat(names(other.getChildren().stream())).containsExactly("c");
+    }
+
+    @Test
+    public void duplicateNamesAreRejected() {
+        //given
+        val root = rootWith("a");
+        //then
+        assertThatExceptionOfType(NodeException.class)
+                .isThrownBy(() -> Nodes.namedChild("again", "a", root));
+    }
+
+    @Test
+    public void iteratorRemoveUnlinks() {
+        //given
+        val root = rootWith("a", "b", "c");
+        val iterator = root.getChildren().iterator();
+        iterator.next();
+        //when
+        iterator.next();
+        iterator.remove();
+        //then
+        assertThat(names(root.getChildren().stream())).containsExactly("a", "c");
+        assertThat(root.findChildAfter(root.findFirstChild().get()).map(Node::getName)).contains("c");
+    }
+
+    @Test
+    public void orderedChildKeepsItsOwnChildrenInOrder() {
+        //given
+        val root = Nodes.orderedRoot("root", "root");
+        val child = Nodes.orderedChild("child", "child", root);
+        Nodes.namedChild("y", "y", child);
+        Nodes.namedChild("x", "x", child);
+        //then
+        assertThat(child.findParent()).contains(root);
+        assertThat(names(child.getChildren().stream())).containsExactly("x", "y");
+    }
+
+    @Test
+    public void manyChildren() {
+        //given
+        val root = Nodes.<Integer>orderedRoot(0, "root");
+        for (int i = 9999; i >= 0; i--) {
+            Nodes.namedChild(i, String.format("%05d", i), root);
+        }
+        //then
+        assertThat(root.getChildren(5000, 1).get(0).getName()).isEqualTo("05000");
+        assertThat(root.streamChildrenInRange("01000", "01100").count()).isEqualTo(100L);
+        assertThat(root.findChildByName("09999")).isNotEmpty();
+    }
+}
@@ -0,0 +1,148 @@
+package net.kemitix.node;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static net.trajano.commons.testing.UtilityClassTestUtil.assertUtilityClassWellDefined;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link StructuralHash}.
+ *
+ * @author pcampbell
+ */
+public class StructuralHashTest {
+
+    private static Node<String> tree(final String... childNames) {
+        val root = Nodes.namedRoot("root", "root");
+        for (final String name : childNames) {
+            val child = Nodes.namedChild("data " + name, name, root);
+            Nodes.namedChild("leaf", "leaf", child);
+        }
+        return root;
+    }
+
+    @Test
+    public void shouldBeValidUtilityClass() throws Exception {
+        assertUtilityClassWellDefined(StructuralHash.class);
+    }
+
+    @Test
+    public void equalTreesHaveEqualHashesWhateverTheOrderOfChildren() {
+        //given
+        val first = tree("a", "b", "c");
+        val second = tree("c", "a", "b");
+        //then
+        assertThat(Nodes.structuralHash(first)).isEqualTo(Nodes.structuralHash(second));
+        assertThat(Nodes.structurallyEquals(first, second)).isTrue();
+    }
+
+    @Test
+    public void namesDataAndStructureAffectHash() {
+        //given
+        val original = Nodes.structuralHash(tree("a", "b"));
+        val renamed = tree("a", "b");
+        renamed.findChildByName("a").get().setName("z");
+        val changed = tree("a", "b");
+        changed.findChildByName("a").get().setData("other");
+        val moved = tree("a", "b");
+        moved.findChildByName("a").get().findChildByName("leaf").get()
+             .setParent(moved.findChildByName("b").get().findChildByName("leaf").get());
+        //then
+        assertThat(Nodes.structuralHash(renamed)).isNotEqualTo(original);
+        assertThat(Nodes.structuralHash(changed)).isNotEqualTo(original);
+        assertThat(Nodes.structuralHash(moved)).isNotEqualTo(original);
+        assertThat(Nodes.structuralHash(tree("a"))).isNotEqualTo(original);
+    }
+
+    @Test
+    public void hashIsCachedAndInvalidatedByChanges() {
+        //given
+        val tree = tree("a", "b");
+        val leaf = tree.findChildByName("a").get().findChildByName("leaf").get();
+        assertThat(StructuralHash.cached(tree)).isNull();
+        val before = Nodes.structuralHash(tree);
+        assertThat(StructuralHash.cached(tree)).isEqualTo(before);
+        assertThat(StructuralHash.cached(leaf)).isNotNull();
+        //when
+        leaf.setData("changed");
+        //then
+        assertThat(StructuralHash.cached(tree)).isNull();
+        assertThat(StructuralHash.cached(tree.findChildByName("b").get())).isNotNull();
+        assertThat(Nodes.structuralHash(tree)).isNotEqualTo(before);
+    }
+
+    @Test
+    public void diffConfirmsSubtreesWithEqualHashes() {
+        //given
+        val oldTree = tree("a", "b");
+        val newTree = tree("a", "b");
+        newTree.findChildByName("b").get().setData("changed");
+        Nodes.structuralHash(oldTree);
+        Nodes.structuralHash(newTree);
+        // a change made directly to the children is not detected, so leaves the cached hash of "a" unchanged
+        newTree.findChildByName("a").get().getChildren().clear();
+        //when
+        val differences = Nodes.diff(oldTree, newTree)
+                               .map(difference -> String.join("/", difference.getPath()))
+                               .collect(Collectors.toList());
+        //then
+        assertThat(differences).containsExactlyInAnyOrder("a/leaf", "b");
+    }
+
+    @Test
+    public void subtreesWithCollidingHashesAreNotEqual() {
+        //given
+        // "Aa" and "BB" have the same hash code
+        val first = tree("a");
+        first.findChildByName("a").get().setData("Aa");
+        val second = tree("a");
+        second.findChildByName("a").get().setData("BB");
+        //then
+        assertThat(Nodes.structuralHash(first)).isEqualTo(Nodes.structuralHash(second));
+        assertThat(Nodes.structurallyEquals(first, second)).isFalse();
+        assertThat(Nodes.diff(first, second)
+                        .map(difference -> String.join("/", difference.getPath()))
+                        .collect(Collectors.toList())).containsExactly("a");
+    }
+
+    @Test
+    public void sameSubtreeIsNotCompared() {
+        //given
+        val loads = new AtomicInteger();
+        final ChildLoader<String> loader = node -> {
+            loads.incrementAndGet();
+            if (node.isRoot()) {
+                return Collections.singletonMap("child", "child");
+            }
+            return Collections.emptyMap();
+        };
+        val lazy = Nodes.lazyRoot("root", "root", loader);
+        //then
+        assertThat(Nodes.structurallyEquals(lazy, lazy)).isTrue();
+        assertThat(Nodes.diff(lazy, lazy)).isEmpty();
+        assertThat(loads.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void unnamedChildrenWithCollidingHashesArePairedByContent() {
+        //given
+        val first = Nodes.namedRoot("root", "root");
+        first.createChild("Aa");
+        first.createChild("BB");
+        val reordered = Nodes.namedRoot("root", "root");
+        reordered.createChild("BB");
+        reordered.createChild("Aa");
+        val repeated = Nodes.namedRoot("root", "root");
+        repeated.createChild("Aa");
+        repeated.createChild("Aa");
+        //then
+        assertThat(Nodes.structurallyEquals(first, reordered)).isTrue();
+        assertThat(Nodes.structuralHash(first)).isEqualTo(Nodes.structuralHash(repeated));
+        assertThat(Nodes.structurallyEquals(first, repeated)).isFalse();
+    }
+}
@@ -0,0 +1,154 @@
+package net.kemitix.node;
+
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link SubtreeReducer}.
+ *
+ * @author pcampbell
+ */
+public class SubtreeReducerTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    private final BiFunction<Node<String>, List<Integer>, Integer> count = (node, results) -> {
+        int total = 1;
+        for (final Integer result : results) {
+            total += result;
+        }
+        return total;
+    };
+
+    @AfterEach
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    private static NodeItem<String> node(final String name) {
+        return new NodeItem<>(name, name, null, null);
+    }
+
+    private static NodeItem<String> chain(final int depth) {
+        val root = node("0");
+        NodeItem<String> leaf = root;
+        for (int i = 1; i < depth; i++) {
+            val child = node(Integer.toString(i));
+            leaf.attachChild(child);
+            leaf = child;
+        }
+        return root;
+    }
+
+    private static NodeItem<String> caterpillar(final int length) {
+        val root = node("spine");
+        NodeItem<String> spine = root;
+        for (int i = 1; i < length; i++) {
+            spine.attachChild(node("leaf"));
+            val next = node("spine");
+            spine.attachChild(next);
+            spine = next;
+        }
+        return root;
+    }
+
+    private static NodeItem<String> wide(final int branches, final int leaves) {
+        val root = node("root");
+        for (int i = 0; i < branches; i++) {
+            val branch = node("branch");
+            root.attachChild(branch);
+            for (int j = 0; j < leaves; j++) {
+                branch.attachChild(node("leaf"));
+            }
+        }
+        return root;
+    }
+
+    @Test
+    public void sequentialAndParallelAgree() {
+        //given
+        val tree = wide(50, 40);
+        val reducer = new SubtreeReducer<String, Integer>(count, 16);
+        //then
+        assertThat(reducer.reduce(tree)).isEqualTo(2051);
+        assertThat(reducer.reduce(tree, pool)).isEqualTo(2051);
+    }
+
+    @Test
+    public void singleNode() {
+        //given
+        val reducer = new SubtreeReducer<String, Integer>(count, 16);
+        //then
+        assertThat(reducer.reduce(node("root"), pool)).isEqualTo(1);
+    }
+
+    @Test
+    public void deepChainWithoutRecursion() {
+        //given
+        val tree = chain(100_000);
+        val reducer = new SubtreeReducer<String, Integer>(count, 8);
+        //then
+        assertThat(reducer.reduce(tree)).isEqualTo(100_000);
+        assertThat(reducer.reduce(tree, pool)).isEqualTo(100_000);
+    }
+
+    @Test
+    public void deepCaterpillarWithoutRecursion() {
+        //given
+        val tree = caterpillar(50_000);
+        val reducer = new SubtreeReducer<String, Integer>(count, 8);
+        //then
+        assertThat(reducer.reduce(tree, pool)).isEqualTo(99_999);
+    }
+
+    @Test
+    public void resultsFollowOrderOfChildren() {
+        //given
+        val tree = wide(20, 20);
+        final BiFunction<Node<String>, List<String>, String> names = (node, results) -> {
+            final List<String> expected = node.getChildren()
+                                              .stream()
+                                              .map(Node::getName)
+                                              .collect(Collectors.toList());
+            final List<String> actual = new ArrayList<>();
+            results.forEach(result -> actual.add(result.substring(0, result.indexOf('('))));
+            assertThat(actual).isEqualTo(expected);
+            return node.getName() + "(" + String.join(",", results) + ")";
+        };
+        val reducer = new SubtreeReducer<String, String>(names, 4);
+        //then
+        assertThat(reducer.reduce(tree, pool)).isEqualTo(reducer.reduce(tree));
+    }
+
+    @Test
+    public void exceptionIsRethrown() {
+        //given
+        val tree = wide(20, 20);
+        val reducer = new SubtreeReducer<String, Integer>((node, results) -> {
+            if (node.getChildren().size() == 20 && node.findParent().isPresent()) {
+                throw new IllegalStateException("failed");
+            }
+            return 1;
+        }, 4);
+        //then
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> reducer.reduce(tree, pool));
+    }
+
+    @Test
+    public void thresholdMustBePositive() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new SubtreeReducer<String, Integer>(count, 0))
+                .withMessage("Threshold must be positive: 0");
+    }
+}
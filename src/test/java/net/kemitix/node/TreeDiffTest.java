@@ -0,0 +1,155 @@
+package net.kemitix.node;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link TreeDiff}.
+ *
+ * @author pcampbell
+ */
+public class TreeDiffTest {
+
+    private static Node<String> tree() {
+        val root = Nodes.namedRoot("root", "root");
+        val src = Nodes.namedChild("src", "src", root);
+        Nodes.namedChild("App.java v1", "App.java", src);
+        Nodes.namedChild("Util.java", "Util.java", src);
+        val docs = Nodes.namedChild("docs", "docs", root);
+        Nodes.namedChild("index", "index.md", docs);
+        return root;
+    }
+
+    private static List<String> describe(final Node<String> oldTree, final Node<String> newTree) {
+        return Nodes.diff(oldTree, newTree)
+                    .map(difference -> difference.getType() + " " + String.join("/", difference.getPath()))
+                    .sorted()
+                    .collect(Collectors.toList());
+    }
+
+    @Test
+    public void identicalTreesHaveNoDifferences() {
+        assertThat(describe(tree(), tree())).isEmpty();
+    }
+
+    @Test
+    public void reportsChangedData() {
+        //given
+        val newTree = tree();
+        newTree.findChildByName("src").get().findChildByName("App.java").get().setData("App.java v2");
+        //when
+        val differences = Nodes.diff(tree(), newTree).collect(Collectors.toList());
+        //then
+        assertThat(differences).hasSize(1);
+        val difference = differences.get(0);
+        assertThat(difference.getType()).isEqualTo(NodeDifference.Type.DATA_CHANGED);
+        assertThat(difference.getPath()).containsExactly("src", "App.java");
+        assertThat(difference.findOldNode().flatMap(Node::findData)).contains("App.java v1");
+        assertThat(difference.findNewNode().flatMap(Node::findData)).contains("App.java v2");
+    }
+
+    @Test
+    public void reportsAddedAndRemovedSubtreesOnce() {
+        //given
+        val newTree = tree();
+        newTree.removeChild(newTree.findChildByName("docs").get());
+        val test = Nodes.namedChild("test", "test", newTree);
+        Nodes.namedChild("AppTest.java", "AppTest.java", test);
+        //then
+        assertThat(describe(tree(), newTree)).containsExactly("ADDED test", "REMOVED docs");
+    }
+
+    @Test
+    public void reportsRenamesByMatchingData() {
+        //given
+        val newTree = tree();
+        val util = newTree.findChildByName("src").get().findChildByName("Util.java").get();
+        util.setName("Utils.java");
+        newTree.findChildByName("docs").get().setName("documentation");
+        newTree.findChildByName("documentation").get().findChildByName("index.md").get().setData("index v2");
+        //then
+        assertThat(describe(tree(), newTree)).containsExactly(
+                "DATA_CHANGED documentation/index.md",
+                "RENAMED documentation",
+                "RENAMED src/Utils.java");
+    }
+
+    @Test
+    public void reportsRenamedRoot() {
+        //given
+        val newTree = tree();
+        newTree.setName("new root");
+        //then
+        assertThat(describe(tree(), newTree)).containsExactly("RENAMED ");
+    }
+
+    @Test
+    public void matchesUnnamedChildrenByData() {
+        //given
+        val oldTree = Nodes.namedRoot("root", "root");
+        Nodes.unnamedChild("same", oldTree);
+        Nodes.unnamedChild("gone", oldTree);
+        val newTree = Nodes.namedRoot("root", "root");
+        Nodes.unnamedChild("same", newTree);
+        Nodes.unnamedChild("new", newTree);
+        //when
+        val types = Nodes.diff(oldTree, newTree)
+                         .map(NodeDifference::getType)
+                         .sorted()
+                         .collect(Collectors.toList());
+        //then
+        assertThat(types).containsExactly(NodeDifference.Type.ADDED, NodeDifference.Type.REMOVED);
+    }
+
+    @Test
+    public void largeTreesInParallel() {
+        //given
+        val oldTree = Nodes.namedRoot("root", "root");
+        val newTree = Nodes.namedRoot("root", "root");
+        for (int i = 0; i < 100; i++) {
+            val oldBranch = Nodes.namedChild("branch", "branch" + i, oldTree);
+            val newBranch = Nodes.namedChild("branch", "branch" + i, newTree);
+            for (int j = 0; j < 100; j++) {
+                Nodes.namedChild("leaf", "leaf" + j, oldBranch);
+                Nodes.namedChild(j == i ? "changed" : "leaf", "leaf" + j, newBranch);
+            }
+        }
+        val pool = new ForkJoinPool(4);
+        try {
+            //when
+            val differences = Nodes.diff(oldTree, newTree, pool).collect(Collectors.toList());
+            //then
+            assertThat(differences).hasSize(100);
+            assertThat(differences.stream()
+                                  .allMatch(d -> d.getType() == NodeDifference.Type.DATA_CHANGED)).isTrue();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void deepTreesWithoutRecursion() {
+        //given
+        val oldTree = new NodeItem<String>("level", "level", null, null);
+        val newTree = new NodeItem<String>("level", "level", null, null);
+        NodeItem<String> oldLeaf = oldTree;
+        NodeItem<String> newLeaf = newTree;
+        for (int i = 1; i < 100_000; i++) {
+            val oldChild = new NodeItem<String>("level", "level", null, null);
+            val newChild = new NodeItem<String>("level", "level", null, null);
+            oldLeaf.attachChild(oldChild);
+            newLeaf.attachChild(newChild);
+            oldLeaf = oldChild;
+            newLeaf = newChild;
+        }
+        newLeaf.setData("changed");
+        //then
+        assertThat(Nodes.diff(oldTree, newTree).count()).isEqualTo(1L);
+    }
+}
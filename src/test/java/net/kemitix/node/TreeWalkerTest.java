@@ -0,0 +1,140 @@
+package net.kemitix.node;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static net.trajano.commons.testing.UtilityClassTestUtil.assertUtilityClassWellDefined;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link TreeWalker}.
+ *
+ * @author pcampbell
+ */
+public class TreeWalkerTest {
+
+    private final List<String> visits = new ArrayList<>();
+
+    /**
+     * A root with a single child, "a", which has the single child "b".
+     */
+    private static Node<String> line() {
+        val root = Nodes.namedRoot("root", "root");
+        val a = Nodes.namedChild("a", "a", root);
+        Nodes.namedChild("b", "b", a);
+        return root;
+    }
+
+    private TreeVisitor<String> recording(final Function<Node<String>, VisitResult> preVisit) {
+        return new TreeVisitor<String>() {
+            @Override
+            public VisitResult preVisit(final Node<String> node) {
+                visits.add("pre " + node.getName());
+                return preVisit.apply(node);
+            }
+
+            @Override
+            public VisitResult postVisit(final Node<String> node) {
+                visits.add("post " + node.getName());
+                return VisitResult.CONTINUE;
+            }
+        };
+    }
+
+    @Test
+    public void shouldBeValidUtilityClass() throws Exception {
+        assertUtilityClassWellDefined(TreeWalker.class);
+    }
+
+    @Test
+    public void visitsBeforeAndAfterChildren() {
+        //when
+        line().walk(recording(node -> VisitResult.CONTINUE));
+        //then
+        assertThat(visits).containsExactly("pre root", "pre a", "pre b", "post b", "post a", "post root");
+    }
+
+    @Test
+    public void skipSubtreeSkipsChildrenAndPostVisit() {
+        //when
+        line().walk(recording(node -> node.getName().equals("a") ? VisitResult.SKIP_SUBTREE : VisitResult.CONTINUE));
+        //then
+        assertThat(visits).containsExactly("pre root", "pre a", "post root");
+    }
+
+    @Test
+    public void terminateStopsWalk() {
+        //when
+        line().walk(recording(node -> node.getName().equals("b") ? VisitResult.TERMINATE : VisitResult.CONTINUE));
+        //then
+        assertThat(visits).containsExactly("pre root", "pre a", "pre b");
+    }
+
+    @Test
+    public void skipSiblingsSkipsRemainingSiblings() {
+        //given
+        val root = Nodes.namedRoot("root", "root");
+        for (int i = 0; i < 10; i++) {
+            Nodes.namedChild("child", "child" + i, root);
+        }
+        //when
+        root.walk(recording(node -> node.isRoot() ? VisitResult.CONTINUE : VisitResult.SKIP_SIBLINGS));
+        //then
+        assertThat(visits).hasSize(3);
+        assertThat(visits.get(2)).isEqualTo("post root");
+    }
+
+    @Test
+    public void postVisitCanTerminate() {
+        //given
+        val root = line();
+        //when
+        root.walk(new TreeVisitor<String>() {
+            @Override
+            public VisitResult preVisit(final Node<String> node) {
+                visits.add("pre " + node.getName());
+                return VisitResult.CONTINUE;
+            }
+
+            @Override
+            public VisitResult postVisit(final Node<String> node) {
+                visits.add("post " + node.getName());
+                return VisitResult.TERMINATE;
+            }
+        });
+        //then
+        assertThat(visits).containsExactly("pre root", "pre a", "pre b", "post b");
+    }
+
+    @Test
+    public void rootCanBeSkipped() {
+        //when
+        line().walk(recording(node -> VisitResult.SKIP_SUBTREE));
+        //then
+        assertThat(visits).containsExactly("pre root");
+    }
+
+    @Test
+    public void walksDeepTreeWithoutRecursion() {
+        //given
+        val root = new NodeItem<String>(null, "level", null, null);
+        NodeItem<String> leaf = root;
+        for (int i = 1; i < 100_000; i++) {
+            val child = new NodeItem<String>(null, "level", null, null);
+            leaf.attachChild(child);
+            leaf = child;
+        }
+        val count = new int[1];
+        //when
+        root.walk(node -> {
+            count[0]++;
+            return VisitResult.CONTINUE;
+        });
+        //then
+        assertThat(count[0]).isEqualTo(100_000);
+    }
+}